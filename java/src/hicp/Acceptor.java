@@ -0,0 +1,22 @@
+package hicp;
+
+abstract class Acceptor {
+    protected Acceptor() {
+    }
+
+    public abstract TokenIndicator accept(byte inByte);
+
+    /**
+        Returns index of first byte from pos up to lim which must be
+        passed to accept(), all bytes before it would be accepted as part
+        of the token without changing acceptor state. ESC (0x1b) always
+        has to be stopped at. By default, every byte has to be checked.
+     */
+    public int scan(byte[] buffer, int pos, int lim) {
+        return pos;
+    }
+
+    public abstract void reset();
+
+    public abstract int getEndLength();
+}
@@ -0,0 +1,108 @@
+package hicp;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class BoundaryAcceptor
+    extends Acceptor
+{
+    private static final Logger LOGGER =
+        Logger.getLogger( BoundaryAcceptor.class.getName() );
+
+    protected int _matchIdx = 0;
+
+    final protected byte[] _termSeq;
+    final protected int[] _failIdx;
+
+    public BoundaryAcceptor(byte[] termSeq) {
+        _termSeq = termSeq;
+        if (0 == termSeq.length) {
+            // No boundary, so nothing to accept.
+            _failIdx = null;
+            return;
+        }
+
+        // Build the _failIdx values. This is a Knuth-Morris-Pratt state
+        // machine. Briefly, consider pattern "ababc" and text
+        // "abababc".
+        // The pattern will have a matched part and an unchecked part:
+        // "abab""c".
+        // The text will have a checked part and an unchecked part:
+        // "abab""abc".
+        // At that point, the match fails, so the matched part of the
+        // pattern should be rolled back two positions, to "ab""abc", so
+        // that nothing will be missed. Now the unchecked part of the
+        // pattern ("abc") will match the unchecked text ("abc").
+        // This code computes the indices used for rolling back the
+        // matches when a mismatch occurs and stores them in the
+        // _failIdx array.
+        _failIdx = new int[_termSeq.length];
+        _failIdx[0] = -1;
+        for (int scanFailIdx = 1;scanFailIdx < _failIdx.length;scanFailIdx++) {
+            int prevFailIdx = _failIdx[scanFailIdx - 1];
+findFailIdxLoop:
+            for (;;) {
+                if (-1 == prevFailIdx) {
+                    break findFailIdxLoop;
+                }
+                if (_termSeq[prevFailIdx] == _termSeq[scanFailIdx - 1])
+                {
+                    break findFailIdxLoop;
+                }
+                prevFailIdx = _failIdx[prevFailIdx];
+            }
+            _failIdx[scanFailIdx] = prevFailIdx + 1;
+        }
+    }
+
+    public TokenIndicator accept(final byte inByte) {
+        if (0 == _termSeq.length) {
+            // No sequence to accept.
+            return TokenIndicator.IS_END;
+        }
+        while (_matchIdx > -1) {
+            if (inByte == _termSeq[_matchIdx]) {
+                // Matched a byte in termination sequence.
+                _matchIdx++;
+                if (_matchIdx < _termSeq.length) {
+                    // More bytes left to match in termination sequence.
+                    return TokenIndicator.IS_PART;
+                } else {
+                    // Last byte of termination sequence.
+                    return TokenIndicator.IS_END;
+                }
+            } else {
+                // Didn't match, adjust _matchIdx for next try. See
+                // comments in constructor for details.
+                _matchIdx = _failIdx[_matchIdx];
+            }
+        }
+        // Start over at beginning of termination sequence.
+        _matchIdx = 0;
+        return TokenIndicator.IS_PART;
+    }
+
+    public int scan(byte[] buffer, int pos, int lim) {
+        if ((0 == _termSeq.length) || (0 != _matchIdx)) {
+            return pos;
+        }
+        // Nothing matched so far, so only the first byte of the
+        // termination sequence can change anything.
+        final byte firstByte = _termSeq[0];
+        for (; pos < lim; pos++) {
+            final byte inByte = buffer[pos];
+            if ((firstByte == inByte) || (0x1b == inByte)) {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    public void reset() {
+        _matchIdx = 0;
+    }
+
+    public int getEndLength() {
+        return _termSeq.length;
+    }
+}
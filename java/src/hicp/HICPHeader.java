@@ -7,16 +7,22 @@ public class HICPHeader
     public final String name;
     public final HICPHeaderValue value;
 
+    // Null if name isn't known.
+    public final HeaderEnum headerEnum;
+
     public HICPHeader() {
         name = null;
         value = null;
+        headerEnum = null;
     }
 
     public HICPHeader(
-        final HeaderEnum headerEnum,
+        final HeaderEnum newHeaderEnum,
         final HICPHeaderValue newValue
     ) {
-        this(headerEnum.name, newValue);
+        name = newHeaderEnum.name;
+        value = newValue;
+        headerEnum = newHeaderEnum;
     }
 
     public HICPHeader(
@@ -25,5 +31,6 @@ public class HICPHeader
     ) {
         name = newName;
         value = newValue;
+        headerEnum = null;
     }
 }
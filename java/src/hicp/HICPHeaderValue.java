@@ -25,6 +25,9 @@ public class HICPHeaderValue {
     protected String _string = null;
     protected byte[] _bytes = null;
 
+    // True if constructed from a string which hasn't been encoded yet.
+    protected boolean _isEncodePending = false;
+
     /** Construct an empty object. */
     public HICPHeaderValue() {
         _byteBuffer = null;
@@ -52,7 +55,17 @@ public class HICPHeaderValue {
         _string = string;
         isBinary = false;
 
-        // Should always be a binary representation for string.
+        // Should always be a binary representation for string, but it's
+        // often not needed (the writer encodes strings itself), so only
+        // encode when asked for.
+        _isEncodePending = true;
+    }
+
+    protected void encodeIfPending() {
+        if (!_isEncodePending) {
+            return;
+        }
+        _isEncodePending = false;
         try {
             synchronized(_encoder) {
                 final CharBuffer charBuffer = CharBuffer.wrap(_string);
@@ -63,14 +76,43 @@ public class HICPHeaderValue {
         }
     }
 
+    /**
+        Read only view of the value bytes, which may share storage with
+        the buffer the value was read into. Nothing is copied.
+     */
+    public ByteBuffer getByteBuffer() {
+        encodeIfPending();
+        if (null == _byteBuffer) {
+            return null;
+        }
+        return _byteBuffer.asReadOnlyBuffer();
+    }
+
+    public int getLength() {
+        encodeIfPending();
+        if (null == _byteBuffer) {
+            return 0;
+        }
+        return _byteBuffer.remaining();
+    }
+
     public byte[] getBytes() {
+        encodeIfPending();
         if (null == _byteBuffer) {
             return null;
         }
-        // get() only works once without resetting, so only do it once.
+        // Only copy once, and only when asked for.
         if (null == _bytes) {
-            _bytes = new byte[_byteBuffer.remaining()];
-            _byteBuffer.get(_bytes);
+            if ( _byteBuffer.hasArray()
+              && (0 == _byteBuffer.arrayOffset() + _byteBuffer.position())
+              && (_byteBuffer.remaining() == _byteBuffer.array().length) )
+            {
+                // Buffer covers the whole array, no need to copy.
+                _bytes = _byteBuffer.array();
+            } else {
+                _bytes = new byte[_byteBuffer.remaining()];
+                _byteBuffer.duplicate().get(_bytes);
+            }
         }
         return _bytes;
     }
@@ -81,16 +123,25 @@ public class HICPHeaderValue {
                 // No binary representation to try to convert.
                 return null;
             }
-            try {
-                synchronized(_decoder) {
-                    final CharBuffer charBuffer = _decoder.decode(_byteBuffer);
-                    _string = charBuffer.toString();
-                }
-            } catch (CharacterCodingException ex) {
-                // No string representation of this binary value, let _string
-                // remain null, don't need to do anything else.
-            }
+            // Decode from a duplicate so buffer position isn't changed.
+            // If there's no string representation of this binary value,
+            // _string remains null.
+            _string = decodeString(_byteBuffer.duplicate());
         }
         return _string;
     }
+
+    /**
+        Decode UTF-8 bytes remaining in byteBuffer, or return null if they
+        aren't valid UTF-8.
+     */
+    public static String decodeString(final ByteBuffer byteBuffer) {
+        try {
+            synchronized(_decoder) {
+                return _decoder.decode(byteBuffer).toString();
+            }
+        } catch (CharacterCodingException ex) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,539 @@
+package hicp;
+
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hicp.message.HeaderEnum;
+import hicp.message.Message;
+
+/**
+    Incremental HICP message parser. Input is given in chunks of any size with
+    feed(), and each message is passed to the controller as soon as its final
+    blank line has been parsed. Partial tokens are kept between calls, so this
+    can be driven from non-blocking I/O.
+
+    Produces the same headers as HICPReader, and like it, headers with names
+    not in HeaderEnum are read past without keeping their values. All state
+    belongs to the parser instance, so separate parsers can be used from
+    separate threads, but a single parser must not be fed from more than one
+    thread at a time.
+
+    MessageExchange still reads with HICPReader from a blocking stream, so
+    nothing uses this yet; it's for a connection driven by a selector.
+ */
+public class HICPParser
+{
+    private static final Logger LOGGER =
+        Logger.getLogger( HICPParser.class.getName() );
+
+    // Parse states, named for what is being read.
+    protected static final int HEADER_NAME = 1;
+    protected static final int SEPARATOR = 2;
+    protected static final int VALUE = 3;
+    protected static final int TERM_CRIT = 4;
+    protected static final int LENGTH_EQUALS = 5;
+    protected static final int LENGTH = 6;
+    protected static final int LENGTH_VALUE = 7;
+    protected static final int LENGTH_EOL = 8;
+    protected static final int BOUNDARY_EQUALS = 9;
+    protected static final int TERM_SEQ = 10;
+    protected static final int TERM_SEQ_APPEND = 11;
+    protected static final int BOUNDARY_VALUE = 12;
+    protected static final int SKIP_LINE = 13;
+
+    protected final Controller _controller;
+
+    protected final Acceptor _headerNameAcceptor =
+        new TokenAcceptor(':');
+
+    protected final Acceptor _separatorAcceptor =
+        new SeparatorAcceptor();
+
+    protected final Acceptor _headerValueAcceptor =
+        new TokenAcceptor();
+
+    protected final Acceptor _termCritAcceptor =
+        new TokenAcceptor('=');
+
+    protected final Acceptor _termSeqAcceptor =
+        new TermSeqAcceptor();
+
+    protected int _state = HEADER_NAME;
+
+    // Token in progress.
+    protected Acceptor _acceptor = null;
+    protected ByteBuffer _token = null;  // null if token isn't kept.
+    protected boolean _isSkipping = false;
+    protected boolean _isAfterEscape = false;
+    protected boolean _isTokenStarted = false;
+
+    // True if the last token ended on a byte which was left for the
+    // next token, like HICPReader._isPreviousByte.
+    protected boolean _isNotPartEnd = false;
+
+    protected int _avgTokenByteCnt = 16;
+
+    // Header and message in progress. Header enum is null if name is
+    // not known, then value is discarded.
+    protected HeaderEnum _headerEnum = null;
+    protected byte[] _termSeqBytes = null;
+    protected byte[] _lengthValueBytes = null;
+    protected int _lengthValueLength = 0;
+    protected int _lengthValuePos = 0;
+    protected HeaderMap _headerMap = new HeaderMap();
+
+    public HICPParser(Controller controller) {
+        _controller = controller;
+
+        startToken(_headerNameAcceptor);
+    }
+
+    /**
+        Parse all remaining bytes in the buffer, passing each message
+        completed along the way to the controller. Anything left over is
+        kept until the next call.
+     */
+    public HICPParser feed(final ByteBuffer in) {
+        while (in.hasRemaining()) {
+            switch (_state) {
+              case HEADER_NAME:
+                if (!continueToken(in)) {
+                    return this;
+                }
+                {
+                    final ByteBuffer headerName = takeTokenBuffer();
+                    if (!headerName.hasRemaining()) {
+                        // Blank line - end of message.
+                        endMessage();
+                        startToken(_headerNameAcceptor);
+                    } else {
+                        _headerEnum =
+                            HeaderEnum.getEnum(
+                                headerName.array(),
+                                headerName.arrayOffset()
+                                    + headerName.position(),
+                                headerName.remaining()
+                            );
+                        startToken(_separatorAcceptor);
+                        _state = SEPARATOR;
+                    }
+                }
+                break;
+
+              case SEPARATOR:
+                if (!continueToken(in)) {
+                    return this;
+                }
+                {
+                    final ByteBuffer separator = takeTokenBuffer();
+                    if (!separator.hasRemaining()) {
+                        // No separator, no header value. For now, leave
+                        // value as "".
+                        endHeader(new HICPHeaderValue());
+                    } else if (
+                        HICPReader.isMatch(
+                            separator, HICPReader.MULTI_SEPARATOR_BYTES
+                        )
+                    ) {
+                        startToken(_termCritAcceptor);
+                        _state = TERM_CRIT;
+                    } else if (
+                        HICPReader.isMatch(
+                            separator, HICPReader.SINGLE_SEPARATOR_BYTES
+                        )
+                    ) {
+                        startValueToken(_headerValueAcceptor);
+                        _state = VALUE;
+                    } else {
+                        // No separator, skip to the end of the line.
+                        startSkip(_headerValueAcceptor);
+                        _state = SKIP_LINE;
+                    }
+                }
+                break;
+
+              case VALUE:
+                if (!continueToken(in)) {
+                    return this;
+                }
+                endHeader(takeTokenValue());
+                break;
+
+              case TERM_CRIT:
+                if (!continueToken(in)) {
+                    return this;
+                }
+                {
+                    final ByteBuffer terminationCriterion = takeTokenBuffer();
+                    if (
+                        HICPReader.isMatch(
+                            terminationCriterion, HICPReader.LENGTH_BYTES
+                        )
+                    ) {
+                        _state = LENGTH_EQUALS;
+                    } else if (
+                        HICPReader.isMatch(
+                            terminationCriterion, HICPReader.BOUNDARY_BYTES
+                        )
+                    ) {
+                        _state = BOUNDARY_EQUALS;
+                    } else if (_isNotPartEnd) {
+                        // Not valid termination criterion, and not at
+                        // EOL, skip to end.
+                        startSkip(_headerValueAcceptor);
+                        _state = SKIP_LINE;
+                    } else {
+                        endHeader(new HICPHeaderValue());
+                    }
+                }
+                break;
+
+              case LENGTH_EQUALS:
+                // Skip the "=".
+                in.get();
+                startToken(_headerValueAcceptor);
+                _state = LENGTH;
+                break;
+
+              case LENGTH:
+                if (!continueToken(in)) {
+                    return this;
+                }
+                {
+                    final int length =
+                        HICPReader.parseLength(takeTokenBuffer());
+                    if (0 <= length) {
+                        // Unknown header values are counted, but not
+                        // kept.
+                        _lengthValueBytes =
+                            (null != _headerEnum) ? new byte[length] : null;
+                        _lengthValueLength = length;
+                        _lengthValuePos = 0;
+                        _state = LENGTH_VALUE;
+                    } else {
+                        // No valid length, so no way to know how long
+                        // the value is. Leave header value as default.
+                        endHeader(new HICPHeaderValue());
+                    }
+                }
+                break;
+
+              case LENGTH_VALUE:
+                {
+                    final int copyLength =
+                        Math.min(
+                            in.remaining(),
+                            _lengthValueLength - _lengthValuePos
+                        );
+                    if (null != _lengthValueBytes) {
+                        in.get(_lengthValueBytes, _lengthValuePos, copyLength);
+                    } else {
+                        in.position(in.position() + copyLength);
+                    }
+                    _lengthValuePos += copyLength;
+
+                    if (_lengthValuePos < _lengthValueLength) {
+                        return this;
+                    }
+                    final HICPHeaderValue headerValue =
+                        (null != _lengthValueBytes)
+                            ? new HICPHeaderValue(
+                                ByteBuffer.wrap(_lengthValueBytes)
+                            )
+                            : null;
+                    _lengthValueBytes = null;
+
+                    endHeader(headerValue);
+
+                    // Read final EOL and discard.
+                    startSkip(_headerValueAcceptor);
+                    _state = LENGTH_EOL;
+                }
+                break;
+
+              case LENGTH_EOL:
+              case SKIP_LINE:
+                if (!continueToken(in)) {
+                    return this;
+                }
+                if (SKIP_LINE == _state) {
+                    endHeader(new HICPHeaderValue());
+                }
+                startToken(_headerNameAcceptor);
+                _state = HEADER_NAME;
+                break;
+
+              case BOUNDARY_EQUALS:
+                // Skip the "=".
+                in.get();
+                startToken(_termSeqAcceptor);
+                _state = TERM_SEQ;
+                break;
+
+              case TERM_SEQ:
+                if (!continueToken(in)) {
+                    return this;
+                }
+                _termSeqBytes = HICPReader.toBytes(takeTokenBuffer());
+                if ( (2 <= _termSeqBytes.length)
+                  && ('\r' == _termSeqBytes[0])
+                  && ('\n' == _termSeqBytes[1])
+                ) {
+                    // Termination sequence beginning with CR LF, next
+                    // line has to be appended to it. See
+                    // HICPReader.readHeader().
+                    startToken(_termSeqAcceptor);
+                    _state = TERM_SEQ_APPEND;
+                } else {
+                    startValueToken(new BoundaryAcceptor(_termSeqBytes));
+                    _state = BOUNDARY_VALUE;
+                }
+                break;
+
+              case TERM_SEQ_APPEND:
+                if (!continueToken(in)) {
+                    return this;
+                }
+                {
+                    final byte[] appendTermSeqBytes =
+                        HICPReader.toBytes(takeTokenBuffer());
+                    final byte[] newTermSeqBytes =
+                        new byte[
+                            _termSeqBytes.length + appendTermSeqBytes.length
+                        ];
+                    System.arraycopy(
+                        _termSeqBytes, 0,
+                        newTermSeqBytes, 0,
+                        _termSeqBytes.length
+                    );
+                    System.arraycopy(
+                        appendTermSeqBytes, 0,
+                        newTermSeqBytes, _termSeqBytes.length,
+                        appendTermSeqBytes.length
+                    );
+                    _termSeqBytes = newTermSeqBytes;
+                }
+                startValueToken(new BoundaryAcceptor(_termSeqBytes));
+                _state = BOUNDARY_VALUE;
+                break;
+
+              case BOUNDARY_VALUE:
+                if (!continueToken(in)) {
+                    return this;
+                }
+                _termSeqBytes = null;
+                endHeader(takeTokenValue());
+                break;
+
+              default:
+                LOGGER.log(Level.WARNING, "Unexpected parse state " + _state);
+                _state = HEADER_NAME;
+                startToken(_headerNameAcceptor);
+                break;
+            }
+        }
+        return this;
+    }
+
+    /**
+        End of input. A token in progress is ended as it is, and if there
+        are any headers they are passed to the controller as a final
+        message.
+     */
+    public HICPParser finish() {
+        if (_isTokenStarted && !_isSkipping) {
+            switch (_state) {
+              case HEADER_NAME:
+                {
+                    final ByteBuffer headerName = takeTokenBuffer();
+                    if (headerName.hasRemaining()) {
+                        _headerEnum =
+                            HeaderEnum.getEnum(
+                                headerName.array(),
+                                headerName.arrayOffset()
+                                    + headerName.position(),
+                                headerName.remaining()
+                            );
+                        endHeader(new HICPHeaderValue());
+                    }
+                }
+                break;
+              case VALUE:
+              case BOUNDARY_VALUE:
+                endHeader(takeTokenValue());
+                break;
+              default:
+                break;
+            }
+        }
+        if (0 < _headerMap.values().size()) {
+            endMessage();
+        }
+        _state = HEADER_NAME;
+        startToken(_headerNameAcceptor);
+
+        return this;
+    }
+
+    protected void startToken(final Acceptor acceptor) {
+        _acceptor = acceptor;
+        _acceptor.reset();
+        _token = ByteBuffer.allocate(_avgTokenByteCnt + 4);
+        _isSkipping = false;
+        _isAfterEscape = false;
+        _isTokenStarted = false;
+    }
+
+    /**
+        Start token for a header value, which is only kept if the header
+        name is known.
+     */
+    protected void startValueToken(final Acceptor acceptor) {
+        startToken(acceptor);
+        if (null == _headerEnum) {
+            _token = null;
+        }
+    }
+
+    protected void startSkip(final Acceptor acceptor) {
+        _acceptor = acceptor;
+        _acceptor.reset();
+        _token = null;
+        _isSkipping = true;
+        _isAfterEscape = false;
+        _isTokenStarted = false;
+    }
+
+    /**
+        Accept bytes into the current token. Returns true if the token is
+        complete, false if more input is needed. A byte which is not part
+        of the token is left in the buffer.
+     */
+    protected boolean continueToken(final ByteBuffer in) {
+        final Acceptor acceptor = _acceptor;
+
+        while (in.hasRemaining()) {
+            if (!_isAfterEscape && in.hasArray()) {
+                // Take bytes which can't change acceptor state in one
+                // span.
+                final byte[] array = in.array();
+                final int pos = in.arrayOffset() + in.position();
+                final int lim = in.arrayOffset() + in.limit();
+                final int spanLength = acceptor.scan(array, pos, lim) - pos;
+
+                if (0 < spanLength) {
+                    if (null != _token) {
+                        _token =
+                            HICPReader.ensureRemaining(_token, spanLength + 1);
+                        _token.put(array, pos, spanLength);
+                    }
+                    in.position(in.position() + spanLength);
+                    _isTokenStarted = true;
+                    if (!in.hasRemaining()) {
+                        return false;
+                    }
+                }
+            }
+            final byte inByte = in.get();
+            _isTokenStarted = true;
+
+            if (_isSkipping) {
+                final TokenIndicator tokenIndicator = acceptor.accept(inByte);
+                if (TokenIndicator.NOT_PART == tokenIndicator) {
+                    // Byte is part of next token.
+                    in.position(in.position() - 1);
+                    _isNotPartEnd = true;
+                    return true;
+                }
+                if (TokenIndicator.IS_END == tokenIndicator) {
+                    _isNotPartEnd = false;
+                    return true;
+                }
+                continue;
+            }
+            if (0x1b == inByte) {
+                // Escape, next character is always accepted.
+                _isAfterEscape = true;
+                continue;
+            }
+            final TokenIndicator tokenIndicator;
+            if (_isAfterEscape) {
+                // Character after escape must always be accepted. This
+                // also means that acceptor must start over.
+                tokenIndicator = TokenIndicator.IS_PART;
+                acceptor.reset();
+            } else {
+                tokenIndicator = acceptor.accept(inByte);
+            }
+            _isAfterEscape = false;
+
+            if (TokenIndicator.NOT_PART == tokenIndicator) {
+                // Byte is part of next token.
+                in.position(in.position() - 1);
+                _isNotPartEnd = true;
+                return true;
+            }
+            if (null != _token) {
+                _token = HICPReader.ensureRemaining(_token, 1);
+                _token.put(inByte);
+            }
+
+            if (TokenIndicator.IS_END == tokenIndicator) {
+                // End bytes are not part of token.
+                if (null != _token) {
+                    _token.position(
+                        _token.position() - acceptor.getEndLength()
+                    );
+                }
+                _isNotPartEnd = false;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+        Returns the token ready to be read from, or null if it wasn't kept.
+     */
+    protected ByteBuffer takeTokenBuffer() {
+        final ByteBuffer token = _token;
+        _token = null;
+        if (null == token) {
+            return null;
+        }
+        _avgTokenByteCnt = (_avgTokenByteCnt + token.position() + 1) / 2;
+
+        // Flip ByteBuffer from input to output.
+        token.flip();
+        return token;
+    }
+
+    protected HICPHeaderValue takeTokenValue() {
+        final ByteBuffer token = takeTokenBuffer();
+        if (null == token) {
+            return null;
+        }
+        return new HICPHeaderValue(token);
+    }
+
+    protected void endHeader(final HICPHeaderValue headerValue) {
+        if (null != _headerEnum) {
+            _headerMap.put(
+                _headerEnum, new HICPHeader(_headerEnum, headerValue)
+            );
+            _headerEnum = null;
+        }
+        if (LENGTH_VALUE != _state) {
+            startToken(_headerNameAcceptor);
+            _state = HEADER_NAME;
+        }
+    }
+
+    protected void endMessage() {
+        final HeaderMap headerMap = _headerMap;
+        _headerMap = new HeaderMap();
+
+        _controller.receivedMessage(new Message(headerMap));
+    }
+}
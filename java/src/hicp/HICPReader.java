@@ -1,9 +1,12 @@
 package hicp;
 
+import java.io.EOFException;
 import java.io.InputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.BufferOverflowException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -15,31 +18,86 @@ public class HICPReader
     private static final Logger LOGGER =
         Logger.getLogger( HICPReader.class.getName() );
 
+    public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+    // Length delimited values at least this long which are already in
+    // the buffer are used in place instead of being copied.
+    public static final int SLICE_MIN_LENGTH = 1024;
+
     protected final InputStream _in;
 
+    // Input is read in bulk into this buffer, bytes between _bufferPos
+    // and _bufferLim have not been processed yet.
+    protected byte[] _buffer;
+    protected int _bufferPos = 0;
+    protected int _bufferLim = 0;
+
+    // True if a header value refers to part of _buffer, so it can't be
+    // filled again.
+    protected boolean _isBufferShared = false;
+
+    // If true, readMessage() reads headers into an IndexedHeaderMap.
+    protected boolean _isIndexed = false;
+
+    // Values and table for the IndexedHeaderMap being read, copied to
+    // arrays of the right size when the message is complete.
+    protected ByteBuffer _indexBytes = null;
+    protected int[] _indexTable = null;
+
     protected boolean _isPreviousByte = false;
-    protected int _previousByte = 0;
     protected int _avgTokenByteCnt = 16;
 
-    protected static final Acceptor _headerNameAcceptor =
+    protected final Acceptor _headerNameAcceptor =
         new TokenAcceptor(':');
 
-    protected static final Acceptor _separatorAcceptor =
+    protected final Acceptor _separatorAcceptor =
         new SeparatorAcceptor();
 
-    protected static final Acceptor _headerValueAcceptor =
+    protected final Acceptor _headerValueAcceptor =
         new TokenAcceptor();
 
-    protected static final Acceptor _termCritAcceptor =
+    protected final Acceptor _termCritAcceptor =
         new TokenAcceptor('=');
 
-    protected static final Acceptor _termSeqAcceptor =
+    protected final Acceptor _termSeqAcceptor =
         new TermSeqAcceptor();
 
     protected final HICPHeaderValue EMPTY_HEADER_VALUE = new HICPHeaderValue();
 
+    // Returned by readTokenBuffer() for a token which was not kept.
+    protected static final ByteBuffer DISCARDED_TOKEN =
+        ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+    // Returned by readHeader() for a header which was read past because
+    // its name is not known.
+    protected static final HICPHeader SKIPPED_HEADER =
+        new HICPHeader("", null);
+
+    // Separators and termination criteria, for matching without
+    // decoding.
+    protected static final byte[] SINGLE_SEPARATOR_BYTES = {':'};
+    protected static final byte[] MULTI_SEPARATOR_BYTES = {':', ':'};
+    protected static final byte[] LENGTH_BYTES =
+        "length".getBytes(StandardCharsets.US_ASCII);
+    protected static final byte[] BOUNDARY_BYTES =
+        "boundary".getBytes(StandardCharsets.US_ASCII);
+
     public HICPReader(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public HICPReader(InputStream in, int bufferSize) {
         _in = in;
+        _buffer = new byte[bufferSize];
+    }
+
+    /**
+        If isIndexed is true, messages are read with readIndexedHeaderMap()
+        instead of readHeaderMap().
+     */
+    public HICPReader setIndexed(final boolean isIndexed) {
+        _isIndexed = isIndexed;
+        return this;
     }
 
     /**
@@ -65,7 +123,27 @@ public class HICPReader
     )
         throws IOException
     {
-        ByteBuffer readByteBuffer = ByteBuffer.allocate(_avgTokenByteCnt + 4);
+        final ByteBuffer readByteBuffer = readTokenBuffer(acceptor, false);
+        if (null == readByteBuffer) {
+            return null;
+        }
+        return new HICPHeaderValue(readByteBuffer);
+    }
+
+    /**
+        Read token as for readToken(), returning the bytes ready to be
+        read from the ByteBuffer, or null if at end of input. If
+        isDiscarding is true, bytes are not kept and DISCARDED_TOKEN is
+        returned instead.
+     */
+    protected ByteBuffer readTokenBuffer(
+        final Acceptor acceptor, final boolean isDiscarding
+    )
+        throws IOException
+    {
+        ByteBuffer readByteBuffer =
+            isDiscarding ? null : ByteBuffer.allocate(_avgTokenByteCnt + 4);
+        boolean isAnyInput = false;
         int inByte;
         TokenIndicator tokenIndicator = TokenIndicator.IS_PART;
 
@@ -73,11 +151,30 @@ public class HICPReader
         acceptor.reset();
 readLoop:
         for (;;) {
+            if (!isAfterEscape && fillBufferIfEmpty()) {
+                // Copy the span of bytes which the acceptor says are
+                // part of the token without changing its state, so they
+                // don't have to be checked one at a time.
+                final int spanLim =
+                    acceptor.scan(_buffer, _bufferPos, _bufferLim);
+                final int spanLength = spanLim - _bufferPos;
+
+                if (0 < spanLength) {
+                    if (null != readByteBuffer) {
+                        readByteBuffer =
+                            ensureRemaining(readByteBuffer, spanLength + 1);
+                        readByteBuffer.put(_buffer, _bufferPos, spanLength);
+                    }
+                    _bufferPos = spanLim;
+                    _isPreviousByte = false;
+                    isAnyInput = true;
+                }
+            }
             inByte = readByte();
 
             if (-1 == inByte) {
                 // End of file, no more input.
-                if (0 == readByteBuffer.position()) {
+                if (!isAnyInput) {
                     // There no input, return null.
                     return null;
                 } else {
@@ -91,17 +188,6 @@ readLoop:
                 isAfterEscape = true;
             } else {
                 try {
-                    if (!readByteBuffer.hasRemaining()) {
-                        // No more space, double buffer size before adding.
-                        ByteBuffer newReadByteBuffer =
-                            ByteBuffer.allocate(readByteBuffer.capacity() * 2);
-
-                        // Flip read buffer from input to output.
-                        readByteBuffer.flip();
-                        newReadByteBuffer.put(readByteBuffer);
-
-                        readByteBuffer = newReadByteBuffer;
-                    }
                     if (isAfterEscape) {
                         // Character after escape must always be
                         // accepted. This also means that acceptor must
@@ -116,7 +202,11 @@ readLoop:
                       || (TokenIndicator.IS_END == tokenIndicator) )
                     {
                         // Byte is part of current token.
-                        readByteBuffer.put((byte)inByte);
+                        if (null != readByteBuffer) {
+                            readByteBuffer = ensureRemaining(readByteBuffer, 1);
+                            readByteBuffer.put((byte)inByte);
+                        }
+                        isAnyInput = true;
                     }
                 } catch (BufferOverflowException ex) {
                     // Should never happen because available space is checked
@@ -134,10 +224,13 @@ readLoop:
                     // of token, but had to be stored for parsing. Remove
                     // them before breaking out of read loop by setting read
                     // position back before end token
-                    readByteBuffer
-                        .position(
-                            readByteBuffer.position() - acceptor.getEndLength()
-                        );
+                    if (null != readByteBuffer) {
+                        readByteBuffer
+                            .position(
+                                readByteBuffer.position()
+                                    - acceptor.getEndLength()
+                            );
+                    }
                     break readLoop;
                 }
                 isAfterEscape = false;
@@ -149,12 +242,15 @@ readLoop:
             unreadByte(inByte);
         }
 
+        if (null == readByteBuffer) {
+            return DISCARDED_TOKEN;
+        }
         _avgTokenByteCnt =
             (_avgTokenByteCnt + readByteBuffer.position() + 1) / 2;
 
         // Flip ByteBuffer from input to output.
         readByteBuffer.flip();
-        return new HICPHeaderValue(readByteBuffer);
+        return readByteBuffer;
     }
 
     /**
@@ -170,6 +266,15 @@ readLoop:
         acceptor.reset();
 readLoop:
         for (;;) {
+            if (fillBufferIfEmpty()) {
+                // Skip bytes that can't end the token.
+                final int spanLim =
+                    acceptor.scan(_buffer, _bufferPos, _bufferLim);
+                if (spanLim > _bufferPos) {
+                    _bufferPos = spanLim;
+                    _isPreviousByte = false;
+                }
+            }
             inByte = readByte();
 
             if (-1 == inByte) {
@@ -192,87 +297,308 @@ readLoop:
         }
     }
 
+    /**
+        Make sure the token buffer has space for at least the given
+        number of bytes, doubling its size as needed.
+     */
+    protected static ByteBuffer ensureRemaining(
+        ByteBuffer readByteBuffer, int length
+    ) {
+        if (length <= readByteBuffer.remaining()) {
+            return readByteBuffer;
+        }
+        int newCapacity = readByteBuffer.capacity() * 2;
+        while (newCapacity - readByteBuffer.position() < length) {
+            newCapacity *= 2;
+        }
+        final ByteBuffer newReadByteBuffer = ByteBuffer.allocate(newCapacity);
+
+        // Flip read buffer from input to output.
+        readByteBuffer.flip();
+        newReadByteBuffer.put(readByteBuffer);
+
+        return newReadByteBuffer;
+    }
+
+    /**
+        If all buffered input has been processed, read as much as is
+        available (blocking until there is at least one byte) into the
+        buffer. Returns false at end of input.
+     */
+    protected boolean fillBufferIfEmpty()
+        throws IOException
+    {
+        if (_bufferPos < _bufferLim) {
+            return true;
+        }
+        if (_isBufferShared) {
+            _buffer = new byte[_buffer.length];
+            _isBufferShared = false;
+        }
+        final int readCnt = _in.read(_buffer, 0, _buffer.length);
+        if (readCnt <= 0) {
+            return false;
+        }
+        _bufferPos = 0;
+        _bufferLim = readCnt;
+        return true;
+    }
+
     protected int readByte()
         throws IOException
     {
-        if (_isPreviousByte) {
-            _isPreviousByte = false;
-            return _previousByte;
-        } else {
-            return _in.read();
+        if (!fillBufferIfEmpty()) {
+            return -1;
         }
+        _isPreviousByte = false;
+        return _buffer[_bufferPos++] & 0xff;
     }
 
+    /**
+        Step back over the byte just returned by readByte(), so it will
+        be returned again. Only valid once after each readByte().
+     */
     protected void unreadByte(int inByte)
     {
         _isPreviousByte = true;
-        _previousByte = inByte;
+        _bufferPos--;
+    }
+
+    /**
+        Read a value of exactly the given length. If the value is long
+        and already in the buffer, it's returned as a slice of the buffer
+        without copying. Otherwise it's copied into its own array, with
+        any part not already buffered read directly into that array.
+     */
+    protected ByteBuffer readValueBuffer(final int length)
+        throws IOException
+    {
+        final int bufferedLength = _bufferLim - _bufferPos;
+        _isPreviousByte = false;
+
+        if ((SLICE_MIN_LENGTH <= length) && (length <= bufferedLength)) {
+            final ByteBuffer valueBuffer =
+                ByteBuffer.wrap(_buffer, _bufferPos, length).slice();
+            _bufferPos += length;
+            _isBufferShared = true;
+
+            return valueBuffer;
+        }
+        final byte[] valueBytes = new byte[length];
+        final int copyLength = Math.min(length, bufferedLength);
+
+        System.arraycopy(_buffer, _bufferPos, valueBytes, 0, copyLength);
+        _bufferPos += copyLength;
+
+        // A single read() may return less than asked for, keep reading
+        // until the whole value has been read.
+        int valuePos = copyLength;
+        while (valuePos < length) {
+            final int readCnt =
+                _in.read(valueBytes, valuePos, length - valuePos);
+            if (readCnt < 0) {
+                throw new EOFException(
+                    "End of input after " + valuePos + " of " + length
+                    + " value bytes"
+                );
+            }
+            valuePos += readCnt;
+        }
+        return ByteBuffer.wrap(valueBytes);
+    }
+
+    /**
+        Read past the given number of bytes.
+     */
+    protected void skipBytes(final int length)
+        throws IOException
+    {
+        _isPreviousByte = false;
+
+        int skipLength = length;
+        while (0 < skipLength) {
+            if (!fillBufferIfEmpty()) {
+                throw new EOFException(
+                    "End of input after " + (length - skipLength) + " of "
+                    + length + " value bytes"
+                );
+            }
+            final int bufferedLength =
+                Math.min(skipLength, _bufferLim - _bufferPos);
+            _bufferPos += bufferedLength;
+            skipLength -= bufferedLength;
+        }
+    }
+
+    protected static boolean isMatch(
+        final ByteBuffer token, final byte[] matchBytes
+    ) {
+        if ((null == token) || (token.remaining() != matchBytes.length)) {
+            return false;
+        }
+        final int pos = token.arrayOffset() + token.position();
+        return Arrays.equals(
+            token.array(), pos, pos + matchBytes.length,
+            matchBytes, 0, matchBytes.length
+        );
+    }
+
+    protected static byte[] toBytes(final ByteBuffer token) {
+        final byte[] bytes = new byte[token.remaining()];
+        token.get(bytes);
+        return bytes;
+    }
+
+    /**
+        Parse a non-negative decimal length, with an optional "+".
+        Returns -1 if not valid.
+     */
+    protected static int parseLength(final ByteBuffer token) {
+        if ((null == token) || !token.hasRemaining()) {
+            return -1;
+        }
+        final byte[] array = token.array();
+        int pos = token.arrayOffset() + token.position();
+        final int lim = token.arrayOffset() + token.limit();
+
+        if ('+' == array[pos]) {
+            pos++;
+            if (pos == lim) {
+                return -1;
+            }
+        }
+        long length = 0;
+        for (; pos < lim; pos++) {
+            final int digit = array[pos] - '0';
+            if ((digit < 0) || (9 < digit)) {
+                return -1;
+            }
+            length = length * 10 + digit;
+            if (Integer.MAX_VALUE < length) {
+                return -1;
+            }
+        }
+        return (int)length;
     }
 
     public HICPHeader readHeader()
         throws IOException
     {
+        return readHeader(false);
+    }
+
+    /**
+        Read one header. Header names are matched against HeaderEnum
+        without decoding them. If isSkipUnknown is true, a header which
+        doesn't match is read past without keeping its value, and
+        SKIPPED_HEADER is returned.
+     */
+    protected HICPHeader readHeader(final boolean isSkipUnknown)
+        throws IOException
+    {
+        final HeaderEnum headerEnum;
         final String headerName;
-        HICPHeaderValue headerValue = EMPTY_HEADER_VALUE;
         {
-            final HICPHeaderValue headerNameToken =
-                readToken(_headerNameAcceptor, null);
+            final ByteBuffer headerNameToken =
+                readTokenBuffer(_headerNameAcceptor, false);
 
             if (null == headerNameToken) {
                 // End of file.
                 return null;
             }
-            headerName = headerNameToken.getString();
+            if (!headerNameToken.hasRemaining()) {
+                // Blank line - no name or field.
+                return new HICPHeader();
+            }
+            headerEnum = getHeaderEnum(headerNameToken);
+            if (null != headerEnum) {
+                headerName = headerEnum.name;
+            } else if (isSkipUnknown) {
+                headerName = null;
+            } else {
+                headerName = new HICPHeaderValue(headerNameToken).getString();
+            }
         }
-        if ("".equals(headerName)) {
-            // Blank line - no name or field.
-            return new HICPHeader();
+        final boolean isDiscarding = (null == headerEnum) && isSkipUnknown;
+
+        final ByteBuffer valueBuffer = readHeaderValueBuffer(isDiscarding);
+        if (isDiscarding) {
+            return SKIPPED_HEADER;
+        }
+        final HICPHeaderValue headerValue =
+            (null != valueBuffer)
+                ? new HICPHeaderValue(valueBuffer)
+                : EMPTY_HEADER_VALUE;
+        if (null != headerEnum) {
+            return new HICPHeader(headerEnum, headerValue);
         }
+        return new HICPHeader(headerName, headerValue);
+    }
+
+    /**
+        Match header name token against HeaderEnum without decoding it.
+        Returns null if not known.
+     */
+    protected static HeaderEnum getHeaderEnum(
+        final ByteBuffer headerNameToken
+    ) {
+        return HeaderEnum.getEnum(
+            headerNameToken.array(),
+            headerNameToken.arrayOffset() + headerNameToken.position(),
+            headerNameToken.remaining()
+        );
+    }
+
+    /**
+        Read header separator and value, after the header name. Returns
+        null if there's no valid value (header value is ""), or if
+        isDiscarding is true.
+     */
+    protected ByteBuffer readHeaderValueBuffer(final boolean isDiscarding)
+        throws IOException
+    {
+        ByteBuffer valueBuffer = null;
         {
-            final HICPHeaderValue separatorToken =
-                readToken(_separatorAcceptor, "");
+            final ByteBuffer separatorToken =
+                readTokenBuffer(_separatorAcceptor, false);
 
-            if ("".equals(separatorToken.getString())) {
+            if ((null == separatorToken) || !separatorToken.hasRemaining()) {
                 // No separator, no header value. For now, leave value as "".
-            } else if ("::".equals(separatorToken.getString())) {
-                final String terminationCriterion =
-                    readToken(_termCritAcceptor, "").getString();
-                if ("length".equals(terminationCriterion)) {
+            } else if (isMatch(separatorToken, MULTI_SEPARATOR_BYTES)) {
+                final ByteBuffer terminationCriterion =
+                    readTokenBuffer(_termCritAcceptor, false);
+                if (isMatch(terminationCriterion, LENGTH_BYTES)) {
                     // Skip the "=".
                     readByte();
                     // Read the rest of the line and parse an integer
                     // out of it.
-                    final String lengthString =
-                        readToken(_headerValueAcceptor, "0").getString();
-                    try {
-                        final int length = Integer.parseInt(lengthString);
-
+                    final int length =
+                        parseLength(
+                            readTokenBuffer(_headerValueAcceptor, false)
+                        );
+                    if (0 <= length) {
                         // EOL should have been accepted already (no
                         // unread bytes waiting for readByte()), so
-                        // just fill a buffer from the input stream.
-                        final byte[] valueBytes = new byte[length];
-
-                        _in.read(valueBytes);
-
-                        final ByteBuffer valueBuffer =
-                            ByteBuffer.wrap(valueBytes);
-                        headerValue =
-                            new HICPHeaderValue(valueBuffer);
+                        // the value starts at the current position.
+                        if (isDiscarding) {
+                            skipBytes(length);
+                        } else {
+                            valueBuffer = readValueBuffer(length);
+                        }
 
                         // Read final EOL and discard.
                         skipToken(_headerValueAcceptor);
-
-                    } catch (NumberFormatException ex) {
-                        // No valid length, leave header value as null
+                    } else {
+                        // No valid length, leave header value as
                         // default.  Don't try and read the body because
                         // there's no way to know how long it is.
                     }
-                } else if ("boundary".equals(terminationCriterion)) {
+                } else if (isMatch(terminationCriterion, BOUNDARY_BYTES)) {
                     // Skip the "=".
                     readByte();
 
                     byte[] termSeqBytes =
-                        readToken(_termSeqAcceptor, "").getBytes();
+                        toBytes(readTokenBuffer(_termSeqAcceptor, false));
 
                     if ( (2 <= termSeqBytes.length)
                       && ('\r' == termSeqBytes[0])
@@ -294,7 +620,7 @@ readLoop:
                            Value is "one\r\ntwo" (no terminating "\r\n")
                          */
                         final byte[] appendTermSeqBytes =
-                            readToken(_termSeqAcceptor, "").getBytes();
+                            toBytes(readTokenBuffer(_termSeqAcceptor, false));
                         final byte[] newTermSeqBytes =
                             new byte[
                                 termSeqBytes.length + appendTermSeqBytes.length
@@ -311,10 +637,13 @@ readLoop:
                         );
                         termSeqBytes = newTermSeqBytes;
                     }
-                    headerValue =
-                        readToken(
-                            new BoundaryAcceptor(termSeqBytes), ""
+                    final ByteBuffer valueToken =
+                        readTokenBuffer(
+                            new BoundaryAcceptor(termSeqBytes), isDiscarding
                         );
+                    if ((null != valueToken) && !isDiscarding) {
+                        valueBuffer = valueToken;
+                    }
                 } else {
                     // Not valid termination criterion. Should skip to
                     // end, if not at EOL (true if "=" was the last
@@ -323,308 +652,119 @@ readLoop:
                         skipToken(_headerValueAcceptor);
                     }
                 }
-            } else if (":".equals(separatorToken.getString())) {
-                headerValue = readToken(_headerValueAcceptor, "");
+            } else if (isMatch(separatorToken, SINGLE_SEPARATOR_BYTES)) {
+                final ByteBuffer valueToken =
+                    readTokenBuffer(_headerValueAcceptor, isDiscarding);
+                if ((null != valueToken) && !isDiscarding) {
+                    valueBuffer = valueToken;
+                }
             } else {
                 // No separator, skip to the end of the line.
                 skipToken(_headerValueAcceptor);
             }
         }
-        return new HICPHeader(headerName, headerValue);
+        return valueBuffer;
     }
 
     public HeaderMap readHeaderMap()
         throws IOException
     {
         final HeaderMap headerMap = new HeaderMap();
+        boolean isAnyHeader = false;
         for (;;) {
-            final HICPHeader header = readHeader();
+            final HICPHeader header = readHeader(true);
 
+            if ((null == header) && !isAnyHeader) {
+                // End of input, not just end of message.
+                throw new EOFException("End of input");
+            }
             if ((null == header) || (null == header.name)) {
                 // End of headers, end of message.
                 return headerMap;
             }
-            final HeaderEnum headerEnum = HeaderEnum.getEnum(header.name);
-
-            if (null != headerEnum) {
-                headerMap.put(headerEnum, header);
+            isAnyHeader = true;
+            // Unknown headers have no HeaderEnum, and are ignored.
+            if (null != header.headerEnum) {
+                headerMap.put(header.headerEnum, header);
             }
         }
     }
 
-    public Message readMessage()
+    /**
+        Read headers of one message into an IndexedHeaderMap, with all
+        values copied into a single array. Unknown headers are ignored.
+     */
+    public IndexedHeaderMap readIndexedHeaderMap()
         throws IOException
-     {
-        final HeaderMap headerMap = readHeaderMap();
-        return new Message(headerMap);
-     }
-}
-
-class TokenIndicator {
-    public static final TokenIndicator IS_PART = new TokenIndicator();
-    public static final TokenIndicator IS_END = new TokenIndicator();
-    public static final TokenIndicator NOT_PART = new TokenIndicator();
-    public static final TokenIndicator IS_INCOMPLETE = new TokenIndicator();
-}
-
-abstract class Acceptor {
-    protected Acceptor() {
-    }
-
-    public abstract TokenIndicator accept(byte inByte);
-
-    public abstract void reset();
-
-    public abstract int getEndLength();
-}
-
-/** Can be ": " or ":: ". This could be more specific, but for now will
-   also accept ":::: ". */
-class SeparatorAcceptor
-    extends Acceptor
-{
-    private static final Logger LOGGER =
-        Logger.getLogger( SeparatorAcceptor.class.getName() );
-
-    protected static final int MATCH_NONE = 1;
-    protected static final int MATCH_COLON = 2;
-    protected static final int MATCH_SPACE = 3;
-
-    protected int _state = MATCH_NONE;
-
-    public SeparatorAcceptor() {
-    }
-
-    public TokenIndicator accept(byte inByte) {
-        switch (_state) {
-          case MATCH_NONE:
-            if (':' == inByte) {
-                _state = MATCH_COLON;
-                return TokenIndicator.IS_PART;
-            } else {
-                return TokenIndicator.NOT_PART;
-            }
-          case MATCH_COLON:
-            if (':' == inByte) {
-                return TokenIndicator.IS_PART;
-            } else if (' ' == inByte) {
-                _state = MATCH_SPACE;
-                return TokenIndicator.IS_END;
-            } else {
-                return TokenIndicator.NOT_PART;
-            }
-          case MATCH_SPACE:
-          default:
-            return TokenIndicator.NOT_PART;
-        }
-    }
-
-    public void reset() {
-        _state = MATCH_NONE;
-    }
-
-    public int getEndLength() {
-        return 1;
-    }
-}
-
-class TokenAcceptor
-    extends Acceptor
-{
-    private static final Logger LOGGER =
-        Logger.getLogger( TokenAcceptor.class.getName() );
-
-    protected static final int MATCH_NONE = 1;
-    protected static final int MATCH_CR = 2;
-    protected static final int MATCH_LF = 3;
-
-    protected int _state = MATCH_NONE;
-
-    protected final char _separator;
-    protected final boolean _excludeSeparator;
-
-    public TokenAcceptor() {
-        _separator = '\0';
-        _excludeSeparator = false;
-    }
-
-    public TokenAcceptor(char separator) {
-        _separator = separator;
-        _excludeSeparator = true;
-    }
-
-    public TokenIndicator accept(byte inByte) {
-        // Exclude separator in all states.
-        if (_excludeSeparator && (_separator == (char)inByte)) {
-            return TokenIndicator.NOT_PART;
+    {
+        if (null == _indexBytes) {
+            _indexBytes = ByteBuffer.allocate(1024);
+            _indexTable = new int[IndexedHeaderMap.ENTRY_SIZE * 16];
         }
+        _indexBytes.clear();
 
-        switch (_state) {
-          case MATCH_NONE:
-            if ('\r' == (char)inByte) {
-                _state = MATCH_CR;
-            }
-            return TokenIndicator.IS_PART;
+        int entryCnt = 0;
+        boolean isAnyHeader = false;
+headerLoop:
+        for (;;) {
+            final ByteBuffer headerNameToken =
+                readTokenBuffer(_headerNameAcceptor, false);
 
-          case MATCH_CR:
-            if ('\n' == (char)inByte) {
-                _state = MATCH_LF;
-                return TokenIndicator.IS_END;
+            if (null == headerNameToken) {
+                if (!isAnyHeader) {
+                    // End of input, not just end of message.
+                    throw new EOFException("End of input");
+                }
+                break headerLoop;
             }
-            return TokenIndicator.IS_PART;
-
-          default:
-            if (Character.isISOControl((char)inByte)) {
-                return TokenIndicator.NOT_PART;
-            } else {
-                return TokenIndicator.IS_PART;
+            if (!headerNameToken.hasRemaining()) {
+                // Blank line, end of message.
+                break headerLoop;
             }
-        }
-    }
-
-    public void reset() {
-        _state = MATCH_NONE;
-    }
-
-    public int getEndLength() {
-        return 2;
-    }
-}
-
-/*
-    Terminal sequance is "\r\n" (CR LF).
- */
-class TermSeqAcceptor
-    extends Acceptor
-{
-    private static final Logger LOGGER =
-        Logger.getLogger( TermSeqAcceptor.class.getName() );
-
-    protected static final int MATCH_NONE = 1;
-    protected static final int MATCH_CR = 2;
-    protected static final int MATCH_LF = 3;
-
-    protected int _state = MATCH_NONE;
+            isAnyHeader = true;
 
-    public TermSeqAcceptor() {
-    }
-
-    public TokenIndicator accept(byte inByte) {
-        switch (_state) {
-          case MATCH_NONE:
-            if ('\r' == (char)inByte) {
-                _state = MATCH_CR;
-            }
-            return TokenIndicator.IS_PART;
+            final HeaderEnum headerEnum = getHeaderEnum(headerNameToken);
 
-          case MATCH_CR:
-            if ('\n' == (char)inByte) {
-                _state = MATCH_LF;
+            // Value is copied below, so doesn't need the input buffer kept.
+            final boolean wasBufferShared = _isBufferShared;
+            final ByteBuffer valueBuffer =
+                readHeaderValueBuffer(null == headerEnum);
+            if (null == headerEnum) {
+                continue headerLoop;
             }
-            return TokenIndicator.IS_END;
-
-          case MATCH_LF:
-            return TokenIndicator.NOT_PART;
-
-          default:
-            return TokenIndicator.NOT_PART;
-        }
-    }
-
-    public void reset() {
-        _state = MATCH_NONE;
-    }
-
-    public int getEndLength() {
-        return 0;
-    }
-}
-
-class BoundaryAcceptor
-    extends Acceptor
-{
-    private static final Logger LOGGER =
-        Logger.getLogger( BoundaryAcceptor.class.getName() );
-
-    protected int _matchIdx = 0;
-
-    final protected byte[] _termSeq;
-    final protected int[] _failIdx;
-
-    public BoundaryAcceptor(byte[] termSeq) {
-        _termSeq = termSeq;
-        if (0 == termSeq.length) {
-            // No boundary, so nothing to accept.
-            _failIdx = null;
-            return;
-        }
-
-        // Build the _failIdx values. This is a Knuth-Morris-Pratt state
-        // machine. Briefly, consider pattern "ababc" and text
-        // "abababc".
-        // The pattern will have a matched part and an unchecked part:
-        // "abab""c".
-        // The text will have a checked part and an unchecked part:
-        // "abab""abc".
-        // At that point, the match fails, so the matched part of the
-        // pattern should be rolled back two positions, to "ab""abc", so
-        // that nothing will be missed. Now the unchecked part of the
-        // pattern ("abc") will match the unchecked text ("abc").
-        // This code computes the indices used for rolling back the
-        // matches when a mismatch occurs and stores them in the
-        // _failIdx array.
-        _failIdx = new int[_termSeq.length];
-        _failIdx[0] = -1;
-        for (int scanFailIdx = 1;scanFailIdx < _failIdx.length;scanFailIdx++) {
-            int prevFailIdx = _failIdx[scanFailIdx - 1];
-findFailIdxLoop:
-            for (;;) {
-                if (-1 == prevFailIdx) {
-                    break findFailIdxLoop;
-                }
-                if (_termSeq[prevFailIdx] == _termSeq[scanFailIdx - 1])
-                {
-                    break findFailIdxLoop;
-                }
-                prevFailIdx = _failIdx[prevFailIdx];
+            final int tableIdx = entryCnt * IndexedHeaderMap.ENTRY_SIZE;
+            if (_indexTable.length < tableIdx + IndexedHeaderMap.ENTRY_SIZE) {
+                _indexTable =
+                    Arrays.copyOf(_indexTable, _indexTable.length * 2);
             }
-            _failIdx[scanFailIdx] = prevFailIdx + 1;
-        }
-    }
-
-    public TokenIndicator accept(final byte inByte) {
-        if (0 == _termSeq.length) {
-            // No sequence to accept.
-            return TokenIndicator.IS_END;
-        }
-        while (_matchIdx > -1) {
-            if (inByte == _termSeq[_matchIdx]) {
-                // Matched a byte in termination sequence.
-                _matchIdx++;
-                if (_matchIdx < _termSeq.length) {
-                    // More bytes left to match in termination sequence.
-                    return TokenIndicator.IS_PART;
-                } else {
-                    // Last byte of termination sequence.
-                    return TokenIndicator.IS_END;
-                }
-            } else {
-                // Didn't match, adjust _matchIdx for next try. See
-                // comments in constructor for details.
-                _matchIdx = _failIdx[_matchIdx];
+            final int length =
+                (null != valueBuffer) ? valueBuffer.remaining() : 0;
+
+            _indexTable[tableIdx + IndexedHeaderMap.ORDINAL_IDX] =
+                headerEnum.ordinal();
+            _indexTable[tableIdx + IndexedHeaderMap.OFFSET_IDX] =
+                _indexBytes.position();
+            _indexTable[tableIdx + IndexedHeaderMap.LENGTH_IDX] = length;
+
+            if (0 < length) {
+                _indexBytes = ensureRemaining(_indexBytes, length);
+                _indexBytes.put(valueBuffer);
             }
+            _isBufferShared = wasBufferShared;
+            entryCnt++;
         }
-        // Start over at beginning of termination sequence.
-        _matchIdx = 0;
-        return TokenIndicator.IS_PART;
-    }
-
-    public void reset() {
-        _matchIdx = 0;
+        return new IndexedHeaderMap(
+            Arrays.copyOf(_indexBytes.array(), _indexBytes.position()),
+            Arrays.copyOf(_indexTable, entryCnt * IndexedHeaderMap.ENTRY_SIZE),
+            entryCnt
+        );
     }
 
-    public int getEndLength() {
-        return _termSeq.length;
-    }
+    public Message readMessage()
+        throws IOException
+     {
+        final HeaderMap headerMap =
+            _isIndexed ? readIndexedHeaderMap() : readHeaderMap();
+        return new Message(headerMap);
+     }
 }
-
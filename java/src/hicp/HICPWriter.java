@@ -2,6 +2,8 @@ package hicp;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -10,30 +12,128 @@ import hicp.HICPHeader;
 import hicp.message.HeaderEnum;
 import hicp.message.Message;
 
+/**
+    Encodes messages into a reusable buffer, which is written to the
+    output stream by flush().
+ */
 public class HICPWriter
 {
     private static final Logger LOGGER =
         Logger.getLogger( HICPWriter.class.getName() );
 
     public static final byte[] EOL = {'\r', '\n'};
+
+    // Header names and separators never change, so only encode them once.
+    protected static final byte[][] HEADER_NAME_BYTES;
+    static {
+        final HeaderEnum[] headerEnums = HeaderEnum.values();
+        HEADER_NAME_BYTES = new byte[headerEnums.length][];
+        for (final HeaderEnum headerEnum : headerEnums) {
+            HEADER_NAME_BYTES[headerEnum.ordinal()] =
+                headerEnum.name.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+    protected static final byte[] VALUE_SEPARATOR =
+        ": ".getBytes(StandardCharsets.US_ASCII);
+    protected static final byte[] LENGTH_SEPARATOR =
+        ":: length=".getBytes(StandardCharsets.US_ASCII);
+    protected static final byte[] BOUNDARY_SEPARATOR =
+        ":: boundary=\r\n--\r\n".getBytes(StandardCharsets.US_ASCII);
+    protected static final byte[] BOUNDARY_END =
+        "\r\n--".getBytes(StandardCharsets.US_ASCII);
+
     protected final OutputStream _out;
 
+    protected ByteBuffer _buffer = ByteBuffer.allocate(8 * 1024);
+
+    // Reused for each message written.
+    protected final HeaderMap _headerMap = new HeaderMap();
+
     public HICPWriter(final OutputStream out) {
         _out = out;
     }
 
+    protected void ensureRemaining(final int length) {
+        if (length <= _buffer.remaining()) {
+            return;
+        }
+        int newCapacity = _buffer.capacity() * 2;
+        while (newCapacity - _buffer.position() < length) {
+            newCapacity *= 2;
+        }
+        final ByteBuffer newBuffer = ByteBuffer.allocate(newCapacity);
+
+        _buffer.flip();
+        newBuffer.put(_buffer);
+
+        _buffer = newBuffer;
+    }
+
+    public HICPWriter writeBytes(final byte[] bytes) {
+        ensureRemaining(bytes.length);
+        _buffer.put(bytes);
+        return this;
+    }
+
+    public HICPWriter writeBytes(final ByteBuffer bytes) {
+        ensureRemaining(bytes.remaining());
+        _buffer.put(bytes);
+        return this;
+    }
+
     public HICPWriter writeString(final String s)
         throws IOException
     {
-        final HICPHeaderValue writeHV = new HICPHeaderValue(s);
-        _out.write(writeHV.getBytes());
+        final int length = s.length();
+        ensureRemaining(length);
+
+        // Most strings are ASCII, which can be copied a char at a time.
+        final byte[] array = _buffer.array();
+        int pos = _buffer.arrayOffset() + _buffer.position();
+        for (int charIdx = 0; charIdx < length; charIdx++) {
+            final char c = s.charAt(charIdx);
+            if (0x80 <= c) {
+                // Not ASCII, encode the whole string instead.
+                return writeBytes(s.getBytes(StandardCharsets.UTF_8));
+            }
+            array[pos++] = (byte)c;
+        }
+        _buffer.position(pos - _buffer.arrayOffset());
+        return this;
+    }
+
+    public HICPWriter writeInt(final int i) {
+        if (i < 0) {
+            return writeBytes(
+                Integer.toString(i).getBytes(StandardCharsets.US_ASCII)
+            );
+        }
+        // Count digits, then fill them in from the end.
+        int digitCnt = 1;
+        for (int rest = i / 10; 0 != rest; rest /= 10) {
+            digitCnt++;
+        }
+        ensureRemaining(digitCnt);
+
+        final byte[] array = _buffer.array();
+        final int pos = _buffer.arrayOffset() + _buffer.position();
+        int rest = i;
+        for (int digitIdx = pos + digitCnt - 1; digitIdx >= pos; digitIdx--) {
+            array[digitIdx] = (byte)('0' + (rest % 10));
+            rest /= 10;
+        }
+        _buffer.position(_buffer.position() + digitCnt);
         return this;
     }
 
     public HICPWriter writeHeader(final HICPHeader header)
         throws IOException
     {
-        writeString(header.name);
+        if (null != header.headerEnum) {
+            writeBytes(HEADER_NAME_BYTES[header.headerEnum.ordinal()]);
+        } else {
+            writeString(header.name);
+        }
 
         // If string or bytes contain EOL, then must be multiline. Either with
         // a boundary or length specifier. Boundary is more human readable if
@@ -41,41 +141,51 @@ public class HICPWriter
         final HICPHeaderValue value = header.value;
         if (value.isBinary) {
             // Use "length" specifier.
-            final byte[] bytes = value.getBytes();
-            writeString(":: length=" + bytes.length);
-            _out.write(bytes);
+            final ByteBuffer bytes = value.getByteBuffer();
+            writeBytes(LENGTH_SEPARATOR);
+            writeInt(bytes.remaining());
+            writeBytes(EOL);
+            writeBytes(bytes);
         } else {
             final String valueStr = value.getString();
             if (-1 == valueStr.indexOf("\r\n")) {
                 // Value can be sent on a single line.
-                writeString(": " + valueStr);
+                writeBytes(VALUE_SEPARATOR);
+                writeString(valueStr);
             } else {
                 // Value has a CR LF, then send in multiple lines usnr
                 // "boundary".
-                writeString(":: boundary=\r\n--\r\n");
+                writeBytes(BOUNDARY_SEPARATOR);
 
                 // Escape boundary ("\r\n--"), and single ESC.
-                final String esc_value =
-                    valueStr.replace("\033", "\033\033");
-                    valueStr.replace("\r\n--", "\033\r\n--");
-                writeString(valueStr);
+                final String escValue =
+                    valueStr
+                        .replace("\033", "\033\033")
+                        .replace("\r\n--", "\033\r\n--");
+                writeString(escValue);
 
                 // Write out terminator sequence
-                writeString("\r\n--");
+                writeBytes(BOUNDARY_END);
             }
         }
-        _out.write(EOL);
+        writeBytes(EOL);
         return this;
     }
 
+    /**
+        Encode message into the buffer. Nothing is written to the output
+        stream until flush() is called.
+     */
     public HICPWriter writeMessage(final Message m)
         throws IOException
     {
-        final HeaderMap headerMap = m.getHeaders();
-        // First header has to be event or command, so get and remove that
-        // before iterating over other headers.
+        _headerMap.clear();
+        m.updateHeaderMap(_headerMap);
+
+        // First header has to be event or command, so write that before
+        // iterating over other headers.
         {
-            final HICPHeader h = headerMap.remove(HeaderEnum.EVENT);
+            final HICPHeader h = _headerMap.getHeader(HeaderEnum.EVENT);
             if (null != h) {
                 writeHeader(h);
             }
@@ -83,17 +193,49 @@ public class HICPWriter
         // What if there are both? Problem exists elsewhere, just output both
         // here.
         {
-            final HICPHeader h = headerMap.remove(HeaderEnum.COMMAND);
+            final HICPHeader h = _headerMap.getHeader(HeaderEnum.COMMAND);
             if (null != h) {
                 writeHeader(h);
             }
         }
-        for (HICPHeader h : headerMap.values()) {
-            writeHeader(h);
+        for (HICPHeader h : _headerMap.values()) {
+            if ( (HeaderEnum.EVENT != h.headerEnum)
+              && (HeaderEnum.COMMAND != h.headerEnum) )
+            {
+                writeHeader(h);
+            }
         }
         // End with blank line.
-        _out.write(EOL);
+        writeBytes(EOL);
+
+        // Don't hold on to message contents.
+        _headerMap.clear();
+
         return this;
     }
-}
 
+    /** Number of bytes encoded but not yet written. */
+    public int getBufferedLength() {
+        return _buffer.position();
+    }
+
+    /**
+        Write everything encoded so far to the output stream with a
+        single write.
+     */
+    public HICPWriter flush()
+        throws IOException
+    {
+        try {
+            if (0 < _buffer.position()) {
+                _out.write(
+                    _buffer.array(), _buffer.arrayOffset(), _buffer.position()
+                );
+            }
+            _out.flush();
+        } finally {
+            _buffer.clear();
+        }
+        return this;
+    }
+}
@@ -1,15 +1,74 @@
 package hicp;
 
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import hicp.message.HeaderEnum;
-import hicp.message.Message;
+import hicp.message.Tokenizer;
 
+/**
+    Headers of a message, one slot for each HeaderEnum, indexed by
+    ordinal. Iteration is in HeaderEnum order.
+ */
 public class HeaderMap {
-    private final Map<HeaderEnum, HICPHeader> _headerMap = new HashMap<>();
+    private static final HeaderEnum[] HEADER_ENUMS = HeaderEnum.values();
+
+    private final HICPHeader[] _headers = new HICPHeader[HEADER_ENUMS.length];
+    private int _size = 0;
+
+    private final Collection<HICPHeader> _values =
+        new AbstractCollection<HICPHeader>() {
+            public Iterator<HICPHeader> iterator() {
+                return new ValueIterator();
+            }
+
+            public int size() {
+                return _size;
+            }
+        };
+
+    private class ValueIterator
+        implements Iterator<HICPHeader>
+    {
+        private int _nextIdx = findFrom(0);
+        private int _lastIdx = -1;
+
+        private int findFrom(int idx) {
+            while ((idx < _headers.length) && (null == _headers[idx])) {
+                idx++;
+            }
+            return idx;
+        }
+
+        public boolean hasNext() {
+            return _nextIdx < _headers.length;
+        }
+
+        public HICPHeader next() {
+            if (_nextIdx >= _headers.length) {
+                throw new NoSuchElementException();
+            }
+            _lastIdx = _nextIdx;
+            _nextIdx = findFrom(_nextIdx + 1);
+
+            return _headers[_lastIdx];
+        }
+
+        public void remove() {
+            if (-1 == _lastIdx) {
+                throw new IllegalStateException();
+            }
+            _headers[_lastIdx] = null;
+            _size--;
+            _lastIdx = -1;
+        }
+    }
 
     public HeaderMap put(
         final HeaderEnum e,
@@ -19,7 +78,11 @@ public class HeaderMap {
         if (null == e || null == h) {
             return this;
         }
-        _headerMap.put(e, h);
+        final int idx = e.ordinal();
+        if (null == _headers[idx]) {
+            _size++;
+        }
+        _headers[idx] = h;
 
         return this;
     }
@@ -39,7 +102,10 @@ public class HeaderMap {
     }
 
     public HICPHeader getHeader(final HeaderEnum e) {
-        return _headerMap.get(e);
+        if (null == e) {
+            return null;
+        }
+        return _headers[e.ordinal()];
     }
 
     public boolean has(final HeaderEnum e) {
@@ -66,22 +132,49 @@ public class HeaderMap {
         if (null == retIntString) {
             return defInt;
         }
-        try {
-            return Integer.parseInt(retIntString);
-        } catch (NumberFormatException ex) {
-            return defInt;
+        return Tokenizer.parseInt(retIntString, defInt);
+    }
+
+    /**
+        Put all headers of otherMap into this map, replacing any with the
+        same HeaderEnum.
+     */
+    public HeaderMap putAll(final HeaderMap otherMap) {
+        for (final HeaderEnum e : HEADER_ENUMS) {
+            final HICPHeader h = otherMap.getHeader(e);
+            if (null != h) {
+                put(e, h);
+            }
         }
+        return this;
     }
 
     public HICPHeader remove(final HeaderEnum e) {
         if (null == e) {
             return null;
         }
-        return _headerMap.remove(e);
+        final int idx = e.ordinal();
+        final HICPHeader h = _headers[idx];
+        if (null != h) {
+            _headers[idx] = null;
+            _size--;
+        }
+        return h;
+    }
+
+    public HeaderMap clear() {
+        if (0 < _size) {
+            Arrays.fill(_headers, null);
+            _size = 0;
+        }
+        return this;
     }
 
+    /**
+        View of headers in this map, in HeaderEnum order.
+     */
     public Collection<HICPHeader> values() {
-        return _headerMap.values();
+        return _values;
     }
 
     /**
@@ -93,7 +186,11 @@ public class HeaderMap {
             // Empty set.
             return Set.of();
         }
-        final String[] sSplit = Message.splitWith(Message.COMMA_SPLITTER, s);
-        return Set.of(sSplit);
+        final Tokenizer sTokenizer = new Tokenizer(',', s);
+        final List<String> sList = new ArrayList<>();
+        while (sTokenizer.nextNonTrailing()) {
+            sList.add(sTokenizer.toString());
+        }
+        return Set.copyOf(sList);
     }
 }
@@ -0,0 +1,184 @@
+package hicp;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import hicp.message.HeaderEnum;
+
+/**
+    Headers of a received message, with all values in a single byte array
+    and a table of (HeaderEnum ordinal, offset, length) for each header.
+    Strings are only decoded for headers which are asked for, and HICPHeader
+    objects are only made when getHeader() or values() is called.
+
+    Headers put into this map are kept by HeaderMap, and replace any
+    header in the table for the same HeaderEnum.
+ */
+public class IndexedHeaderMap
+    extends HeaderMap
+{
+    private static final HeaderEnum[] HEADER_ENUMS = HeaderEnum.values();
+
+    protected static final int ORDINAL_IDX = 0;
+    protected static final int OFFSET_IDX = 1;
+    protected static final int LENGTH_IDX = 2;
+    protected static final int ENTRY_SIZE = 3;
+
+    // Marks a table entry which was removed.
+    protected static final int REMOVED_ORDINAL = -1;
+
+    protected final byte[] _bytes;
+    protected final int[] _table;
+    protected final int _entryCnt;
+
+    // Decoded values by ordinal, made when first needed.
+    protected String[] _strings = null;
+
+    /**
+        table has ENTRY_SIZE ints for each of entryCnt headers, giving
+        HeaderEnum ordinal, offset into bytes, and length of the value.
+        Neither is copied.
+     */
+    public IndexedHeaderMap(
+        final byte[] bytes, final int[] table, final int entryCnt
+    ) {
+        _bytes = bytes;
+        _table = table;
+        _entryCnt = entryCnt;
+    }
+
+    /**
+        Index into table of the entry for e, or -1 if none. If a header
+        was repeated, the last one is used, same as HeaderMap.put().
+     */
+    protected int findEntry(final HeaderEnum e) {
+        if (null == e) {
+            return -1;
+        }
+        final int ordinal = e.ordinal();
+        for (int entryIdx = (_entryCnt - 1) * ENTRY_SIZE;
+            entryIdx >= 0;
+            entryIdx -= ENTRY_SIZE)
+        {
+            if (ordinal == _table[entryIdx + ORDINAL_IDX]) {
+                return entryIdx;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public HICPHeader getHeader(final HeaderEnum e) {
+        final HICPHeader h = super.getHeader(e);
+        if (null != h) {
+            return h;
+        }
+        final int entryIdx = findEntry(e);
+        if (-1 == entryIdx) {
+            return null;
+        }
+        final int length = _table[entryIdx + LENGTH_IDX];
+
+        // Empty value is "", same as HICPReader.readHeader().
+        final HICPHeaderValue value =
+            (0 < length)
+                ? new HICPHeaderValue(
+                    ByteBuffer.wrap(
+                        _bytes, _table[entryIdx + OFFSET_IDX], length
+                    ).slice()
+                )
+                : new HICPHeaderValue();
+
+        // Keep it in the map so it's only made once.
+        final HICPHeader newHeader = new HICPHeader(e, value);
+        super.put(e, newHeader);
+
+        return newHeader;
+    }
+
+    @Override
+    public boolean has(final HeaderEnum e) {
+        return (null != super.getHeader(e)) || (-1 != findEntry(e));
+    }
+
+    @Override
+    public String getString(final HeaderEnum e) {
+        if (null != super.getHeader(e)) {
+            return super.getString(e);
+        }
+        final int entryIdx = findEntry(e);
+        if (-1 == entryIdx) {
+            return null;
+        }
+        if (null == _strings) {
+            _strings = new String[HEADER_ENUMS.length];
+        }
+        final int ordinal = e.ordinal();
+        if (null == _strings[ordinal]) {
+            _strings[ordinal] =
+                HICPHeaderValue.decodeString(
+                    ByteBuffer.wrap(
+                        _bytes,
+                        _table[entryIdx + OFFSET_IDX],
+                        _table[entryIdx + LENGTH_IDX]
+                    )
+                );
+        }
+        return _strings[ordinal];
+    }
+
+    @Override
+    public HICPHeader remove(final HeaderEnum e) {
+        final HICPHeader h = getHeader(e);
+        super.remove(e);
+
+        // Remove all entries, so none are found after this.
+        for (int entryIdx = findEntry(e);
+            -1 != entryIdx;
+            entryIdx = findEntry(e))
+        {
+            _table[entryIdx + ORDINAL_IDX] = REMOVED_ORDINAL;
+        }
+        if ((null != e) && (null != _strings)) {
+            _strings[e.ordinal()] = null;
+        }
+        return h;
+    }
+
+    @Override
+    public HeaderMap clear() {
+        super.clear();
+        for (int entryIdx = 0;
+            entryIdx < _entryCnt * ENTRY_SIZE;
+            entryIdx += ENTRY_SIZE)
+        {
+            _table[entryIdx + ORDINAL_IDX] = REMOVED_ORDINAL;
+        }
+        _strings = null;
+
+        return this;
+    }
+
+    /**
+        View of headers in this map, in HeaderEnum order. All headers in
+        the table are made into HICPHeader objects first.
+     */
+    @Override
+    public Collection<HICPHeader> values() {
+        for (int entryIdx = 0;
+            entryIdx < _entryCnt * ENTRY_SIZE;
+            entryIdx += ENTRY_SIZE)
+        {
+            final int ordinal = _table[entryIdx + ORDINAL_IDX];
+            if (REMOVED_ORDINAL != ordinal) {
+                getHeader(HEADER_ENUMS[ordinal]);
+            }
+        }
+        return super.values();
+    }
+
+    /** Total bytes of all header values. */
+    public int getByteLength() {
+        return _bytes.length;
+    }
+}
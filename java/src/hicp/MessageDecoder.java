@@ -0,0 +1,128 @@
+package hicp;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hicp.message.Message;
+
+/**
+    Decodes received messages with a pool of threads, then passes them to
+    the controller from this thread in the order they were received.
+ */
+public class MessageDecoder
+    extends Thread
+{
+    private static final Logger LOGGER =
+        Logger.getLogger( MessageDecoder.class.getName() );
+
+    public static final int DEFAULT_QUEUE_SIZE = 256;
+
+    // Marks the end of input, after which the controller is closed.
+    protected static final Future<Message> END =
+        CompletableFuture.completedFuture(null);
+
+    protected final Controller _controller;
+    protected final ExecutorService _pool;
+
+    // Messages being decoded, in the order they were received.
+    protected final BlockingQueue<Future<Message>> _queue;
+
+    public MessageDecoder(final Controller controller, final int threadCnt) {
+        this(controller, threadCnt, DEFAULT_QUEUE_SIZE);
+    }
+
+    public MessageDecoder(
+        final Controller controller, final int threadCnt, final int queueSize
+    ) {
+        super("HICP dispatcher");
+
+        _controller = controller;
+
+        final AtomicInteger threadNum = new AtomicInteger();
+        _pool =
+            Executors.newFixedThreadPool(
+                Math.max(1, threadCnt),
+                (r) -> {
+                    final Thread t =
+                        new Thread(
+                            r, "HICP decoder " + threadNum.incrementAndGet()
+                        );
+                    t.setDaemon(true);
+                    return t;
+                }
+            );
+        _queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+
+        setDaemon(true);
+        this.start();
+    }
+
+    /**
+        Start decoding message. Waits if too many messages are waiting to
+        be passed to the controller.
+     */
+    public MessageDecoder decode(final Message m)
+        throws InterruptedException
+    {
+        _queue.put(_pool.submit(() -> decodeMessage(m)));
+        return this;
+    }
+
+    protected static Message decodeMessage(final Message m) {
+        try {
+            m.decode();
+        } catch (RuntimeException ex) {
+            // Leave the rest to be parsed (and fail again) when used.
+            LOGGER.log(Level.FINE, "Decode failed: " + ex.toString());
+        }
+        return m;
+    }
+
+    /**
+        No more messages, close the controller after the messages already
+        queued. Waits if the queue is full, so none are dropped.
+     */
+    public MessageDecoder close() {
+        try {
+            _queue.put(END);
+        } catch (InterruptedException ex) {
+            // Being disposed, queued messages aren't wanted.
+            this.interrupt();
+            Thread.currentThread().interrupt();
+        }
+        return this;
+    }
+
+    public void run() {
+        try {
+            while (true) {
+                final Future<Message> f = _queue.take();
+                if (END == f) {
+                    break;
+                }
+                try {
+                    _controller.receivedMessage(f.get());
+                } catch (ExecutionException ex) {
+                    LOGGER.log(Level.WARNING, ex.toString());
+                }
+            }
+        } catch (InterruptedException ex) {
+            // Quietly quit the loop.
+        }
+        _pool.shutdownNow();
+        _controller.closed();
+    }
+
+    /** Number of messages waiting to be passed to the controller. */
+    public int getQueueDepth() {
+        return _queue.size();
+    }
+}
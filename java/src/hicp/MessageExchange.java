@@ -12,7 +12,10 @@ import hicp.message.Message;
 /**
     Starts a thread which converts characters from an input stream into
     message. Another thread can retrieve messages as needed. Also sends
-    messages to an output stream.
+    messages to an output stream, through a separate writer thread.
+
+    Received messages can be decoded by a pool of threads, and passed to
+    the controller in order by a dispatcher thread.
  */
 public class MessageExchange
     extends Thread
@@ -21,13 +24,16 @@ public class MessageExchange
         Logger.getLogger( MessageExchange.class.getName() );
 
     protected HICPReader _in;
-    protected HICPWriter _out;
+    protected MessageWriter _out;
     protected Controller _controller;
 
+    // Null if messages are passed to the controller by this thread.
+    protected MessageDecoder _decoder;
+
     /*
         Written by send (GUI event thread), read by input thread (this).
      */
-    protected Message lastMessage;
+    protected volatile Message lastMessage;
 
     /**
         If the Java runtime doesn't support the UTF8 encoding, the
@@ -38,41 +44,75 @@ public class MessageExchange
     )
         throws UnsupportedEncodingException
     {
-        _in = new HICPReader(in);
-        _out = new HICPWriter(out);
+        this(
+            in, out, controller, MessageWriter.DEFAULT_QUEUE_SIZE, 0, 0, false
+        );
+    }
+
+    /**
+        Send queue size and linger time are passed to the MessageWriter.
+        If decodeThreadCnt is more than 0, received messages are decoded by
+        that many threads before being passed to the controller. If
+        isIndexed is true, each received message keeps its header values in
+        a single array (see IndexedHeaderMap).
+     */
+    public MessageExchange(
+        InputStream in, OutputStream out, Controller controller,
+        int sendQueueSize, int sendLingerMillis, int decodeThreadCnt,
+        boolean isIndexed
+    )
+        throws UnsupportedEncodingException
+    {
+        _in = new HICPReader(in).setIndexed(isIndexed);
+        _out = new MessageWriter(out, sendQueueSize, sendLingerMillis);
         _controller = controller;
+        _decoder =
+            (0 < decodeThreadCnt)
+                ? new MessageDecoder(controller, decodeThreadCnt)
+                : null;
 
         // Start this up as a thread to read messages.
         this.start();
     }
 
     public void run() {
+        final MessageDecoder decoder = _decoder;
         try {
             while (null != _in) {
                 final Message message = _in.readMessage();
 
                 if (null != message) { 
-                    _controller.receivedMessage(message);
+                    if (null != decoder) {
+                        decoder.decode(message);
+                    } else {
+                        _controller.receivedMessage(message);
+                    }
                 }
             }
-        } catch (IOException ex) {
+        } catch (IOException | InterruptedException ex) {
             // Quietly quit the loop.
         }
-        _controller.closed();
+        if (null != decoder) {
+            // Closes controller after the last message.
+            decoder.close();
+        } else {
+            _controller.closed();
+        }
     }
 
     /*
-        Typically called from GUI event thread.
+        Typically called from GUI event thread. Message is queued for the
+        writer thread, so this doesn't wait for the output stream.
      */
-    public synchronized MessageExchange send(Message m) {
+    public MessageExchange send(Message m) {
         if (null == m) {
             return this;
         }
-        try {
-            _out.writeMessage(m);
-        } catch (IOException ex) {
-            LOGGER.log(Level.WARNING, ex.toString());
+        final MessageWriter out = _out;
+        if (null == out) {
+            return this;
         }
+        out.send(m);
         lastMessage = m;
 
         return this;
@@ -82,7 +122,18 @@ public class MessageExchange
         return lastMessage;
     }
 
+    public MessageWriter getWriter() {
+        return _out;
+    }
+
+    public MessageDecoder getDecoder() {
+        return _decoder;
+    }
+
     public MessageExchange dispose() {
+        if (null != _out) {
+            _out.dispose();
+        }
         _in = null;
         _out = null;
 
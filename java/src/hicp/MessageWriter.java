@@ -0,0 +1,199 @@
+package hicp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hicp.message.Message;
+import hicp.message.event.EventInfo;
+
+/**
+    Thread which writes messages to an output stream, so callers (such as
+    the GUI event thread) don't wait for the stream. Messages are queued,
+    and whatever is queued when the thread gets to it is encoded into one
+    buffer and written with a single write.
+ */
+public class MessageWriter
+    extends Thread
+{
+    private static final Logger LOGGER =
+        Logger.getLogger( MessageWriter.class.getName() );
+
+    public static final int DEFAULT_QUEUE_SIZE = 256;
+
+    // Write the batch without waiting for more messages once it's this
+    // big.
+    public static final int FLUSH_SIZE = 64 * 1024;
+
+    // Longest time dispose() waits for queued messages to be written.
+    public static final int DISPOSE_TIMEOUT_MILLIS = 2000;
+
+    // Marks the end of messages to write, after which the thread stops.
+    protected static final Message END = new Message(EventInfo.Event.CLOSE);
+
+    protected final HICPWriter _writer;
+    protected final BlockingQueue<Message> _queue;
+    protected final long _lingerNanos;
+
+    protected volatile long _lastFlushNanos = 0;
+    protected volatile long _maxFlushNanos = 0;
+    protected volatile int _lastBatchSize = 0;
+
+    public MessageWriter(final OutputStream out) {
+        this(out, DEFAULT_QUEUE_SIZE, 0);
+    }
+
+    /**
+        lingerMillis is how long to wait for more messages after the
+        first message of a batch, 0 to write as soon as the queue is
+        empty.
+     */
+    public MessageWriter(
+        final OutputStream out, final int queueSize, final int lingerMillis
+    ) {
+        super("HICP writer");
+
+        _writer = new HICPWriter(out);
+        _queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        _lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMillis));
+
+        setDaemon(true);
+        this.start();
+    }
+
+    /**
+        Queue message to be written. Only waits if the queue is full.
+     */
+    public MessageWriter send(final Message m) {
+        if (null == m) {
+            return this;
+        }
+        if (!_queue.offer(m)) {
+            LOGGER.log(Level.WARNING, "Send queue full, waiting");
+            try {
+                _queue.put(m);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return this;
+    }
+
+    public void run() {
+        try {
+            boolean isRunning = true;
+            while (isRunning) {
+                Message m = _queue.take();
+                final long lingerEnd = System.nanoTime() + _lingerNanos;
+                int batchSize = 0;
+
+batchLoop:
+                while (null != m) {
+                    if (END == m) {
+                        // Write what's been batched, then stop.
+                        isRunning = false;
+                        break batchLoop;
+                    }
+                    try {
+                        _writer.writeMessage(m);
+                    } catch (IOException ex) {
+                        // Not expected, messages are only encoded into a
+                        // buffer here.
+                        LOGGER.log(Level.WARNING, ex.toString());
+                    }
+                    batchSize++;
+
+                    if (FLUSH_SIZE <= _writer.getBufferedLength()) {
+                        break batchLoop;
+                    }
+                    m = _queue.poll();
+                    if ((null == m) && (0 < _lingerNanos)) {
+                        final long waitNanos = lingerEnd - System.nanoTime();
+                        if (0 < waitNanos) {
+                            m = _queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                        }
+                    }
+                }
+                flush(batchSize);
+            }
+        } catch (InterruptedException ex) {
+            // Quietly quit the loop.
+        }
+    }
+
+    protected void flush(final int batchSize) {
+        final long startNanos = System.nanoTime();
+        try {
+            _writer.flush();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, ex.toString());
+        }
+
+        final long flushNanos = System.nanoTime() - startNanos;
+        _lastFlushNanos = flushNanos;
+        if (_maxFlushNanos < flushNanos) {
+            _maxFlushNanos = flushNanos;
+        }
+        _lastBatchSize = batchSize;
+    }
+
+    /** Number of messages waiting to be written. */
+    public int getQueueDepth() {
+        return _queue.size();
+    }
+
+    /** Time taken by the most recent write, in nanoseconds. */
+    public long getLastFlushNanos() {
+        return _lastFlushNanos;
+    }
+
+    /** Longest time taken by a write so far, in nanoseconds. */
+    public long getMaxFlushNanos() {
+        return _maxFlushNanos;
+    }
+
+    /** Number of messages in the most recent write. */
+    public int getLastBatchSize() {
+        return _lastBatchSize;
+    }
+
+    /**
+        Stop after writing the messages already queued, and wait for that
+        (up to DISPOSE_TIMEOUT_MILLIS), so they're written before the
+        stream is closed or the program exits.
+     */
+    public MessageWriter dispose() {
+        if (Thread.currentThread() == this) {
+            // Can't wait for itself.
+            _queue.offer(END);
+            return this;
+        }
+        final long deadlineNanos =
+            System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(DISPOSE_TIMEOUT_MILLIS);
+        try {
+            if (_queue.offer(
+                    END, DISPOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS
+                ))
+            {
+                final long waitMillis =
+                    TimeUnit.NANOSECONDS.toMillis(
+                        deadlineNanos - System.nanoTime()
+                    );
+                join(Math.max(1, waitMillis));
+            } else {
+                LOGGER.log(Level.WARNING, "Send queue full, not waiting");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (isAlive()) {
+            LOGGER.log(Level.WARNING, "Queued messages not all written");
+        }
+        return this;
+    }
+}
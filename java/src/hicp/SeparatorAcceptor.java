@@ -0,0 +1,54 @@
+package hicp;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** Can be ": " or ":: ". This could be more specific, but for now will
+   also accept ":::: ". */
+class SeparatorAcceptor
+    extends Acceptor
+{
+    private static final Logger LOGGER =
+        Logger.getLogger( SeparatorAcceptor.class.getName() );
+
+    protected static final int MATCH_NONE = 1;
+    protected static final int MATCH_COLON = 2;
+    protected static final int MATCH_SPACE = 3;
+
+    protected int _state = MATCH_NONE;
+
+    public SeparatorAcceptor() {
+    }
+
+    public TokenIndicator accept(byte inByte) {
+        switch (_state) {
+          case MATCH_NONE:
+            if (':' == inByte) {
+                _state = MATCH_COLON;
+                return TokenIndicator.IS_PART;
+            } else {
+                return TokenIndicator.NOT_PART;
+            }
+          case MATCH_COLON:
+            if (':' == inByte) {
+                return TokenIndicator.IS_PART;
+            } else if (' ' == inByte) {
+                _state = MATCH_SPACE;
+                return TokenIndicator.IS_END;
+            } else {
+                return TokenIndicator.NOT_PART;
+            }
+          case MATCH_SPACE:
+          default:
+            return TokenIndicator.NOT_PART;
+        }
+    }
+
+    public void reset() {
+        _state = MATCH_NONE;
+    }
+
+    public int getEndLength() {
+        return 1;
+    }
+}
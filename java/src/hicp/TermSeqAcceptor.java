@@ -0,0 +1,66 @@
+package hicp;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+    Terminal sequance is "\r\n" (CR LF).
+ */
+class TermSeqAcceptor
+    extends Acceptor
+{
+    private static final Logger LOGGER =
+        Logger.getLogger( TermSeqAcceptor.class.getName() );
+
+    protected static final int MATCH_NONE = 1;
+    protected static final int MATCH_CR = 2;
+    protected static final int MATCH_LF = 3;
+
+    protected int _state = MATCH_NONE;
+
+    public TermSeqAcceptor() {
+    }
+
+    public TokenIndicator accept(byte inByte) {
+        switch (_state) {
+          case MATCH_NONE:
+            if ('\r' == (char)inByte) {
+                _state = MATCH_CR;
+            }
+            return TokenIndicator.IS_PART;
+
+          case MATCH_CR:
+            if ('\n' == (char)inByte) {
+                _state = MATCH_LF;
+            }
+            return TokenIndicator.IS_END;
+
+          case MATCH_LF:
+            return TokenIndicator.NOT_PART;
+
+          default:
+            return TokenIndicator.NOT_PART;
+        }
+    }
+
+    public int scan(byte[] buffer, int pos, int lim) {
+        if (MATCH_NONE != _state) {
+            return pos;
+        }
+        for (; pos < lim; pos++) {
+            final byte inByte = buffer[pos];
+            if (('\r' == inByte) || (0x1b == inByte)) {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    public void reset() {
+        _state = MATCH_NONE;
+    }
+
+    public int getEndLength() {
+        return 0;
+    }
+}
@@ -0,0 +1,84 @@
+package hicp;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class TokenAcceptor
+    extends Acceptor
+{
+    private static final Logger LOGGER =
+        Logger.getLogger( TokenAcceptor.class.getName() );
+
+    protected static final int MATCH_NONE = 1;
+    protected static final int MATCH_CR = 2;
+    protected static final int MATCH_LF = 3;
+
+    protected int _state = MATCH_NONE;
+
+    protected final char _separator;
+    protected final boolean _excludeSeparator;
+
+    public TokenAcceptor() {
+        _separator = '\0';
+        _excludeSeparator = false;
+    }
+
+    public TokenAcceptor(char separator) {
+        _separator = separator;
+        _excludeSeparator = true;
+    }
+
+    public TokenIndicator accept(byte inByte) {
+        // Exclude separator in all states.
+        if (_excludeSeparator && (_separator == (char)inByte)) {
+            return TokenIndicator.NOT_PART;
+        }
+
+        switch (_state) {
+          case MATCH_NONE:
+            if ('\r' == (char)inByte) {
+                _state = MATCH_CR;
+            }
+            return TokenIndicator.IS_PART;
+
+          case MATCH_CR:
+            if ('\n' == (char)inByte) {
+                _state = MATCH_LF;
+                return TokenIndicator.IS_END;
+            }
+            return TokenIndicator.IS_PART;
+
+          default:
+            if (Character.isISOControl((char)inByte)) {
+                return TokenIndicator.NOT_PART;
+            } else {
+                return TokenIndicator.IS_PART;
+            }
+        }
+    }
+
+    public int scan(byte[] buffer, int pos, int lim) {
+        if (MATCH_NONE != _state) {
+            return pos;
+        }
+        final byte separatorByte = (byte)_separator;
+        for (; pos < lim; pos++) {
+            final byte inByte = buffer[pos];
+            if ( ('\r' == inByte)
+              || (0x1b == inByte)
+              || (_excludeSeparator && (separatorByte == inByte)) )
+            {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    public void reset() {
+        _state = MATCH_NONE;
+    }
+
+    public int getEndLength() {
+        return 2;
+    }
+}
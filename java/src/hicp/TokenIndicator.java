@@ -0,0 +1,8 @@
+package hicp;
+
+class TokenIndicator {
+    public static final TokenIndicator IS_PART = new TokenIndicator();
+    public static final TokenIndicator IS_END = new TokenIndicator();
+    public static final TokenIndicator NOT_PART = new TokenIndicator();
+    public static final TokenIndicator IS_INCOMPLETE = new TokenIndicator();
+}
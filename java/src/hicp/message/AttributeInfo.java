@@ -58,73 +58,98 @@ public class AttributeInfo {
     public AttributeInfo(final String attributeStr)
         throws AttributeException
     {
-        // For each string, split parts by ":"
-        final String[] attributeFields =
-            Message.splitWith(Message.COLON_SPLITTER, attributeStr);
+        this(parse(attributeStr, 0, attributeStr.length()), attributeStr);
+    }
 
-        // Must have at least two ":", non empty attribute. Ignore
-        // additional ":" separators.
-        if (3 > attributeFields.length) {
+    private AttributeInfo(
+        final AttributeInfo parsedAttributeInfo,
+        final String attributeStr
+    )
+        throws AttributeException
+    {
+        if (null == parsedAttributeInfo) {
             throw new AttributeException(
-                "Attribute name, position, or range list missing: \""
-                    + attributeStr
-                    + "\""
+                "Invalid attribute: \"" + attributeStr + "\""
             );
         }
-        name = attributeFields[0];
-        if ("".equals(name)) {
-            throw new AttributeException(
-                "Attribute type missing: \"" + attributeStr + "\""
-            );
+        name = parsedAttributeInfo.name;
+        attributeName = parsedAttributeInfo.attributeName;
+        position = parsedAttributeInfo.position;
+        rangeList = parsedAttributeInfo.rangeList;
+        hasValues = parsedAttributeInfo.hasValues;
+    }
+
+    /**
+        Parse "<name>: <position>: <range list>" between start and end of
+        s. Returns null if name, position, or range list is missing or
+        invalid.
+     */
+    public static AttributeInfo parse(
+        final CharSequence s, final int start, final int end
+    ) {
+        // Split parts by ":". Must have at least two ":", non empty
+        // attribute. Ignore additional ":" separators.
+        final Tokenizer fieldTokenizer =
+            new Tokenizer(':').reset(s, start, end);
+
+        if (!fieldTokenizer.next() || fieldTokenizer.isEmpty()) {
+            // Attribute type missing.
+            return null;
         }
-        attributeName = AttributeName.getEnum(name);
-        {
-            final String positionStr = attributeFields[1];
-            try {
-                position = Integer.parseInt(positionStr);
-            } catch (NumberFormatException ex) {
-                throw new AttributeException("Invalid position: " + positionStr);
-            }
+        final String newName = fieldTokenizer.toString();
+
+        if (!fieldTokenizer.next()) {
+            return null;
         }
-        // Make list of AttributeRange objects
-        rangeList = new ArrayList<>();
-        {
-            final String rangeListStr = attributeFields[2];
-
-            // Split range list string by "," to get range string list.
-            // Empty range list is allowed.
-            final String[] rangeStrList =
-                Message.splitWith(Message.COMMA_SPLITTER, rangeListStr);
-
-            boolean foundValue = false;
-            for (var rangeStr : rangeStrList) {
-                try {
-                    final var range = new AttributeRange(rangeStr);
-
-                    rangeList.add(range);
-
-                    if (null != range.value) {
-                        foundValue = true;
-                    }
-                } catch (AttributeException ex) {
-                    // Just skip this range - the indexing will be
-                    // messed up, hopefully the user will complain
-                    // and it'll get fixed at the source.
-                }
+        final long newPosition = fieldTokenizer.parseInt();
+        if (Tokenizer.INVALID_INT == newPosition) {
+            return null;
+        }
+        if (!fieldTokenizer.nextNonTrailing()) {
+            // Range list missing.
+            return null;
+        }
+        // Make list of AttributeRange objects from range list split by
+        // ",". Empty range list is allowed.
+        final List<AttributeRange> newRangeList = new ArrayList<>();
+        final Tokenizer rangeTokenizer =
+            new Tokenizer(',').reset(fieldTokenizer);
+
+        boolean foundValue = false;
+        while (rangeTokenizer.nextNonTrailing()) {
+            final AttributeRange range =
+                AttributeRange.parse(
+                    s, rangeTokenizer.getStart(), rangeTokenizer.getEnd()
+                );
+            if (null == range) {
+                // Just skip this range - the indexing will be messed up,
+                // hopefully the user will complain and it'll get fixed at
+                // the source.
+                continue;
+            }
+            newRangeList.add(range);
+
+            if (null != range.value) {
+                foundValue = true;
             }
-            // An attribute with values can specify a default by omitting the
-            // "=value" part. Normally at least one value should be specified,
-            // (or there's no point in sending ranges for an attribute), but
-            // it's still legal to send all ranges as default (e.g. "10, 5, 10"
-            // is the same as "25").
-            // If an attribute is known, use the attribute hasValue info to be
-            // sure. Otherwise, can only guess based on whether any values were
-            // actually found.
-            hasValues =
-                (null != attributeName)
-                    ? attributeName.hasValues
-                    : foundValue;
         }
+        // An attribute with values can specify a default by omitting the
+        // "=value" part. Normally at least one value should be specified,
+        // (or there's no point in sending ranges for an attribute), but
+        // it's still legal to send all ranges as default (e.g. "10, 5, 10"
+        // is the same as "25").
+        // If an attribute is known, use the attribute hasValue info to be
+        // sure. Otherwise, can only guess based on whether any values were
+        // actually found.
+        final AttributeName newAttributeName = AttributeName.getEnum(newName);
+        final boolean newHasValues =
+            (null != newAttributeName)
+                ? newAttributeName.hasValues
+                : foundValue;
+
+        return new AttributeInfo(
+            newName, (int)newPosition, newRangeList, newHasValues
+        );
     }
 
     public AttributeInfo(
@@ -140,6 +165,17 @@ public class AttributeInfo {
         rangeList = newRangeList;
     }
 
+    private AttributeInfo(
+        final String newName,
+        final int newPosition,
+        final List<AttributeRange> newRangeList,
+        final boolean newHasValues
+    ) {
+        this(newName, newPosition, newRangeList);
+
+        hasValues = newHasValues;
+    }
+
     public AttributeInfo(final AttributeInfo otherAttributeInfo) {
         name = otherAttributeInfo.name;
         attributeName = otherAttributeInfo.attributeName;
@@ -252,6 +288,10 @@ public class AttributeInfo {
         if (null == otherAttributeInfo) {
             return false;
         }
+        if (this == otherAttributeInfo) {
+            // Unchanged attribute info is reused, don't compare ranges.
+            return true;
+        }
         if (!name.equals(otherAttributeInfo.name)) {
             return false;
         }
@@ -54,21 +54,20 @@ public class AttributeListInfo
             return;
         }
         // Split string by line
-        final String[] attributeStrList =
-            Message.splitWith(Message.LINE_SPLITTER, attributeListStr);
-        if (0 == attributeStrList.length) {
-            // No attributes.
-            return;
-        }
-        for (var attributeStr : attributeStrList) {
-            try {
-                final var guiTextAttributeInfo =
-                    new AttributeInfo(attributeStr);
-
+        final Tokenizer lineTokenizer =
+            Tokenizer.lines().reset(attributeListStr);
+
+        while (lineTokenizer.nextNonTrailing()) {
+            final var guiTextAttributeInfo =
+                AttributeInfo.parse(
+                    attributeListStr,
+                    lineTokenizer.getStart(),
+                    lineTokenizer.getEnd()
+                );
+            if (null != guiTextAttributeInfo) {
                 attributeList.add(guiTextAttributeInfo);
-            } catch (AttributeException ex) {
-                // Just skip, fix the source if the user complains.
             }
+            // Otherwise just skip, fix the source if the user complains.
         }
     }
 
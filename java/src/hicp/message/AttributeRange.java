@@ -11,45 +11,48 @@ public class AttributeRange {
     public AttributeRange(final String rangeStr)
         throws AttributeException
     {
-        final String newValue;
-        final int newLength;
-
-        // Split by = to convert to lwngth and value.
-        final String[] rangeStrList =
-            Message.splitWith(Message.KEY_VALUE_SPLITTER, rangeStr);
+        this(parse(rangeStr, 0, rangeStr.length()), rangeStr);
+    }
 
-        if (0 == rangeStrList.length) {
-            // Not a valid attribute range
-            throw new AttributeException("No range values");
+    private AttributeRange(
+        final AttributeRange parsedAttributeRange,
+        final String rangeStr
+    )
+        throws AttributeException
+    {
+        if (null == parsedAttributeRange) {
+            throw new AttributeException("Invalid range: " + rangeStr);
         }
+        length = parsedAttributeRange.length;
+        value = parsedAttributeRange.value;
+        _hashCode = parsedAttributeRange._hashCode;
+    }
 
-        if (1 <= rangeStrList.length) {
-            final String lengthStr = rangeStrList[0];
-            try {
-                newLength = Integer.parseInt(lengthStr);
-            } catch (NumberFormatException ex) {
-                throw new AttributeException("Invalid length: " + lengthStr);
-            }
-        } else {
-            throw new AttributeException("Range has no length: " +rangeStr);
-        }
+    /**
+        Parse "<length>" or "<length>=<value>" between start and end of s.
+        Returns null if not a valid range.
+     */
+    public static AttributeRange parse(
+        final CharSequence s, final int start, final int end
+    ) {
+        // Split by = to convert to length and value.
+        final Tokenizer rangeTokenizer =
+            new Tokenizer('=').reset(s, start, end);
 
-        if (2 <= rangeStrList.length) {
-            newValue = rangeStrList[1];
-        } else {
-            newValue = null;
+        if (!rangeTokenizer.nextNonTrailing()) {
+            // No range values.
+            return null;
         }
+        final long newLength = rangeTokenizer.parseInt();
+        if (Tokenizer.INVALID_INT == newLength) {
+            return null;
+        }
+        final String newValue =
+            rangeTokenizer.nextNonTrailing()
+                ? rangeTokenizer.toString()
+                : null;
 
-        // Duplicates plain constructor, keep them synchronized.
-        // Duplication needed because this() must be called first in a
-        // constructor, but parameters aren't available until here.
-        length = newLength;
-        value = newValue;
-
-        _hashCode =
-            Arrays.hashCode(
-                new int[] { length, (null == value) ? 0 : value.hashCode() }
-            );
+        return new AttributeRange((int)newLength, newValue);
     }
 
     public AttributeRange(
@@ -1,8 +1,10 @@
 package hicp.message;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public enum HeaderEnum {
     COMMAND("command"),  // Always first for commands.
@@ -13,9 +15,12 @@ public enum HeaderEnum {
     CATEGORY("category"),
     COMPONENT("component"),
     CONTENT("content"),
+    CONTENT_ACTIONS("content-actions"),
     EVENTS("events"),
+    FEATURES("features"),
     HEIGHT("height"),
     ID("id"),
+    ITEM_ACTIONS("item-actions"),
     ITEMS("items"),
     METHOD("method"),
     MODE("mode"),
@@ -32,6 +37,7 @@ public enum HeaderEnum {
     WIDTH("width");
 
     public final String name;
+    private final byte[] _nameBytes;
 
     private static final Map<String, HeaderEnum> enumMap =
         Arrays.stream(HeaderEnum.values())
@@ -42,12 +48,52 @@ public enum HeaderEnum {
                 )
             );
 
+    // For matching names as bytes, names are grouped by length so only a
+    // few (usually one) have to be compared.
+    private static final int maxNameLength =
+        Arrays.stream(HeaderEnum.values())
+            .mapToInt(e -> e._nameBytes.length)
+            .max()
+            .orElse(0);
+
+    private static final HeaderEnum[][] enumsByLength =
+        IntStream.rangeClosed(0, maxNameLength)
+            .mapToObj(
+                length ->
+                    Arrays.stream(HeaderEnum.values())
+                        .filter(e -> length == e._nameBytes.length)
+                        .toArray(HeaderEnum[]::new)
+            )
+            .toArray(HeaderEnum[][]::new);
+
     HeaderEnum(final String newName) {
         name = newName;
+        _nameBytes = newName.getBytes(StandardCharsets.UTF_8);
     }
 
     public static HeaderEnum getEnum(final String name) {
         return enumMap.get(name);  // null if no match.
     }
+
+    /**
+        Match UTF-8 encoded name without decoding it.
+     */
+    public static HeaderEnum getEnum(
+        final byte[] bytes, final int offset, final int length
+    ) {
+        if (maxNameLength < length) {
+            return null;
+        }
+        for (final HeaderEnum e : enumsByLength[length]) {
+            if (Arrays.equals(
+                    bytes, offset, offset + length,
+                    e._nameBytes, 0, length
+                )
+            ) {
+                return e;
+            }
+        }
+        return null;  // No match.
+    }
 }
 
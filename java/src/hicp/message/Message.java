@@ -84,8 +84,13 @@ public class Message {
         Create a map of headers containing the values of this message.
      */
     public HeaderMap getHeaders() {
-        final HeaderMap headerMap = new HeaderMap();
+        return updateHeaderMap(new HeaderMap());
+    }
 
+    /**
+        Add the values of this message to an existing map of headers.
+     */
+    public HeaderMap updateHeaderMap(final HeaderMap headerMap) {
         if (null != _commandInfo) {
             _commandInfo.updateHeaderMap(headerMap);
         }
@@ -111,6 +116,19 @@ public class Message {
         return _commandInfo;
     }
 
+    /**
+        Parse all parts of this message now, instead of when they're first
+        asked for, so the parsing can be done by a different thread than the
+        one using the message.
+     */
+    public Message decode() {
+        final CommandInfo commandInfo = getCommandInfo();
+        if (null != commandInfo) {
+            commandInfo.decode();
+        }
+        return this;
+    }
+
     public boolean isEvent() {
         if (null == _headerMap.getHeader(HeaderEnum.EVENT)) {
             return false;
@@ -0,0 +1,136 @@
+package hicp.message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+    One entry of a "selected" list: a single item ID, or the items from
+    one ID to another in list order, written "<first>-<last>". An entry
+    starting with "+" or "-" adds to or removes from the previous selection
+    instead of being part of a new one.
+
+    Entries are only parsed this way if the user agent asked for
+    "selection-ranges" when connecting. Otherwise each entry is a plain
+    ID, which might itself start with or contain "-".
+ */
+public class SelectedRange {
+    private static final Logger LOGGER =
+        Logger.getLogger( SelectedRange.class.getName() );
+
+    public static enum Change {
+        SET(""),
+        ADD("+"),
+        REMOVE("-");
+
+        public final String name;
+
+        Change(final String newName) {
+            name = newName;
+        }
+    }
+
+    public final Change change;
+    public final String firstId;
+    public final String lastId;
+
+    public SelectedRange(
+        final Change newChange, final String newFirstId, final String newLastId
+    ) {
+        change = newChange;
+        firstId = newFirstId;
+        lastId = newLastId;
+    }
+
+    public SelectedRange(final Change newChange, final String id) {
+        this(newChange, id, id);
+    }
+
+    /**
+        Parse a "selected" list entry. Returns null if either ID is
+        missing.
+     */
+    public static SelectedRange parse(final String entry) {
+        final Change change;
+        int start = 0;
+        if (entry.startsWith(Change.ADD.name)) {
+            change = Change.ADD;
+            start = 1;
+        } else if (entry.startsWith(Change.REMOVE.name)) {
+            change = Change.REMOVE;
+            start = 1;
+        } else {
+            change = Change.SET;
+        }
+        final int rangeIdx = entry.indexOf('-', start);
+        final String firstId =
+            entry.substring(start, (0 > rangeIdx) ? entry.length() : rangeIdx)
+                .trim();
+        final String lastId =
+            (0 > rangeIdx)
+                ? firstId
+                : entry.substring(rangeIdx + 1).trim();
+
+        if (firstId.isEmpty() || lastId.isEmpty()) {
+            return null;
+        }
+        return new SelectedRange(change, firstId, lastId);
+    }
+
+    /**
+        Parse each entry of a "selected" list as a range or change,
+        skipping any which aren't valid.
+     */
+    public static List<SelectedRange> listFrom(final List<String> selected) {
+        return listFrom(selected, true);
+    }
+
+    /**
+        Entries of a "selected" list. If isRanges is false, each entry is a
+        single ID to select, as in a list without selection ranges.
+     */
+    public static List<SelectedRange> listFrom(
+        final List<String> selected, final boolean isRanges
+    ) {
+        final List<SelectedRange> rangeList =
+            new ArrayList<>(selected.size());
+        for (final var entry : selected) {
+            final SelectedRange range =
+                isRanges
+                    ? parse(entry)
+                    : (entry.isEmpty()
+                        ? null
+                        : new SelectedRange(Change.SET, entry));
+            if (null != range) {
+                rangeList.add(range);
+            } else {
+                LOGGER.log(Level.FINE, "Invalid selected entry: " + entry);
+            }
+        }
+        return rangeList;
+    }
+
+    /**
+        A list with any added or removed entries changes the previous
+        selection, instead of replacing it.
+     */
+    public static boolean isChangeList(final List<SelectedRange> rangeList) {
+        for (final var range : rangeList) {
+            if (Change.SET != range.change) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isRange() {
+        return !firstId.equals(lastId);
+    }
+
+    @Override
+    public String toString() {
+        return change.name
+            + (isRange() ? (firstId + "-" + lastId) : firstId);
+    }
+}
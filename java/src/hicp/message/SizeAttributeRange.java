@@ -1,15 +1,10 @@
 package hicp.message;
 
-import java.util.regex.Pattern;
-
 public class SizeAttributeRange {
     public final int length;
     public final double numerator;
     public final double denominator;
 
-    private static final Pattern SIZE_SPLITTER =
-        Pattern.compile("\\s*/\\s*");
-
     public SizeAttributeRange(
         final int newLength,
         final String value
@@ -23,34 +18,29 @@ public class SizeAttributeRange {
             numerator = denominator = 1.0;
             return;
         }
-        final String[] sizeStringList = 
-            Message.splitWith(SIZE_SPLITTER, value);
-        if (0 == sizeStringList.length) {
+        // Split by "/" into numerator and optional denominator.
+        final Tokenizer sizeTokenizer = new Tokenizer('/', value);
+        if (!sizeTokenizer.nextNonTrailing()) {
             throw new AttributeException("Unrecognized size: " + value);
         }
-        if (1 <= sizeStringList.length) {
-            try {
-                final String numeratorStr = sizeStringList[0];
+        try {
+            final String numeratorStr = sizeTokenizer.toString();
 
-                numerator = Double.parseDouble(numeratorStr);
-            } catch (NumberFormatException ex) {
-                throw new AttributeException("Invalid size value: " + value);
-            }
-        } else {
-            numerator = 1.0;
+            numerator = Double.parseDouble(numeratorStr);
+        } catch (NumberFormatException ex) {
+            throw new AttributeException("Invalid size value: " + value);
         }
-        if (2 <= sizeStringList.length) {
+        if (sizeTokenizer.nextNonTrailing()) {
             try {
-                final String denominatorStr = sizeStringList[1];
+                final String denominatorStr = sizeTokenizer.toString();
 
                 denominator = Double.parseDouble(denominatorStr);
-
-                if (0.0 == denominator) {
-                    throw new AttributeException("Size divided by 0: " + value);
-                }
             } catch (NumberFormatException ex) {
                 throw new AttributeException("Invalid size fraction: " + value);
             }
+            if (0.0 == denominator) {
+                throw new AttributeException("Size divided by 0: " + value);
+            }
         } else {
             denominator = 1.0;
         }
@@ -0,0 +1,300 @@
+package hicp.message;
+
+/**
+    Cursor over the fields of a CharSequence, split by a separator. This
+    gives the same fields as the Message splitters without regex
+    matching, String arrays, or copying: the current field is given as
+    start and end indices into the original sequence, and only turned
+    into a String when asked for.
+
+    A character separator has white space around it removed, like
+    "\\s*:\\s*", so the first field keeps leading white space and the
+    last keeps trailing white space. The line separator is "\r\n", with
+    nothing removed.
+
+    next() gives fields like Pattern.split() with a limit, rest() gives
+    the remaining unsplit text like the last field with a limit, and
+    nextNonTrailing() stops before trailing empty fields, like
+    Message.splitWith() with no limit.
+ */
+public class Tokenizer {
+    // Returned by parseInt() if the text isn't a valid int.
+    public static final long INVALID_INT = Long.MIN_VALUE;
+
+    // Separator for lines, not a valid char separator.
+    protected static final char LINE_SEPARATOR = '\n';
+
+    protected final char _separator;
+
+    protected CharSequence _s = "";
+    protected int _end = 0;
+
+    // Start of next field, past end if there are no more fields.
+    protected int _pos = 1;
+
+    protected int _tokenStart = 0;
+    protected int _tokenEnd = 0;
+
+    public Tokenizer(final char separator) {
+        _separator = separator;
+    }
+
+    public static Tokenizer lines() {
+        return new Tokenizer(LINE_SEPARATOR);
+    }
+
+    public Tokenizer(final char separator, final CharSequence s) {
+        this(separator);
+        reset(s);
+    }
+
+    public Tokenizer reset(final CharSequence s) {
+        return reset(s, 0, s.length());
+    }
+
+    /**
+        Start at the first field of s between start and end.
+     */
+    public Tokenizer reset(
+        final CharSequence s, final int start, final int end
+    ) {
+        _s = s;
+        _end = end;
+        _pos = start;
+        _tokenStart = _tokenEnd = start;
+
+        return this;
+    }
+
+    /** Start the fields of the current field. */
+    public Tokenizer reset(final Tokenizer outer) {
+        return reset(outer._s, outer._tokenStart, outer._tokenEnd);
+    }
+
+    // Same as regex "\s".
+    protected static boolean isWhitespace(final char c) {
+        return (' ' == c) || (('\t' <= c) && (c <= '\r'));
+    }
+
+    protected boolean isLines() {
+        return LINE_SEPARATOR == _separator;
+    }
+
+    /**
+        Returns index of the next separator at or after pos, or end if
+        there is none.
+     */
+    protected int findSeparator(final int pos) {
+        if (isLines()) {
+            for (int idx = pos; idx < _end - 1; idx++) {
+                if (('\r' == _s.charAt(idx)) && ('\n' == _s.charAt(idx + 1))) {
+                    return idx;
+                }
+            }
+            return _end;
+        }
+        for (int idx = pos; idx < _end; idx++) {
+            if (_separator == _s.charAt(idx)) {
+                return idx;
+            }
+        }
+        return _end;
+    }
+
+    /**
+        Move to the next field. Returns false if there are no more.
+     */
+    public boolean next() {
+        if (_pos > _end) {
+            return false;
+        }
+        final int separatorIdx = findSeparator(_pos);
+
+        _tokenStart = _pos;
+        if (separatorIdx == _end) {
+            // Last field.
+            _tokenEnd = _end;
+            _pos = _end + 1;
+            return true;
+        }
+        if (isLines()) {
+            _tokenEnd = separatorIdx;
+            _pos = separatorIdx + 2;
+            return true;
+        }
+        // White space before and after separator isn't part of either
+        // field.
+        int tokenEnd = separatorIdx;
+        while ( (tokenEnd > _tokenStart)
+             && isWhitespace(_s.charAt(tokenEnd - 1)) )
+        {
+            tokenEnd--;
+        }
+        _tokenEnd = tokenEnd;
+
+        int pos = separatorIdx + 1;
+        while ((pos < _end) && isWhitespace(_s.charAt(pos))) {
+            pos++;
+        }
+        _pos = pos;
+
+        return true;
+    }
+
+    /**
+        Move to the next field, unless it and all fields after it are
+        empty. Returns false if there are no more non-trailing fields.
+     */
+    public boolean nextNonTrailing() {
+        if (!next()) {
+            return false;
+        }
+        if ((_tokenStart < _tokenEnd) || !isRestEmpty()) {
+            return true;
+        }
+        // Nothing but empty fields left.
+        _pos = _end + 1;
+        return false;
+    }
+
+    /**
+        True if all fields after the current one are empty (or there are
+        none).
+     */
+    public boolean isRestEmpty() {
+        if (_pos > _end) {
+            return true;
+        }
+        if (isLines()) {
+            for (int idx = _pos; idx < _end; idx += 2) {
+                if ( (idx + 1 >= _end)
+                  || ('\r' != _s.charAt(idx))
+                  || ('\n' != _s.charAt(idx + 1)) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        // White space is only removed next to a separator, so only white
+        // space is a non-empty field.
+        boolean hasSeparator = false;
+        for (int idx = _pos; idx < _end; idx++) {
+            final char c = _s.charAt(idx);
+            if (_separator == c) {
+                hasSeparator = true;
+            } else if (!isWhitespace(c)) {
+                return false;
+            }
+        }
+        return hasSeparator || (_pos == _end);
+    }
+
+    /**
+        Make the rest of the text, without splitting, the current field.
+        Returns false if there is no more text.
+     */
+    public boolean rest() {
+        if (_pos > _end) {
+            return false;
+        }
+        _tokenStart = _pos;
+        _tokenEnd = _end;
+        _pos = _end + 1;
+
+        return true;
+    }
+
+    public CharSequence getSequence() {
+        return _s;
+    }
+
+    public int getStart() {
+        return _tokenStart;
+    }
+
+    public int getEnd() {
+        return _tokenEnd;
+    }
+
+    public boolean isEmpty() {
+        return _tokenStart == _tokenEnd;
+    }
+
+    public boolean isMatch(final String matchStr) {
+        final int length = _tokenEnd - _tokenStart;
+        if (length != matchStr.length()) {
+            return false;
+        }
+        for (int idx = 0; idx < length; idx++) {
+            if (matchStr.charAt(idx) != _s.charAt(_tokenStart + idx)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+        Current field as an int, or INVALID_INT.
+     */
+    public long parseInt() {
+        return parseInt(_s, _tokenStart, _tokenEnd);
+    }
+
+    public int parseInt(final int defaultInt) {
+        final long i = parseInt();
+        return (INVALID_INT != i) ? (int)i : defaultInt;
+    }
+
+    @Override
+    public String toString() {
+        return _s.subSequence(_tokenStart, _tokenEnd).toString();
+    }
+
+    /**
+        Parse decimal int between start and end the same way as
+        Integer.parseInt(), but return INVALID_INT instead of throwing an
+        exception.
+     */
+    public static long parseInt(
+        final CharSequence s, final int start, final int end
+    ) {
+        if ((null == s) || (start >= end)) {
+            return INVALID_INT;
+        }
+        int pos = start;
+        boolean isNegative = false;
+        {
+            final char c = s.charAt(pos);
+            if (('-' == c) || ('+' == c)) {
+                isNegative = ('-' == c);
+                pos++;
+                if (pos == end) {
+                    return INVALID_INT;
+                }
+            }
+        }
+        final long limit =
+            isNegative ? -(long)Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long i = 0;
+        for (; pos < end; pos++) {
+            final int digit = Character.digit(s.charAt(pos), 10);
+            if (digit < 0) {
+                return INVALID_INT;
+            }
+            i = i * 10 + digit;
+            if (i > limit) {
+                return INVALID_INT;
+            }
+        }
+        return isNegative ? -i : i;
+    }
+
+    public static int parseInt(final CharSequence s, final int defaultInt) {
+        if (null == s) {
+            return defaultInt;
+        }
+        final long i = parseInt(s, 0, s.length());
+        return (INVALID_INT != i) ? (int)i : defaultInt;
+    }
+}
@@ -61,6 +61,13 @@ public class CommandInfo {
             );
     }
 
+    /**
+        Headers this command was parsed from.
+     */
+    public HeaderMap getHeaderMap() {
+        return _headerMap;
+    }
+
     public CommandInfo updateHeaderMap(
         final HeaderMap headerMap
     ) {
@@ -75,6 +82,26 @@ public class CommandInfo {
         return this;
     }
 
+    /**
+        Parse the parts used by this command.
+     */
+    public CommandInfo decode() {
+        if (null == command) {
+            return this;
+        }
+        switch (command) {
+          case AUTHENTICATE:
+            getAuthenticateInfo();
+            break;
+          case ADD:
+          case MODIFY:
+          case REMOVE:
+            getItemInfo().decode();
+            break;
+        }
+        return this;
+    }
+
     public AuthenticateInfo getAuthenticateInfo() {
         if (null == _authenticateInfo) {
             _authenticateInfo = new AuthenticateInfo(_headerMap);
@@ -8,6 +8,7 @@ import hicp.HeaderMap;
 import hicp.HICPHeader;
 import hicp.message.HeaderEnum;
 import hicp.message.Message;
+import hicp.message.Tokenizer;
 
 public class ContainedGUIInfo {
     public static class LayoutPair {
@@ -19,30 +20,19 @@ public class ContainedGUIInfo {
             vertical = 0;
         }
 
-        public static int parseIfExists(
-            final String[] intStrArray,
-            final int intToParse
-        ) {
-            if (intToParse >= intStrArray.length) {
-                return 0;
-            }
-            try {
-                return Integer.parseInt(intStrArray[intToParse]);
-            } catch (NumberFormatException ex) {
+        public static int parseIfExists(final Tokenizer intTokenizer) {
+            if (!intTokenizer.next()) {
                 return 0;
             }
+            return intTokenizer.parseInt(0);
         }
 
         public LayoutPair(final String intPairStr) {
-            // Only two values are needed, but if there are more,
-            // shouldn't be appended to the second value by split(), so
-            // split into three - any extra will be separated into third
-            // String that's ignored.
-            final String[] intStrArray =
-                Message.splitWith(Message.COMMA_SPLITTER, intPairStr, 3);
-
-            horizontal = parseIfExists(intStrArray, 0);
-            vertical = parseIfExists(intStrArray, 1);
+            // Only two values are needed, any more are ignored.
+            final Tokenizer intTokenizer = new Tokenizer(',', intPairStr);
+
+            horizontal = parseIfExists(intTokenizer);
+            vertical = parseIfExists(intTokenizer);
         }
 
         public LayoutPair(final int newHorizontal, final int newVertical) {
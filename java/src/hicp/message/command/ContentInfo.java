@@ -7,7 +7,7 @@ import java.util.stream.Collectors;
 
 import hicp.HeaderMap;
 import hicp.message.HeaderEnum;
-import hicp.message.Message;
+import hicp.message.Tokenizer;
 
 public class ContentInfo {
     public static enum Action {
@@ -49,12 +49,13 @@ public class ContentInfo {
         public SetInfo updateHeaderMap(
             final HeaderMap headerMap
         ) {
-            headerMap.putString(
-                HeaderEnum.CONTENT,
-                Action.SET.name + "set:" + text
-            );
+            headerMap.putString(HeaderEnum.CONTENT, toString());
             return this;
         }
+
+        public String toString() {
+            return Action.SET.name + ":" + text;
+        }
     }
 
     public static class AddInfo {
@@ -67,34 +68,40 @@ public class ContentInfo {
         public AddInfo(final String contentInfoStr)
             throws ParseException
         {
-            final String[] contentSplit =
-                Message.splitWith(Message.COLON_SPLITTER, contentInfoStr, 2);
+            final Tokenizer contentTokenizer =
+                new Tokenizer(':', contentInfoStr);
 
-            // Needs at least 2 results.
-            if (contentSplit.length < 2) {
+            // Needs <position>, then the rest is <text>.
+            if (!contentTokenizer.next()) {
+                throw new ParseException(
+                        "Expected add:<position>:<text>, missing <position> or <text>", 0
+                    );
+            }
+            final long newPosition = contentTokenizer.parseInt();
+            if (!contentTokenizer.rest()) {
                 throw new ParseException(
                         "Expected add:<position>:<text>, missing <position> or <text>", 0
                     );
             }
-            try {
-                position = Integer.parseInt(contentSplit[0]);
-            } catch (NumberFormatException nfe) {
+            if (Tokenizer.INVALID_INT == newPosition) {
                 throw new ParseException(
                         "Expected add:<position>:<text>, invalid <position>", 0
                     );
             }
-            text = contentSplit[1];
+            position = (int)newPosition;
+            text = contentTokenizer.toString();
         }
 
         public AddInfo updateHeaderMap(
             final HeaderMap headerMap
         ) {
-            headerMap.putString(
-                HeaderEnum.CONTENT,
-                Action.ADD.name + ":"+ position + ":" + text
-            );
+            headerMap.putString(HeaderEnum.CONTENT, toString());
             return this;
         }
+
+        public String toString() {
+            return Action.ADD.name + ":"+ position + ":" + text;
+        }
     }
 
     public static class DeleteInfo {
@@ -107,40 +114,46 @@ public class ContentInfo {
         public DeleteInfo(final String contentInfoStr)
             throws ParseException
         {
-            final String[] contentSplit =
-                Message.splitWith(Message.COLON_SPLITTER, contentInfoStr);
+            final Tokenizer contentTokenizer =
+                new Tokenizer(':', contentInfoStr);
 
             // Needs at least 2 results.
-            if (contentSplit.length < 2) {
+            if (!contentTokenizer.next()) {
+                throw new ParseException(
+                        "Expected delete:<position>:<length>, missing <position> or <length>", 0
+                    );
+            }
+            final long newPosition = contentTokenizer.parseInt();
+            if (!contentTokenizer.nextNonTrailing()) {
                 throw new ParseException(
                         "Expected delete:<position>:<length>, missing <position> or <length>", 0
                     );
             }
-            try {
-                position = Integer.parseInt(contentSplit[0]);
-            } catch (NumberFormatException nfe) {
+            final long newLength = contentTokenizer.parseInt();
+            if (Tokenizer.INVALID_INT == newPosition) {
                 throw new ParseException(
                         "Expected delete:<position>:<text>, invalid <position>", 0
                     );
             }
-            try {
-                length = Integer.parseInt(contentSplit[1]);
-            } catch (NumberFormatException nfe) {
+            if (Tokenizer.INVALID_INT == newLength) {
                 throw new ParseException(
                         "Expected delete:<position>:<length>, invalid <length>", 0
                     );
             }
+            position = (int)newPosition;
+            length = (int)newLength;
         }
 
         public DeleteInfo updateHeaderMap(
             final HeaderMap headerMap
         ) {
-            headerMap.putString(
-                HeaderEnum.CONTENT,
-                Action.DELETE.name + ":"+ position + ":" + length
-            );
+            headerMap.putString(HeaderEnum.CONTENT, toString());
             return this;
         }
+
+        public String toString() {
+            return Action.DELETE.name + ":"+ position + ":" + length;
+        }
     }
 
 
@@ -158,21 +171,35 @@ public class ContentInfo {
     public ContentInfo(final HeaderMap headerMap)
         throws ParseException
     {
-        final String contentStr = headerMap.getString(HeaderEnum.CONTENT);
+        this(headerMap.getString(HeaderEnum.CONTENT));
+    }
 
-        final String[] contentSplit =
-            Message.splitWith(Message.COLON_SPLITTER, contentStr, 2);
+    /**
+        Parse a single content action, "<content action>:<content info>".
+     */
+    public ContentInfo(final String contentStr)
+        throws ParseException
+    {
+        if (null == contentStr) {
+            throw new ParseException("Missing content", 0);
+        }
+        final Tokenizer contentTokenizer = new Tokenizer(':', contentStr);
 
         // Needs at least 2 results.
-        if (contentSplit.length < 2) {
+        if (!contentTokenizer.next()) {
+            throw new ParseException(
+                    "Expected <content action>:<content info>, missing separator ':' or <content info>", 0
+                );
+        }
+        final String actionName = contentTokenizer.toString();
+        if (!contentTokenizer.rest()) {
             throw new ParseException(
                     "Expected <content action>:<content info>, missing separator ':' or <content info>", 0
                 );
         }
-        final String actionName = contentSplit[0];
         action = Action.getEnum(actionName);
 
-        contentInfoStr = contentSplit[1];
+        contentInfoStr = contentTokenizer.toString();
     }
 
     public ContentInfo updateHeaderMap(
@@ -190,6 +217,68 @@ public class ContentInfo {
         return this;
     }
 
+    /** Content action as sent in a header, empty if there's no action. */
+    public String toString() {
+        if (null != setInfo) {
+            return setInfo.toString();
+        }
+        if (null != addInfo) {
+            return addInfo.toString();
+        }
+        if (null != deleteInfo) {
+            return deleteInfo.toString();
+        }
+        if (null != action) {
+            return action.name + ":" + contentInfoStr;
+        }
+        return "";
+    }
+
+    /**
+        Parse the info for the content action.
+     */
+    public ContentInfo decode() {
+        if (null == action) {
+            return this;
+        }
+        switch (action) {
+          case SET:
+            getSetInfo();
+            break;
+          case ADD:
+            getAddInfo();
+            break;
+          case DELETE:
+            getDeleteInfo();
+            break;
+        }
+        return this;
+    }
+
+    public ContentInfo setSetInfo(final SetInfo newSetInfo) {
+        action = Action.SET;
+        setInfo = newSetInfo;
+        addInfo = null;
+        deleteInfo = null;
+        return this;
+    }
+
+    public ContentInfo setAddInfo(final AddInfo newAddInfo) {
+        action = Action.ADD;
+        setInfo = null;
+        addInfo = newAddInfo;
+        deleteInfo = null;
+        return this;
+    }
+
+    public ContentInfo setDeleteInfo(final DeleteInfo newDeleteInfo) {
+        action = Action.DELETE;
+        setInfo = null;
+        addInfo = null;
+        deleteInfo = newDeleteInfo;
+        return this;
+    }
+
     public SetInfo getSetInfo() {
         if (null == setInfo) {
             setInfo = new SetInfo(contentInfoStr);
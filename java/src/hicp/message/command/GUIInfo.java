@@ -49,6 +49,7 @@ public class GUIInfo {
     private GUIPanelInfo _guiPanelInfo = null;
     private GUISelectionInfo _guiSelectionInfo = null;
     private GUITextFieldInfo _guiTextFieldInfo = null;
+    private GUITextPanelInfo _guiTextPanelInfo = null;
     private GUIWindowInfo _guiWindowInfo = null;
 
     private HeaderMap _headerMap = Message.DEFAULT_HEADER_MAP;
@@ -90,6 +91,9 @@ public class GUIInfo {
         if (null != _guiTextFieldInfo) {
             _guiTextFieldInfo.updateHeaderMap(headerMap);
         }
+        if (null != _guiTextPanelInfo) {
+            _guiTextPanelInfo.updateHeaderMap(headerMap);
+        }
         if (null != _guiWindowInfo) {
             _guiWindowInfo.updateHeaderMap(headerMap);
         }
@@ -97,6 +101,42 @@ public class GUIInfo {
         return this;
     }
 
+    /**
+        Parse the parts used by this component.
+     */
+    public GUIInfo decode() {
+        getContainedGUIInfo();
+        getLayoutGUIInfo();
+
+        if (null == component) {
+            return this;
+        }
+        switch (component) {
+          case BUTTON:
+            getGUIButtonInfo();
+            break;
+          case LABEL:
+            getGUILabelInfo();
+            break;
+          case PANEL:
+            getGUIPanelInfo();
+            break;
+          case SELECTION:
+            getGUISelectionInfo();
+            break;
+          case TEXTFIELD:
+            getGUITextFieldInfo().decode();
+            break;
+          case TEXTPANEL:
+            getGUITextPanelInfo().decode();
+            break;
+          case WINDOW:
+            getGUIWindowInfo();
+            break;
+        }
+        return this;
+    }
+
     public ContainedGUIInfo getContainedGUIInfo() {
         if (null == _containedGUIInfo) {
             _containedGUIInfo = new ContainedGUIInfo(_headerMap);
@@ -147,6 +187,13 @@ public class GUIInfo {
         return _guiTextFieldInfo;
     }
 
+    public GUITextPanelInfo getGUITextPanelInfo() {
+        if (null == _guiTextPanelInfo) {
+            _guiTextPanelInfo = new GUITextPanelInfo(_headerMap);
+        }
+        return _guiTextPanelInfo;
+    }
+
     public GUIWindowInfo getGUIWindowInfo() {
         if (null == _guiWindowInfo) {
             _guiWindowInfo = new GUIWindowInfo(_headerMap);
@@ -12,6 +12,7 @@ import java.util.stream.Collectors;
 import hicp.HeaderMap;
 import hicp.message.HeaderEnum;
 import hicp.message.Message;
+import hicp.message.Tokenizer;
 
 public class GUISelectionInfo {
     private static final Logger LOGGER =
@@ -56,56 +57,84 @@ public class GUISelectionInfo {
         public Item(final String itemStr)
             throws ParseException
         {
-            // <id>:<type-value list>
-            final String[] idInfoSplit =
-                Message.splitWith(Message.COLON_SPLITTER, itemStr);
+            this(parse(itemStr, 0, itemStr.length()), itemStr);
+        }
 
-            // Needs at least 2 results.
-            if (idInfoSplit.length < 2) {
+        private Item(final Item parsedItem, final String itemStr)
+            throws ParseException
+        {
+            if (null == parsedItem) {
                 throw new ParseException(
-                        "Expected <id>:<item info>, missing separator ':'", 0
+                        "Expected <id>:text=<text id>[, events=<events>]: "
+                            + itemStr,
+                        0
                     );
             }
-            id = idInfoSplit[Message.ID_IDX];
+            id = parsedItem.id;
+            textId = parsedItem.textId;
+            events = parsedItem.events;
+        }
 
-            final String[] infoList =
-                Message.splitWith(
-                    Message.COMMA_SPLITTER, idInfoSplit[Message.INFO_IDX]
-                );
+        private Item(
+            final String newId,
+            final String newTextId,
+            final EventsEnum newEvents
+        ) {
+            id = newId;
+            textId = newTextId;
+            events = newEvents;
+        }
+
+        /**
+            Parse item between start and end of s. Returns null if the item
+            has no ':' separator or text ID.
+         */
+        public static Item parse(
+            final CharSequence s, final int start, final int end
+        ) {
+            // <id>:<type-value list>
+            final Tokenizer idInfoTokenizer =
+                new Tokenizer(':').reset(s, start, end);
+
+            if (!idInfoTokenizer.next()) {
+                return null;
+            }
+            final String newId = idInfoTokenizer.toString();
 
-            // Needs at least 1 result.
-            if (infoList.length < 1) {
-                throw new ParseException("No selection item info found.", 0);
+            if (!idInfoTokenizer.nextNonTrailing()) {
+                // Missing separator ':'.
+                return null;
             }
+            final Tokenizer infoTokenizer =
+                new Tokenizer(',').reset(idInfoTokenizer);
+            final Tokenizer typeValueTokenizer = new Tokenizer('=');
 
             String textIdStr = null;
             String eventsStr = null;
-            for (final String typeValueStr : infoList) {
-                final String[] typeValueSplit =
-                    Message.splitWith(Message.KEY_VALUE_SPLITTER, typeValueStr);
+            while (infoTokenizer.nextNonTrailing()) {
+                typeValueTokenizer.reset(infoTokenizer);
 
-                if (typeValueSplit.length < 2) {
-                    // Just skip this one.
+                if (!typeValueTokenizer.next()) {
                     continue;
                 }
-                final String type = typeValueSplit[Message.KEY_IDX];
-                final String value = typeValueSplit[Message.VALUE_IDX];
+                final boolean isText = typeValueTokenizer.isMatch("text");
+                final boolean isEvents = typeValueTokenizer.isMatch("events");
 
-                if ("text".equals(type) && (null == textIdStr)) {
-                    textIdStr = value;
-                } else if ("events".equals(type) && (null == eventsStr)) {
-                    eventsStr = value;
+                if (!typeValueTokenizer.nextNonTrailing()) {
+                    // Just skip this one.
+                    continue;
+                }
+                if (isText && (null == textIdStr)) {
+                    textIdStr = typeValueTokenizer.toString();
+                } else if (isEvents && (null == eventsStr)) {
+                    eventsStr = typeValueTokenizer.toString();
                 }
             }
-
-            if (null != textIdStr) {
-                textId = textIdStr;
-            } else {
-                throw new ParseException(
-                    "Expected at text ID in type info, found none.", 0
-                    );
+            if (null == textIdStr) {
+                // Expected at text ID in type info, found none.
+                return null;
             }
-            events = EventsEnum.getEnum(eventsStr);
+            return new Item(newId, textIdStr, EventsEnum.getEnum(eventsStr));
         }
 
         @Override
@@ -114,8 +143,154 @@ public class GUISelectionInfo {
             if ((null == id) || (null == textId)) {
                 return "";
             }
-            return id + ": " + textId
-                + ((null != events) ? (", " + events) : "");
+            // Same format as parse().
+            return id + ":text=" + textId
+                + ((null != events) ? (", events=" + events.name) : "");
+        }
+    }
+
+    /**
+        Change to one item, so a long list can be changed without sending
+        all its items again:
+
+        add:<position>:<item>
+        remove:<id>
+        replace:<item>
+     */
+    public static class ItemAction {
+        public static enum Action {
+            ADD("add"),
+            REMOVE("remove"),
+            REPLACE("replace");
+
+            public final String name;
+
+            private static final Map<String, Action> enumMap =
+                Arrays.stream(Action.values())
+                    .collect(
+                        Collectors.toMap(
+                            e -> e.name,
+                            e -> e
+                        )
+                    );
+
+            Action(final String newName) {
+                name = newName;
+            }
+
+            public static Action getEnum(final String name) {
+                return enumMap.get(name);
+            }
+        }
+
+        public final Action action;
+
+        // Only for add.
+        public final int position;
+
+        // Item ID for remove, otherwise same as item.id.
+        public final String id;
+
+        // Only for add and replace.
+        public final Item item;
+
+        public ItemAction(final int newPosition, final Item newItem) {
+            action = Action.ADD;
+            position = newPosition;
+            id = newItem.id;
+            item = newItem;
+        }
+
+        public ItemAction(final String removeId) {
+            action = Action.REMOVE;
+            position = 0;
+            id = removeId;
+            item = null;
+        }
+
+        public ItemAction(final Item replaceItem) {
+            action = Action.REPLACE;
+            position = 0;
+            id = replaceItem.id;
+            item = replaceItem;
+        }
+
+        /**
+            Parse action between start and end of s. Returns null if the
+            action isn't known or is missing anything it needs.
+         */
+        public static ItemAction parse(
+            final CharSequence s, final int start, final int end
+        ) {
+            final Tokenizer actionTokenizer =
+                new Tokenizer(':').reset(s, start, end);
+
+            if (!actionTokenizer.next()) {
+                return null;
+            }
+            final Action action = Action.getEnum(actionTokenizer.toString());
+            if (null == action) {
+                return null;
+            }
+            switch (action) {
+              case ADD:
+                {
+                    if (!actionTokenizer.next()) {
+                        return null;
+                    }
+                    final long position = actionTokenizer.parseInt();
+                    if ( (Tokenizer.INVALID_INT == position)
+                      || !actionTokenizer.rest() )
+                    {
+                        return null;
+                    }
+                    final Item item =
+                        Item.parse(
+                            s,
+                            actionTokenizer.getStart(),
+                            actionTokenizer.getEnd()
+                        );
+                    return (null != item)
+                        ? new ItemAction((int)position, item)
+                        : null;
+                }
+              case REMOVE:
+                {
+                    if ( !actionTokenizer.next()
+                      || actionTokenizer.isEmpty() )
+                    {
+                        return null;
+                    }
+                    return new ItemAction(actionTokenizer.toString());
+                }
+              case REPLACE:
+                {
+                    if (!actionTokenizer.rest()) {
+                        return null;
+                    }
+                    final Item item =
+                        Item.parse(
+                            s,
+                            actionTokenizer.getStart(),
+                            actionTokenizer.getEnd()
+                        );
+                    return (null != item) ? new ItemAction(item) : null;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            switch (action) {
+              case ADD:
+                return action.name + ":" + position + ":" + item;
+              case REMOVE:
+                return action.name + ":" + id;
+              case REPLACE:
+                return action.name + ":" + item;
+            }
+            return "";
         }
     }
 
@@ -172,19 +347,23 @@ public class GUISelectionInfo {
         if (null == itemsListStr) {
             return null;
         }
-        final String[] itemsArray =
-            Message.splitWith(Message.LINE_SPLITTER, itemsListStr);
-        if (0 == itemsArray.length) {
+        final Tokenizer lineTokenizer = Tokenizer.lines().reset(itemsListStr);
+        if (lineTokenizer.isRestEmpty()) {
             return null;
         }
 
-        final List<Item> itemsList = new ArrayList<>(itemsArray.length);
-        for (final String itemStr : itemsArray) {
-            try {
-                itemsList.add(new Item(itemStr));
-            } catch (ParseException ex) {
-                // Just skip.
+        final List<Item> itemsList = new ArrayList<>();
+        while (lineTokenizer.nextNonTrailing()) {
+            final Item item =
+                Item.parse(
+                    itemsListStr,
+                    lineTokenizer.getStart(),
+                    lineTokenizer.getEnd()
+                );
+            if (null != item) {
+                itemsList.add(item);
             }
+            // Otherwise just skip.
         }
         return itemsList;
     }
@@ -202,22 +381,71 @@ public class GUISelectionInfo {
         return s.toString();
     }
 
+    public static List<ItemAction> itemActionsFromString(
+        final String itemActionsStr
+    ) {
+        if (null == itemActionsStr) {
+            return null;
+        }
+        final Tokenizer lineTokenizer = Tokenizer.lines().reset(itemActionsStr);
+        if (lineTokenizer.isRestEmpty()) {
+            return null;
+        }
+
+        final List<ItemAction> itemActions = new ArrayList<>();
+        while (lineTokenizer.nextNonTrailing()) {
+            final ItemAction itemAction =
+                ItemAction.parse(
+                    itemActionsStr,
+                    lineTokenizer.getStart(),
+                    lineTokenizer.getEnd()
+                );
+            if (null != itemAction) {
+                itemActions.add(itemAction);
+            } else {
+                LOGGER.log(
+                    Level.FINE,
+                    "Skipping invalid item action: "
+                        + itemActionsStr.substring(
+                            lineTokenizer.getStart(),
+                            lineTokenizer.getEnd()
+                        )
+                );
+            }
+        }
+        return itemActions;
+    }
+
+    public static String itemActionsToString(
+        final List<ItemAction> itemActions
+    ) {
+        if (null == itemActions) {
+            return null;
+        }
+        final StringBuilder s = new StringBuilder();
+        String sep = "";
+        for (final var itemAction : itemActions) {
+            s.append(sep).append(itemAction.toString());
+            sep = Message.EOL;
+        }
+        return s.toString();
+    }
+
     public static List<String> selectedFromString(
         final String selectedListStr
     ) {
         if (null == selectedListStr) {
             return null;
         }
-        final String[] selectedArray =
-            Message.splitWith(Message.COMMA_SPLITTER, selectedListStr);
-        if (0 == selectedArray.length) {
+        final Tokenizer selectedTokenizer =
+            new Tokenizer(',', selectedListStr);
+        if (selectedTokenizer.isRestEmpty()) {
             return null;
         }
 
-        final List<String> selectedList =
-            new ArrayList<>(selectedArray.length);
-        for (final String selectedStr : selectedArray) {
-            selectedList.add(selectedStr);
+        final List<String> selectedList = new ArrayList<>();
+        while (selectedTokenizer.nextNonTrailing()) {
+            selectedList.add(selectedTokenizer.toString());
         }
         return selectedList;
     }
@@ -230,7 +458,7 @@ public class GUISelectionInfo {
         String sep= "";
         for (final var selectedStr : selected) {
             s.append(sep).append(selectedStr);
-            sep = Message.EOL;
+            sep = ", ";
         }
         return s.toString();
     }
@@ -240,10 +468,12 @@ public class GUISelectionInfo {
             _hasHeight = false;
             return this;
         }
-        try {
-            _height = Integer.parseInt(heightStr);
+        final long height =
+            Tokenizer.parseInt(heightStr, 0, heightStr.length());
+        if (Tokenizer.INVALID_INT != height) {
+            _height = (int)height;
             _hasHeight = true;
-        } catch (NumberFormatException ex) {
+        } else {
             _hasHeight = false;
         }
         return this;
@@ -254,10 +484,12 @@ public class GUISelectionInfo {
             _hasWidth = false;
             return this;
         }
-        try {
-            _width = Integer.parseInt(widthStr);
+        final long width =
+            Tokenizer.parseInt(widthStr, 0, widthStr.length());
+        if (Tokenizer.INVALID_INT != width) {
+            _width = (int)width;
             _hasWidth = true;
-        } catch (NumberFormatException ex) {
+        } else {
             _hasWidth = false;
         }
         return this;
@@ -265,6 +497,7 @@ public class GUISelectionInfo {
 
     public EventsEnum events = null;
     public List<Item> items = null;
+    public List<ItemAction> itemActions = null;
     public List<String> selected = null;
 
     private boolean _hasHeight = false;
@@ -287,6 +520,9 @@ public class GUISelectionInfo {
         items = itemsFromString(
                 headerMap.getString(HeaderEnum.ITEMS)
             );
+        itemActions = itemActionsFromString(
+                headerMap.getString(HeaderEnum.ITEM_ACTIONS)
+            );
         selected = selectedFromString(
                 headerMap.getString(HeaderEnum.SELECTED)
             );
@@ -307,6 +543,9 @@ public class GUISelectionInfo {
     ) {
         headerMap.putString(HeaderEnum.EVENTS, events.name);
         headerMap.putString(HeaderEnum.ITEMS, itemsToString(items));
+        headerMap.putString(
+            HeaderEnum.ITEM_ACTIONS, itemActionsToString(itemActions)
+        );
         headerMap.putString(HeaderEnum.SELECTED, selectedToString(selected));
         if (_hasHeight) {
             headerMap.putString(HeaderEnum.HEIGHT, Integer.toString(_height));
@@ -96,6 +96,16 @@ public class GUITextFieldInfo {
         return this;
     }
 
+    /**
+        Parse the content action.
+     */
+    public GUITextFieldInfo decode() {
+        if (hasContent && (null != contentInfo)) {
+            contentInfo.decode();
+        }
+        return this;
+    }
+
     public boolean hasContent() {
         return hasContent;
     }
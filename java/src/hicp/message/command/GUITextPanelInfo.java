@@ -0,0 +1,153 @@
+package hicp.message.command;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import hicp.HeaderMap;
+import hicp.message.AttributeListInfo;
+import hicp.message.HeaderEnum;
+import hicp.message.Message;
+
+public class GUITextPanelInfo {
+    public static enum EventsEnum {
+         ENABLED("enabled"),
+         DISABLED("disabled");
+
+        public final String name;
+
+        private static final Map<String, EventsEnum> enumMap =
+            Arrays.stream(EventsEnum.values())
+                .collect(
+                    Collectors.toMap(
+                        e -> e.name,
+                        e -> e
+                    )
+                );
+
+
+        EventsEnum(final String forName) {
+            name = forName;
+        }
+
+        public static EventsEnum getEnum(String name) {
+            return enumMap.get(name);
+        }
+    }
+
+    protected ContentInfo contentInfo = null;
+    protected boolean hasContent = false;
+
+    protected AttributeListInfo attributeListInfo = null;
+    protected boolean hasAttributes = false;
+
+    public int width = 40;  // Arbitrary default
+    protected boolean hasWidth = false;
+
+    public int height = 1;
+    protected boolean hasHeight = false;
+
+    public EventsEnum events = null;
+
+    private HeaderMap _headerMap = Message.DEFAULT_HEADER_MAP;
+
+    public GUITextPanelInfo() {
+    }
+
+    public GUITextPanelInfo(final HeaderMap headerMap) {
+        _headerMap = headerMap;
+
+        hasContent = headerMap.has(HeaderEnum.CONTENT);
+        if (hasContent) {
+            try {
+                contentInfo = new ContentInfo(headerMap);
+            } catch (ParseException pe) {
+                // Leave it as null, no valid content action.
+            }
+        }
+
+        hasWidth = headerMap.has(HeaderEnum.WIDTH);
+        if (hasWidth) {
+            width = headerMap.getInt(HeaderEnum.WIDTH, width);
+        }
+
+        hasHeight = headerMap.has(HeaderEnum.HEIGHT);
+        if (hasHeight) {
+            height = headerMap.getInt(HeaderEnum.HEIGHT, height);
+        }
+
+        hasAttributes = headerMap.has(HeaderEnum.ATTRIBUTES);
+        if (hasAttributes) {
+            attributeListInfo = new AttributeListInfo(_headerMap);
+        }
+
+        events =
+            EventsEnum.getEnum(
+                headerMap.getString(HeaderEnum.EVENTS)
+            );
+    }
+
+    public GUITextPanelInfo updateHeaderMap(
+        final HeaderMap headerMap
+    ) {
+        if (null != contentInfo) {
+            contentInfo.updateHeaderMap(headerMap);
+        }
+        headerMap.putInt(HeaderEnum.WIDTH, width);
+        headerMap.putInt(HeaderEnum.HEIGHT, height);
+
+        if (null != attributeListInfo) {
+            attributeListInfo.updateHeaderMap(headerMap);
+        }
+        if (null != events) {
+            headerMap.putString(HeaderEnum.EVENTS, events.name);
+        }
+
+        return this;
+    }
+
+    /**
+        Parse the content action.
+     */
+    public GUITextPanelInfo decode() {
+        if (hasContent && (null != contentInfo)) {
+            contentInfo.decode();
+        }
+        return this;
+    }
+
+    public boolean hasContent() {
+        return hasContent;
+    }
+
+    public ContentInfo getContentInfo() {
+        try {
+            if (null == contentInfo) {
+                contentInfo = new ContentInfo(_headerMap);
+            }
+        } catch (ParseException pe) {
+            return null;
+        }
+        return contentInfo;
+    }
+
+    public boolean hasAttributes() {
+        return hasAttributes;
+    }
+
+    public AttributeListInfo getAttributeListInfo() {
+        if (null == attributeListInfo) {
+            attributeListInfo = new AttributeListInfo(_headerMap);
+        }
+        return attributeListInfo;
+    }
+
+    public boolean hasWidth() {
+        return hasWidth;
+    }
+
+    public boolean hasHeight() {
+        return hasHeight;
+    }
+}
@@ -73,6 +73,24 @@ public class ItemInfo {
         return this;
     }
 
+    /**
+        Parse the parts used by this item category.
+     */
+    public ItemInfo decode() {
+        if (null == category) {
+            return this;
+        }
+        switch (category) {
+          case GUI:
+            getGUIInfo().decode();
+            break;
+          case TEXT:
+            getTextInfo();
+            break;
+        }
+        return this;
+    }
+
     public TextInfo getTextInfo() {
         if (null == _textInfo) {
             _textInfo = new TextInfo(_headerMap);
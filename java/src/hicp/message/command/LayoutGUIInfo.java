@@ -8,7 +8,7 @@ import hicp.TextDirection;
 import hicp.HeaderMap;
 import hicp.HICPHeader;
 import hicp.message.HeaderEnum;
-import hicp.message.Message;
+import hicp.message.Tokenizer;
 
 public class LayoutGUIInfo {
     public static class DirectionPair {
@@ -21,25 +21,21 @@ public class LayoutGUIInfo {
         }
 
         public static TextDirection getIfExists(
-            final String[] directionStrArray,
-            final int idx
+            final Tokenizer directionTokenizer
         ) {
-            if (idx >= directionStrArray.length) {
+            if (!directionTokenizer.next()) {
                 return null;
             }
-            return TextDirection.getEnum(directionStrArray[idx]);
+            return TextDirection.getEnum(directionTokenizer.toString());
         }
 
         public DirectionPair(final String directionPairStr) {
-            // Only two values are needed, but if there are more,
-            // shouldn't be appended to the second value by split(), so
-            // split into three - any extra will be separated into third
-            // String that's ignored.
-            final String[] directionStrArray =
-                Message.splitWith(Message.COMMA_SPLITTER, directionPairStr, 3);
-
-            first = getIfExists(directionStrArray, 0);
-            second = getIfExists(directionStrArray, 1);
+            // Only two values are needed, any more are ignored.
+            final Tokenizer directionTokenizer =
+                new Tokenizer(',', directionPairStr);
+
+            first = getIfExists(directionTokenizer);
+            second = getIfExists(directionTokenizer);
         }
 
         public DirectionPair(
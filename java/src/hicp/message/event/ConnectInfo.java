@@ -1,31 +1,75 @@
 package hicp.message.event;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import hicp.HeaderMap;
 import hicp.message.HeaderEnum;
+import hicp.message.Tokenizer;
 
 public class ConnectInfo {
     private static final Logger LOGGER =
         Logger.getLogger( ConnectInfo.class.getName() );
 //LOGGER.log(Level.FINE, " " + );  // debug
 
+    // Optional protocol features the user agent supports. A server which
+    // doesn't see a feature here must not use it.
+
+    /** "item-actions" header for selection items. */
+    public static final String ITEM_ACTIONS_FEATURE = "item-actions";
+
+    /**
+        "selected" ranges and changes (see SelectedRange) in selection
+        events and commands.
+     */
+    public static final String SELECTION_RANGES_FEATURE = "selection-ranges";
+
+    /** "content-actions" instead of "content" in textfield events. */
+    public static final String CONTENT_ACTIONS_FEATURE = "content-actions";
+
     public String application = null;
+    public List<String> features = null;
 
     public ConnectInfo() {
     } 
 
     public ConnectInfo(final HeaderMap headerMap) {
         application = headerMap.getString(HeaderEnum.APPLICATION);
+        features = featuresFromString(headerMap.getString(HeaderEnum.FEATURES));
+    }
+
+    public static List<String> featuresFromString(final String featuresStr) {
+        if (null == featuresStr) {
+            return null;
+        }
+        final Tokenizer featuresTokenizer = new Tokenizer(',', featuresStr);
+
+        final List<String> featureList = new ArrayList<>();
+        while (featuresTokenizer.nextNonTrailing()) {
+            featureList.add(featuresTokenizer.toString());
+        }
+        return featureList;
+    }
+
+    public static String featuresToString(final List<String> features) {
+        if (null == features) {
+            return null;
+        }
+        return String.join(", ", features);
+    }
+
+    public boolean hasFeature(final String feature) {
+        return (null != features) && features.contains(feature);
     }
 
     public ConnectInfo updateHeaderMap(
         final HeaderMap headerMap
     ) {
         headerMap.putString(HeaderEnum.APPLICATION, application);
+        headerMap.putString(HeaderEnum.FEATURES, featuresToString(features));
 
         return this;
     }
 }
-
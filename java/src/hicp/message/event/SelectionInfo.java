@@ -7,7 +7,7 @@ import java.util.logging.Logger;
 
 import hicp.HeaderMap;
 import hicp.message.HeaderEnum;
-import hicp.message.Message;
+import hicp.message.Tokenizer;
 
 public class SelectionInfo {
     private static final Logger LOGGER =
@@ -21,16 +21,15 @@ public class SelectionInfo {
         if (null == selectedListStr) {
             return null;
         }
-        final String[] selectedArray =
-            Message.splitWith(Message.COMMA_SPLITTER, selectedListStr);
-        if (0 == selectedArray.length) {
+        final Tokenizer selectedTokenizer =
+            new Tokenizer(',', selectedListStr);
+        if (selectedTokenizer.isRestEmpty()) {
             return null;
         }
 
-        final List<String> selectedList =
-            new ArrayList<>(selectedArray.length);
-        for (final String selectedStr : selectedArray) {
-            selectedList.add(selectedStr);
+        final List<String> selectedList = new ArrayList<>();
+        while (selectedTokenizer.nextNonTrailing()) {
+            selectedList.add(selectedTokenizer.toString());
         }
         return selectedList;
     }
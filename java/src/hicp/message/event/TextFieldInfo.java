@@ -1,5 +1,8 @@
 package hicp.message.event;
 
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -7,6 +10,8 @@ import hicp.HeaderMap;
 import hicp.message.AttributeListInfo;
 import hicp.message.HeaderEnum;
 import hicp.message.Message;
+import hicp.message.Tokenizer;
+import hicp.message.command.ContentInfo;
 
 public class TextFieldInfo {
     private static final Logger LOGGER =
@@ -14,6 +19,9 @@ public class TextFieldInfo {
 //LOGGER.log(Level.FINE, " " + );  // debug
 
     public String content = null;
+    // Add and delete actions which change the last content sent to the new
+    // content, applied in order. Sent instead of content if not null.
+    public List<ContentInfo> contentActions = null;
     private AttributeListInfo attributeListInfo = null;
 
     private HeaderMap _headerMap = Message.DEFAULT_HEADER_MAP;
@@ -25,6 +33,10 @@ public class TextFieldInfo {
         _headerMap = headerMap;
 
         content = headerMap.getString(HeaderEnum.CONTENT);
+        contentActions =
+            contentActionsFromString(
+                headerMap.getString(HeaderEnum.CONTENT_ACTIONS)
+            );
         {
             final boolean hasAttributes = headerMap.has(HeaderEnum.ATTRIBUTES);
             if (hasAttributes) {
@@ -33,10 +45,58 @@ public class TextFieldInfo {
         }
     }
 
+    public static List<ContentInfo> contentActionsFromString(
+        final String contentActionsStr
+    ) {
+        if (null == contentActionsStr) {
+            return null;
+        }
+        final Tokenizer lineTokenizer =
+            Tokenizer.lines().reset(contentActionsStr);
+
+        final List<ContentInfo> contentActionList = new ArrayList<>();
+        while (lineTokenizer.nextNonTrailing()) {
+            final String contentActionStr = lineTokenizer.toString();
+            try {
+                contentActionList.add(
+                    new ContentInfo(contentActionStr).decode()
+                );
+            } catch (ParseException pe) {
+                LOGGER.log(
+                    Level.FINE,
+                    "Skipping invalid content action: " + contentActionStr
+                );
+            }
+        }
+        return contentActionList;
+    }
+
+    public static String contentActionsToString(
+        final List<ContentInfo> contentActions
+    ) {
+        if (null == contentActions) {
+            return null;
+        }
+        final StringBuilder s = new StringBuilder();
+        String sep = "";
+        for (final var contentAction : contentActions) {
+            s.append(sep).append(contentAction.toString());
+            sep = Message.EOL;
+        }
+        return s.toString();
+    }
+
     public TextFieldInfo updateHeaderMap(
         final HeaderMap headerMap
     ) {
-        headerMap.putString(HeaderEnum.CONTENT, content);
+        if (null != contentActions) {
+            headerMap.putString(
+                HeaderEnum.CONTENT_ACTIONS,
+                contentActionsToString(contentActions)
+            );
+        } else {
+            headerMap.putString(HeaderEnum.CONTENT, content);
+        }
         if (null != attributeListInfo) {
             attributeListInfo.updateHeaderMap(headerMap);
         }
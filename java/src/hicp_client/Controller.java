@@ -1,6 +1,8 @@
 package hicp_client;
 
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.SwingUtilities;
@@ -8,7 +10,9 @@ import javax.swing.SwingUtilities;
 import hicp.MessageExchange;
 import hicp.message.Message;
 import hicp.message.command.CommandInfo;
+import hicp.message.event.ConnectInfo;
 import hicp.message.event.EventInfo;
+import hicp_client.gui.CommandDispatcher;
 import hicp_client.gui.GUIController;
 
 // Main controller for handling HICP communication.
@@ -25,24 +29,7 @@ public class Controller
     protected boolean _isConnected = false;
 
     protected GUIController guiController;
-
-    protected class RunReceivedCommand
-        implements Runnable
-    {
-        final protected CommandInfo commandInfo;
-        final protected GUIController guiController;
-
-        public RunReceivedCommand(
-            final CommandInfo commandInfo,
-            final GUIController guiController
-        ) {
-            this.commandInfo = commandInfo;
-            this.guiController = guiController;
-        }
-        public void run() {
-            guiController.receivedCommand(commandInfo);
-        }
-    }
+    protected CommandDispatcher _commandDispatcher;
 
     protected class RunDispose
         implements Runnable
@@ -69,9 +56,26 @@ public class Controller
         _monitor = monitor;
 
         _messageExchange =
-            new MessageExchange(_session.in, _session.out, this);
+            new MessageExchange(
+                _session.in, _session.out, this,
+                _session.params.sendQueueSize,
+                _session.params.sendLingerMillis,
+                _session.params.decodeThreads,
+                _session.params.indexedMessages
+            );
 
-        guiController = new GUIController(_messageExchange);
+        guiController =
+            new GUIController(
+                _messageExchange,
+                _session.params.contentDeltas,
+                _session.params.selectionRanges
+            );
+        _commandDispatcher =
+            new CommandDispatcher(
+                guiController,
+                _session.params.dispatchBudgetMillis,
+                _session.params.coalesceModifies
+            );
     }
 
 // Called by owner.
@@ -92,6 +96,16 @@ public class Controller
                     connectInfo.application = application;
                 }
             }
+            // Servers which don't know about these features ignore this.
+            final List<String> features = new ArrayList<>();
+            features.add(ConnectInfo.ITEM_ACTIONS_FEATURE);
+            if (_session.params.selectionRanges) {
+                features.add(ConnectInfo.SELECTION_RANGES_FEATURE);
+            }
+            if (_session.params.contentDeltas) {
+                features.add(ConnectInfo.CONTENT_ACTIONS_FEATURE);
+            }
+            connectInfo.features = features;
             _messageExchange.send(event);
         }
         setConnected(true);
@@ -128,12 +142,18 @@ public class Controller
         return _isConnected;
     }
 
+    public CommandDispatcher getCommandDispatcher() {
+        return _commandDispatcher;
+    }
+
     public Controller dispose() {
         if (null == _messageExchange) {
             return this;
         }
 
-        // Dispose of any opened GUI objects.
+        // Drop commands not yet passed to the GUI, then dispose of any
+        // opened GUI objects.
+        _commandDispatcher.dispose();
         SwingUtilities.invokeLater(
             new RunDispose(guiController)
         );
@@ -194,9 +214,7 @@ public class Controller
           case ADD:
           case MODIFY:
           case REMOVE:
-            SwingUtilities.invokeLater(
-                new RunReceivedCommand(commandInfo, guiController)
-            );
+            _commandDispatcher.dispatch(commandInfo);
             break;
           case DISCONNECT:
             {
@@ -5,4 +5,36 @@ public class Params {
     public String password = "";
     public String application = "";
     public boolean isFramed = false;
+
+    // Connection and send queue settings.
+    public boolean tcpNoDelay = true;
+    public int sendQueueSize = 256;
+    public int sendLingerMillis = 0;
+
+    // Threads decoding received messages, 0 to decode on the GUI thread.
+    public int decodeThreads =
+        Math.min(4, Runtime.getRuntime().availableProcessors() - 1);
+
+    // Keep each received message's header values in a single array.
+    public boolean indexedMessages = true;
+
+    // Longest time the GUI thread spends on received commands before
+    // letting other events in.
+    public int dispatchBudgetMillis = 8;
+
+    // Merge a received MODIFY into one for the same item which is still
+    // waiting for the GUI thread.
+    public boolean coalesceModifies = true;
+
+    // Send text field content changes as add and delete actions instead of
+    // the whole content. Listed as the "content-actions" feature when
+    // connecting, but the server doesn't confirm it, so only set this for
+    // a server which understands content actions in CHANGED events.
+    public boolean contentDeltas = false;
+
+    // Send list selections as ranges of item IDs, or changes to the last
+    // selection sent. Listed as the "selection-ranges" feature when
+    // connecting, but the server doesn't confirm it, so only set this for
+    // a server which understands ranges in CHANGED events.
+    public boolean selectionRanges = false;
 }
@@ -0,0 +1,398 @@
+package hicp_client.gui;
+
+import java.text.ParseException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+
+import hicp.HeaderMap;
+import hicp.message.HeaderEnum;
+import hicp.message.SelectedRange;
+import hicp.message.command.CommandInfo;
+import hicp.message.command.ContentInfo;
+import hicp.message.command.GUISelectionInfo;
+import hicp.message.command.ItemInfo;
+
+/**
+    Passes commands to the GUI controller on the GUI event thread in
+    batches, instead of one invokeLater() for each command. Each batch
+    stops when the time budget is used up, and the rest are left for
+    another batch, so paint and input events queued in the meantime are
+    handled in between.
+
+    If coalescing, a MODIFY for an item which still has a MODIFY waiting
+    is merged into the waiting one, so the GUI only sees the last value
+    of each header. Only done when it gives the same result as applying
+    both: an ADD or REMOVE of any item (which the merged headers might
+    refer to) stops merging with anything queued before it, and content
+    changes other than "set", or attributes which apply to content, are
+    never merged. Neither are selection item actions or selection
+    changes which a newer command would overwrite or apply to a different
+    list of items.
+ */
+public class CommandDispatcher
+    implements Runnable
+{
+    private static final Logger LOGGER =
+        Logger.getLogger( CommandDispatcher.class.getName() );
+
+    public static final int DEFAULT_BUDGET_MILLIS = 8;
+
+    protected final GUIController _guiController;
+    protected final long _budgetNanos;
+
+    /**
+        Queued command. Taken by the GUI event thread, after which it
+        can't be merged with any more.
+     */
+    protected static class PendingCommand {
+        // Guarded by this.
+        protected CommandInfo _commandInfo;
+        protected boolean _isTaken = false;
+
+        protected PendingCommand(final CommandInfo commandInfo) {
+            _commandInfo = commandInfo;
+        }
+
+        protected synchronized CommandInfo take() {
+            _isTaken = true;
+            return _commandInfo;
+        }
+
+        /**
+            Replace the command, unless already taken. Returns false if
+            it was taken.
+         */
+        protected synchronized boolean replace(
+            final CommandInfo commandInfo
+        ) {
+            if (_isTaken) {
+                return false;
+            }
+            _commandInfo = commandInfo;
+            return true;
+        }
+    }
+
+    protected final boolean _isCoalescing;
+
+    protected final Queue<PendingCommand> _queue =
+        new ConcurrentLinkedQueue<>();
+
+    // Queued MODIFY commands which can still be merged, by item. Only used
+    // by dispatch(), guarded by itself.
+    protected final Map<ItemInfo.CategoryEnum, Map<String, PendingCommand>>
+        _pendingModifyMap = new EnumMap<>(ItemInfo.CategoryEnum.class);
+    protected int _pendingModifyCnt = 0;
+
+    protected volatile long _coalescedCnt = 0;
+
+    // ConcurrentLinkedQueue.size() has to count, so keep count here.
+    protected final AtomicInteger _queueDepth = new AtomicInteger();
+
+    // True if run() has been passed to invokeLater() and hasn't finished.
+    protected final AtomicBoolean _isScheduled = new AtomicBoolean();
+
+    protected volatile boolean _isDisposed = false;
+
+    protected volatile long _lastDrainNanos = 0;
+    protected volatile long _maxDrainNanos = 0;
+    protected volatile int _lastDrainCnt = 0;
+
+    public CommandDispatcher(final GUIController guiController) {
+        this(guiController, DEFAULT_BUDGET_MILLIS, false);
+    }
+
+    public CommandDispatcher(
+        final GUIController guiController,
+        final int budgetMillis,
+        final boolean isCoalescing
+    ) {
+        _guiController = guiController;
+        _budgetNanos =
+            TimeUnit.MILLISECONDS.toNanos(Math.max(1, budgetMillis));
+        _isCoalescing = isCoalescing;
+
+        for (final ItemInfo.CategoryEnum category
+            : ItemInfo.CategoryEnum.values())
+        {
+            _pendingModifyMap.put(category, new HashMap<>());
+        }
+    }
+
+    /**
+        Queue command for the GUI event thread. Can be called from any
+        thread.
+     */
+    public CommandDispatcher dispatch(final CommandInfo commandInfo) {
+        if ((null == commandInfo) || _isDisposed) {
+            return this;
+        }
+        if (_isCoalescing) {
+            synchronized (_pendingModifyMap) {
+                if (coalesce(commandInfo)) {
+                    return this;
+                }
+            }
+        } else {
+            _queue.offer(new PendingCommand(commandInfo));
+        }
+        _queueDepth.incrementAndGet();
+
+        schedule();
+
+        return this;
+    }
+
+    /**
+        Merge commandInfo into a waiting MODIFY if possible, otherwise
+        queue it. Returns true if merged.
+     */
+    protected boolean coalesce(final CommandInfo commandInfo) {
+        if ( (CommandInfo.Command.ADD == commandInfo.command)
+          || (CommandInfo.Command.REMOVE == commandInfo.command) )
+        {
+            // Nothing queued before this can be merged with anything
+            // after it.
+            clearPendingModify();
+        }
+        final PendingCommand newPending = new PendingCommand(commandInfo);
+        if (CommandInfo.Command.MODIFY != commandInfo.command) {
+            _queue.offer(newPending);
+            return false;
+        }
+        final ItemInfo itemInfo = commandInfo.getItemInfo();
+        if ((null == itemInfo.category) || (null == itemInfo.id)) {
+            _queue.offer(newPending);
+            return false;
+        }
+        final Map<String, PendingCommand> idMap =
+            _pendingModifyMap.get(itemInfo.category);
+
+        final PendingCommand pending = idMap.get(itemInfo.id);
+        if (null != pending) {
+            // Only this thread replaces the command, so it can be read
+            // without waiting for the GUI event thread.
+            final CommandInfo pendingInfo = pending._commandInfo;
+            if (isMergeable(pendingInfo, commandInfo)) {
+                final CommandInfo mergedInfo =
+                    new CommandInfo(
+                        new HeaderMap()
+                            .putAll(pendingInfo.getHeaderMap())
+                            .putAll(commandInfo.getHeaderMap())
+                    ).decode();
+
+                if (pending.replace(mergedInfo)) {
+                    _coalescedCnt++;
+                    return true;
+                }
+            }
+        }
+        _queue.offer(newPending);
+        if (null == idMap.put(itemInfo.id, newPending)) {
+            _pendingModifyCnt++;
+        }
+        return false;
+    }
+
+    protected void clearPendingModify() {
+        if (0 == _pendingModifyCnt) {
+            return;
+        }
+        for (final Map<String, PendingCommand> idMap
+            : _pendingModifyMap.values())
+        {
+            idMap.clear();
+        }
+        _pendingModifyCnt = 0;
+    }
+
+    /**
+        True if applying merged headers of olderInfo and newerInfo gives
+        the same result as applying olderInfo then newerInfo.
+     */
+    protected static boolean isMergeable(
+        final CommandInfo olderInfo, final CommandInfo newerInfo
+    ) {
+        final HeaderMap olderMap = olderInfo.getHeaderMap();
+        final HeaderMap newerMap = newerInfo.getHeaderMap();
+
+        // Add and delete change the content, not replace it.
+        if (!isContentReplaced(olderMap) || !isContentReplaced(newerMap)) {
+            return false;
+        }
+        final boolean isOlderAttributes =
+            olderMap.has(HeaderEnum.ATTRIBUTES);
+        final boolean isNewerAttributes =
+            newerMap.has(HeaderEnum.ATTRIBUTES);
+
+        // Attributes are merged with existing ones by name, not replaced.
+        if (isOlderAttributes && isNewerAttributes) {
+            return false;
+        }
+        // Older attributes apply to older content, which would be gone.
+        if (isOlderAttributes && newerMap.has(HeaderEnum.CONTENT)) {
+            return false;
+        }
+        final boolean isNewerItems =
+            newerMap.has(HeaderEnum.ITEMS)
+            || newerMap.has(HeaderEnum.ITEM_ACTIONS);
+
+        // Item actions change the existing items, and items are applied
+        // before item actions, so older ones would be lost or applied to
+        // the wrong list.
+        if (olderMap.has(HeaderEnum.ITEM_ACTIONS) && isNewerItems) {
+            return false;
+        }
+        if (olderMap.has(HeaderEnum.SELECTED)) {
+            // Selection changes add to or remove from the older selection,
+            // which would be lost.
+            if (isSelectedChanged(newerMap)) {
+                return false;
+            }
+            // Selection is applied after items, and ranges depend on item
+            // order, so the older selection would apply to newer items,
+            // unless newer selection replaces it anyway.
+            if (!newerMap.has(HeaderEnum.SELECTED) && isNewerItems) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+        True if selection is a list of changes to the existing selection,
+        instead of a new selection.
+     */
+    protected static boolean isSelectedChanged(final HeaderMap headerMap) {
+        final List<String> selected =
+            GUISelectionInfo.selectedFromString(
+                headerMap.getString(HeaderEnum.SELECTED)
+            );
+        if (null == selected) {
+            return false;
+        }
+        return SelectedRange.isChangeList(SelectedRange.listFrom(selected));
+    }
+
+    /**
+        True if there is no content, or it replaces all existing content.
+     */
+    protected static boolean isContentReplaced(final HeaderMap headerMap) {
+        if (!headerMap.has(HeaderEnum.CONTENT)) {
+            return true;
+        }
+        try {
+            return ContentInfo.Action.SET
+                == new ContentInfo(headerMap).action;
+        } catch (ParseException ex) {
+            return false;
+        }
+    }
+
+    protected void schedule() {
+        if (_isScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this);
+        }
+    }
+
+    /**
+        Called on the GUI event thread, pass queued commands to the GUI
+        controller until the queue is empty or the time budget is used up.
+     */
+    public void run() {
+        final long startNanos = System.nanoTime();
+        final long endNanos = startNanos + _budgetNanos;
+        int drainCnt = 0;
+
+        // Lay out once for the whole batch.
+        LayoutTransaction.begin();
+        try {
+            PendingCommand pending;
+            while ( !_isDisposed
+                 && (null != (pending = _queue.poll())) )
+            {
+                _queueDepth.decrementAndGet();
+                try {
+                    _guiController.receivedCommand(pending.take());
+                } catch (RuntimeException ex) {
+                    LOGGER.log(Level.WARNING, "Command failed", ex);
+                }
+                drainCnt++;
+
+                if (endNanos - System.nanoTime() <= 0) {
+                    break;
+                }
+            }
+        } finally {
+            LayoutTransaction.end();
+        }
+        final long drainNanos = System.nanoTime() - startNanos;
+        _lastDrainNanos = drainNanos;
+        if (_maxDrainNanos < drainNanos) {
+            _maxDrainNanos = drainNanos;
+        }
+        _lastDrainCnt = drainCnt;
+
+        if (!_isDisposed && !_queue.isEmpty()) {
+            // Out of time, let other events in before the next batch.
+            SwingUtilities.invokeLater(this);
+            return;
+        }
+        _isScheduled.set(false);
+
+        // A command may have been added after the queue was found empty,
+        // but before the flag was cleared.
+        if (!_isDisposed && !_queue.isEmpty()) {
+            schedule();
+        }
+    }
+
+    /** Number of commands waiting for the GUI event thread. */
+    public int getQueueDepth() {
+        return _queueDepth.get();
+    }
+
+    /** Time taken by the most recent batch, in nanoseconds. */
+    public long getLastDrainNanos() {
+        return _lastDrainNanos;
+    }
+
+    /** Longest time taken by a batch so far, in nanoseconds. */
+    public long getMaxDrainNanos() {
+        return _maxDrainNanos;
+    }
+
+    /** Number of MODIFY commands merged into a waiting one so far. */
+    public long getCoalescedCount() {
+        return _coalescedCnt;
+    }
+
+    /** Number of commands in the most recent batch. */
+    public int getLastDrainCount() {
+        return _lastDrainCnt;
+    }
+
+    /**
+        Discard queued commands, and don't accept any more.
+     */
+    public CommandDispatcher dispose() {
+        _isDisposed = true;
+        _queue.clear();
+        _queueDepth.set(0);
+        synchronized (_pendingModifyMap) {
+            clearPendingModify();
+        }
+
+        return this;
+    }
+}
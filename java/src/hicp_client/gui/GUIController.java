@@ -19,6 +19,8 @@ public class GUIController {
         Logger.getLogger( GUIController.class.getName() );
 
     protected MessageExchange _messageExchange;
+    protected final boolean _contentDeltas;
+    protected final boolean _selectionRanges;
 
     protected TextLibrary _textLibrary = new TextLibrary();
     protected Map<String, Item> _guiMap = new HashMap<>();
@@ -26,7 +28,17 @@ public class GUIController {
     protected RootItem _root = null;
 
     public GUIController(final MessageExchange messageExchange) {
+        this(messageExchange, false, false);
+    }
+
+    public GUIController(
+        final MessageExchange messageExchange,
+        final boolean contentDeltas,
+        final boolean selectionRanges
+    ) {
         _messageExchange = messageExchange;
+        _contentDeltas = contentDeltas;
+        _selectionRanges = selectionRanges;
 
         _root = new RootItem();
     }
@@ -84,7 +96,11 @@ public class GUIController {
                         {
                             final Item guiItem =
                                 ItemSource.newItem(
-                                    commandInfo, _textLibrary, _messageExchange
+                                    commandInfo,
+                                    _textLibrary,
+                                    _messageExchange,
+                                    _contentDeltas,
+                                    _selectionRanges
                                 );
 
                             if (null != guiItem) {
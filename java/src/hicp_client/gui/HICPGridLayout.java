@@ -0,0 +1,746 @@
+package hicp_client.gui;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.GridBagConstraints;
+import java.awt.Insets;
+import java.awt.LayoutManager2;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+    Lays out components in a grid by HICP position and size. Sizes are
+    worked out by LayoutItem (including size 0 items which fill to a
+    limit), and given as GridBagConstraints, of which only grid position
+    and size, anchor, fill, and insets are used.
+
+    Column and row sizes are kept between layouts. Only columns and rows
+    with a component which was added, removed, moved, or whose preferred
+    or minimum size changed are worked out again, and constraints can be
+    changed without removing and adding the component.
+
+    Like GridBagLayout, extra space is shared by columns and rows with
+    components in them, components which aren't visible are left out, and
+    columns go right to left if the container does.
+
+    Only used from the GUI event thread.
+ */
+class HICPGridLayout
+    implements LayoutManager2
+{
+    private static final Logger LOGGER =
+        Logger.getLogger( HICPGridLayout.class.getName() );
+
+    /**
+        Component with its constraints and the sizes last used for it.
+     */
+    protected static class Entry {
+        public final Component component;
+        public final int addIdx;
+        public GridBagConstraints constraints;
+
+        // Component sizes, not including insets. 0 if not visible.
+        public int prefWidth = 0;
+        public int prefHeight = 0;
+        public int minWidth = 0;
+        public int minHeight = 0;
+        public boolean isVisible = false;
+        public boolean isSizeKnown = false;
+
+        public Entry(
+            final Component newComponent,
+            final int newAddIdx,
+            final GridBagConstraints newConstraints
+        ) {
+            component = newComponent;
+            addIdx = newAddIdx;
+            constraints = newConstraints;
+        }
+
+        public int getStart(final boolean isHorizontal) {
+            return isHorizontal ? constraints.gridx : constraints.gridy;
+        }
+
+        public int getSize(final boolean isHorizontal) {
+            return isHorizontal
+                ? constraints.gridwidth
+                : constraints.gridheight;
+        }
+
+        public int getPrefSize(final boolean isHorizontal) {
+            return isHorizontal
+                ? prefWidth + constraints.insets.left
+                    + constraints.insets.right
+                : prefHeight + constraints.insets.top
+                    + constraints.insets.bottom;
+        }
+
+        public int getMinSize(final boolean isHorizontal) {
+            return isHorizontal
+                ? minWidth + constraints.insets.left
+                    + constraints.insets.right
+                : minHeight + constraints.insets.top
+                    + constraints.insets.bottom;
+        }
+    }
+
+    /**
+        Sizes of columns or rows, and the entries in each.
+     */
+    protected static class Axis {
+        protected final boolean _isHorizontal;
+
+        // Entries only in one cell, by cell.
+        protected final List<Set<Entry>> _cellEntrySetList =
+            new ArrayList<>();
+
+        // Entries in more than one cell.
+        protected final Set<Entry> _spanEntrySet = new LinkedHashSet<>();
+
+        // Sizes from entries only in each cell.
+        protected int[] _basePrefSizes = new int[0];
+        protected int[] _baseMinSizes = new int[0];
+        protected boolean[] _isBaseUsed = new boolean[0];
+
+        protected final BitSet _dirtyCells = new BitSet();
+        protected boolean _isSpanDirty = false;
+
+        // Sizes including entries in more than one cell.
+        protected int _cellCnt = 0;
+        protected int[] _prefSizes = new int[0];
+        protected int[] _minSizes = new int[0];
+        protected boolean[] _isUsed = new boolean[0];
+        protected int _usedCnt = 0;
+        protected int _prefTotal = 0;
+        protected int _minTotal = 0;
+
+        public Axis(final boolean isHorizontal) {
+            _isHorizontal = isHorizontal;
+        }
+
+        public void add(final Entry entry) {
+            final int start = entry.getStart(_isHorizontal);
+            if (1 < entry.getSize(_isHorizontal)) {
+                _spanEntrySet.add(entry);
+                _isSpanDirty = true;
+            } else {
+                ensureCells(start + 1);
+                _cellEntrySetList.get(start).add(entry);
+                _dirtyCells.set(start);
+            }
+        }
+
+        public void remove(final Entry entry) {
+            final int start = entry.getStart(_isHorizontal);
+            if (1 < entry.getSize(_isHorizontal)) {
+                _spanEntrySet.remove(entry);
+                _isSpanDirty = true;
+            } else {
+                _cellEntrySetList.get(start).remove(entry);
+                _dirtyCells.set(start);
+            }
+        }
+
+        /**
+            Entry size changed, cells it's in need to be worked out again.
+         */
+        public void changed(final Entry entry) {
+            if (1 < entry.getSize(_isHorizontal)) {
+                _isSpanDirty = true;
+            } else {
+                _dirtyCells.set(entry.getStart(_isHorizontal));
+            }
+        }
+
+        protected void ensureCells(final int cellLim) {
+            while (_cellEntrySetList.size() < cellLim) {
+                _cellEntrySetList.add(new LinkedHashSet<>());
+            }
+            if (_basePrefSizes.length < cellLim) {
+                final int newLength =
+                    Math.max(cellLim, _basePrefSizes.length * 2);
+
+                _basePrefSizes = Arrays.copyOf(_basePrefSizes, newLength);
+                _baseMinSizes = Arrays.copyOf(_baseMinSizes, newLength);
+                _isBaseUsed = Arrays.copyOf(_isBaseUsed, newLength);
+            }
+        }
+
+        /**
+            Work out sizes of cells which changed.
+         */
+        public void update() {
+            if (_dirtyCells.isEmpty() && !_isSpanDirty) {
+                return;
+            }
+            for (int cell = _dirtyCells.nextSetBit(0);
+                cell >= 0;
+                cell = _dirtyCells.nextSetBit(cell + 1))
+            {
+                int prefSize = 0;
+                int minSize = 0;
+                boolean isUsed = false;
+                for (final Entry entry : _cellEntrySetList.get(cell)) {
+                    if (entry.isVisible) {
+                        prefSize =
+                            Math.max(
+                                prefSize, entry.getPrefSize(_isHorizontal)
+                            );
+                        minSize =
+                            Math.max(minSize, entry.getMinSize(_isHorizontal));
+                        isUsed = true;
+                    }
+                }
+                _basePrefSizes[cell] = prefSize;
+                _baseMinSizes[cell] = minSize;
+                _isBaseUsed[cell] = isUsed;
+            }
+            _dirtyCells.clear();
+            _isSpanDirty = false;
+
+            // Cells up to the last one used.
+            int cellCnt = _cellEntrySetList.size();
+            while ((0 < cellCnt) && !_isBaseUsed[cellCnt - 1]) {
+                cellCnt--;
+            }
+            for (final Entry entry : _spanEntrySet) {
+                if (entry.isVisible) {
+                    cellCnt =
+                        Math.max(
+                            cellCnt,
+                            entry.getStart(_isHorizontal)
+                                + entry.getSize(_isHorizontal)
+                        );
+                }
+            }
+            _cellCnt = cellCnt;
+            _prefSizes = Arrays.copyOf(_basePrefSizes, cellCnt);
+            _minSizes = Arrays.copyOf(_baseMinSizes, cellCnt);
+            _isUsed = Arrays.copyOf(_isBaseUsed, cellCnt);
+
+            // Entries in more than one cell make the cells they're in big
+            // enough for them, shared by cells which get extra space. Same
+            // as GridBagLayout: shortest first, then in the order added,
+            // and an entry in cells with no others gives extra space to
+            // its last cell.
+            final List<Entry> spanEntryList = new ArrayList<>();
+            for (final Entry entry : _spanEntrySet) {
+                if (entry.isVisible) {
+                    spanEntryList.add(entry);
+                }
+            }
+            spanEntryList.sort(
+                Comparator
+                    .comparingInt(
+                        (Entry entry) -> entry.getSize(_isHorizontal)
+                    )
+                    .thenComparingInt(entry -> entry.addIdx)
+            );
+            for (final Entry entry : spanEntryList) {
+                final int start = entry.getStart(_isHorizontal);
+                final int lim = start + entry.getSize(_isHorizontal);
+
+                if (0 == getUsedCnt(start, lim)) {
+                    _isUsed[lim - 1] = true;
+                }
+                spread(
+                    _prefSizes, start, lim, entry.getPrefSize(_isHorizontal)
+                );
+                spread(
+                    _minSizes, start, lim, entry.getMinSize(_isHorizontal)
+                );
+            }
+
+            _usedCnt = getUsedCnt(0, cellCnt);
+            _prefTotal = 0;
+            _minTotal = 0;
+            for (int cell = 0; cell < cellCnt; cell++) {
+                _prefTotal += _prefSizes[cell];
+                _minTotal += _minSizes[cell];
+            }
+        }
+
+        protected int getUsedCnt(final int start, final int lim) {
+            int usedCnt = 0;
+            for (int cell = start; cell < lim; cell++) {
+                if (_isUsed[cell]) {
+                    usedCnt++;
+                }
+            }
+            return usedCnt;
+        }
+
+        /**
+            Make cells from start to lim add up to at least size. What's
+            missing is shared by used cells, any left over from rounding
+            going to the last cell.
+         */
+        protected void spread(
+            final int[] sizes, final int start, final int lim, final int size
+        ) {
+            int missing = size;
+            for (int cell = start; cell < lim; cell++) {
+                missing -= sizes[cell];
+            }
+            if (0 >= missing) {
+                return;
+            }
+            int usedCnt = getUsedCnt(start, lim);
+            for (int cell = start; cell < lim; cell++) {
+                if (_isUsed[cell]) {
+                    final int share = missing / usedCnt;
+                    sizes[cell] += share;
+                    missing -= share;
+                    usedCnt--;
+                }
+            }
+            sizes[lim - 1] += missing;
+        }
+
+        /**
+            Cell starts for the space available, with one more for the
+            end of the last cell. Sizes start from preferred or minimum
+            sizes, and the difference from the space available is shared
+            equally by used cells. What's left from rounding is split
+            before and after the first and last cell.
+         */
+        public int[] layout(final int available, final boolean isPref) {
+            final int[] sizes =
+                Arrays.copyOf(isPref ? _prefSizes : _minSizes, _cellCnt);
+
+            int total = isPref ? _prefTotal : _minTotal;
+            final int extra = available - total;
+            if ((0 < _usedCnt) && (0 != extra)) {
+                final int share = extra / _usedCnt;
+                for (int cell = 0; cell < _cellCnt; cell++) {
+                    if (_isUsed[cell]) {
+                        sizes[cell] += share;
+                        total += share;
+                        if (0 > sizes[cell]) {
+                            total -= sizes[cell];
+                            sizes[cell] = 0;
+                        }
+                    }
+                }
+            }
+            final int[] starts = new int[_cellCnt + 1];
+            starts[0] = (available - total) / 2;
+            for (int cell = 0; cell < _cellCnt; cell++) {
+                starts[cell + 1] = starts[cell] + sizes[cell];
+            }
+            return starts;
+        }
+
+        public int getPrefTotal() {
+            return _prefTotal;
+        }
+
+        public int getMinTotal() {
+            return _minTotal;
+        }
+    }
+
+    protected final Map<Component, Entry> _entryMap = new LinkedHashMap<>();
+
+    protected final Axis _columns = new Axis(true);
+    protected final Axis _rows = new Axis(false);
+
+    // Number of components added, to keep entries in the order added.
+    protected int _addCnt = 0;
+
+    // Component sizes need to be checked.
+    protected boolean _isInvalid = true;
+
+    /**
+        Set constraints of a component already added. Only its cells are
+        worked out again.
+     */
+    public void setConstraints(
+        final Component component,
+        final GridBagConstraints constraints
+    ) {
+        final Entry entry = _entryMap.get(component);
+        if (null == entry) {
+            addLayoutComponent(component, constraints);
+            return;
+        }
+        _columns.remove(entry);
+        _rows.remove(entry);
+        entry.constraints = copyConstraints(constraints);
+        _columns.add(entry);
+        _rows.add(entry);
+    }
+
+    /**
+        Copy of constraints of component, or null if it wasn't added.
+     */
+    public GridBagConstraints getConstraints(final Component component) {
+        final Entry entry = _entryMap.get(component);
+        if (null == entry) {
+            return null;
+        }
+        return (GridBagConstraints)entry.constraints.clone();
+    }
+
+    protected static GridBagConstraints copyConstraints(
+        final GridBagConstraints constraints
+    ) {
+        final GridBagConstraints copy =
+            (null != constraints)
+                ? (GridBagConstraints)constraints.clone()
+                : new GridBagConstraints();
+
+        copy.insets = (Insets)copy.insets.clone();
+
+        // Relative positions aren't used by LayoutItem.
+        copy.gridx = Math.max(0, copy.gridx);
+        copy.gridy = Math.max(0, copy.gridy);
+        copy.gridwidth = Math.max(1, copy.gridwidth);
+        copy.gridheight = Math.max(1, copy.gridheight);
+
+        return copy;
+    }
+
+    public void addLayoutComponent(
+        final Component component, final Object constraints
+    ) {
+        if ( (null != constraints)
+          && !(constraints instanceof GridBagConstraints) )
+        {
+            throw new IllegalArgumentException(
+                "Constraints must be GridBagConstraints"
+            );
+        }
+        if (_entryMap.containsKey(component)) {
+            setConstraints(component, (GridBagConstraints)constraints);
+            return;
+        }
+        final Entry entry =
+            new Entry(
+                component,
+                _addCnt++,
+                copyConstraints((GridBagConstraints)constraints)
+            );
+        _entryMap.put(component, entry);
+        _columns.add(entry);
+        _rows.add(entry);
+        _isInvalid = true;
+    }
+
+    public void addLayoutComponent(
+        final String name, final Component component
+    ) {
+        addLayoutComponent(component, null);
+    }
+
+    public void removeLayoutComponent(final Component component) {
+        final Entry entry = _entryMap.remove(component);
+        if (null == entry) {
+            return;
+        }
+        _columns.remove(entry);
+        _rows.remove(entry);
+    }
+
+    public void invalidateLayout(final Container target) {
+        _isInvalid = true;
+    }
+
+    /**
+        Check sizes of components which may have changed, and work out
+        sizes of cells with components which changed. Same as
+        Component.getPreferredSize(), a component which is still valid is
+        taken to be the same size, so only invalid components, and
+        components shown or hidden, are asked for their sizes again.
+     */
+    protected void update(final Container parent) {
+        // A component can be invalidated while the parent is already
+        // invalid, without the layout being told.
+        if (_isInvalid || !parent.isValid()) {
+            for (final Entry entry : _entryMap.values()) {
+                updateEntry(entry);
+            }
+            _isInvalid = false;
+        }
+        _columns.update();
+        _rows.update();
+    }
+
+    protected void updateEntry(final Entry entry) {
+        final Component component = entry.component;
+        final boolean isVisible = component.isVisible();
+
+        if ( entry.isSizeKnown
+          && component.isValid()
+          && (isVisible == entry.isVisible) )
+        {
+            return;
+        }
+        entry.isSizeKnown = true;
+
+        int prefWidth = 0;
+        int prefHeight = 0;
+        int minWidth = 0;
+        int minHeight = 0;
+        if (isVisible) {
+            final Dimension prefSize = component.getPreferredSize();
+            final Dimension minSize = component.getMinimumSize();
+
+            prefWidth = prefSize.width;
+            prefHeight = prefSize.height;
+            minWidth = minSize.width;
+            minHeight = minSize.height;
+        }
+        if (isVisible != entry.isVisible) {
+            entry.isVisible = isVisible;
+            _columns.changed(entry);
+            _rows.changed(entry);
+        }
+        if ((prefWidth != entry.prefWidth) || (minWidth != entry.minWidth)) {
+            entry.prefWidth = prefWidth;
+            entry.minWidth = minWidth;
+            _columns.changed(entry);
+        }
+        if ( (prefHeight != entry.prefHeight)
+          || (minHeight != entry.minHeight) )
+        {
+            entry.prefHeight = prefHeight;
+            entry.minHeight = minHeight;
+            _rows.changed(entry);
+        }
+    }
+
+    public Dimension preferredLayoutSize(final Container parent) {
+        synchronized (parent.getTreeLock()) {
+            update(parent);
+
+            final Insets insets = parent.getInsets();
+            return new Dimension(
+                _columns.getPrefTotal() + insets.left + insets.right,
+                _rows.getPrefTotal() + insets.top + insets.bottom
+            );
+        }
+    }
+
+    public Dimension minimumLayoutSize(final Container parent) {
+        synchronized (parent.getTreeLock()) {
+            update(parent);
+
+            final Insets insets = parent.getInsets();
+            return new Dimension(
+                _columns.getMinTotal() + insets.left + insets.right,
+                _rows.getMinTotal() + insets.top + insets.bottom
+            );
+        }
+    }
+
+    public Dimension maximumLayoutSize(final Container target) {
+        return new Dimension(Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    public float getLayoutAlignmentX(final Container target) {
+        return 0.5f;
+    }
+
+    public float getLayoutAlignmentY(final Container target) {
+        return 0.5f;
+    }
+
+    public void layoutContainer(final Container parent) {
+        synchronized (parent.getTreeLock()) {
+            update(parent);
+
+            final Insets insets = parent.getInsets();
+            final int width =
+                parent.getWidth() - insets.left - insets.right;
+            final int height =
+                parent.getHeight() - insets.top - insets.bottom;
+
+            // Minimum sizes if there isn't room for preferred sizes either
+            // way.
+            final boolean isPref =
+                (_columns.getPrefTotal() <= width)
+                && (_rows.getPrefTotal() <= height);
+
+            final int[] columnStarts = _columns.layout(width, isPref);
+            final int[] rowStarts = _rows.layout(height, isPref);
+
+            final boolean isLeftToRight =
+                parent.getComponentOrientation().isLeftToRight();
+
+            for (final Entry entry : _entryMap.values()) {
+                if (!entry.isVisible) {
+                    continue;
+                }
+                final GridBagConstraints constraints = entry.constraints;
+                final Insets componentInsets = constraints.insets;
+
+                final int columnStart = columnStarts[constraints.gridx];
+                final int cellWidth =
+                    columnStarts[constraints.gridx + constraints.gridwidth]
+                        - columnStart;
+                final int rowStart = rowStarts[constraints.gridy];
+                final int cellHeight =
+                    rowStarts[constraints.gridy + constraints.gridheight]
+                        - rowStart;
+
+                // Columns are mirrored right to left.
+                final int cellX =
+                    isLeftToRight
+                        ? insets.left + columnStart
+                        : parent.getWidth() - insets.right
+                            - columnStart - cellWidth;
+                final int cellY = insets.top + rowStart;
+
+                final int areaX =
+                    cellX
+                        + ( isLeftToRight
+                            ? componentInsets.left
+                            : componentInsets.right );
+                final int areaY = cellY + componentInsets.top;
+                final int areaWidth =
+                    Math.max(
+                        0,
+                        cellWidth - componentInsets.left
+                            - componentInsets.right
+                    );
+                final int areaHeight =
+                    Math.max(
+                        0,
+                        cellHeight - componentInsets.top
+                            - componentInsets.bottom
+                    );
+
+                final boolean isFillHorizontal =
+                    (GridBagConstraints.BOTH == constraints.fill)
+                    || (GridBagConstraints.HORIZONTAL == constraints.fill);
+                final boolean isFillVertical =
+                    (GridBagConstraints.BOTH == constraints.fill)
+                    || (GridBagConstraints.VERTICAL == constraints.fill);
+
+                // Not filled, size used for cells if there's room.
+                int componentWidth =
+                    isFillHorizontal
+                        ? areaWidth
+                        : Math.min(
+                            isPref ? entry.prefWidth : entry.minWidth,
+                            areaWidth
+                        );
+                int componentHeight =
+                    isFillVertical
+                        ? areaHeight
+                        : Math.min(
+                            isPref ? entry.prefHeight : entry.minHeight,
+                            areaHeight
+                        );
+
+                int x =
+                    areaX
+                        + align(
+                            getHorizontalAlign(
+                                constraints.anchor, isLeftToRight
+                            ),
+                            areaWidth - componentWidth
+                        );
+                int y =
+                    areaY
+                        + align(
+                            getVerticalAlign(constraints.anchor),
+                            areaHeight - componentHeight
+                        );
+
+                // Same as GridBagLayout, cut off anything before the
+                // container, and hide anything with no room.
+                if (0 > x) {
+                    componentWidth += x;
+                    x = 0;
+                }
+                if (0 > y) {
+                    componentHeight += y;
+                    y = 0;
+                }
+                if ((0 >= componentWidth) || (0 >= componentHeight)) {
+                    entry.component.setBounds(0, 0, 0, 0);
+                } else {
+                    entry.component.setBounds(
+                        x, y, componentWidth, componentHeight
+                    );
+                }
+            }
+        }
+    }
+
+    // Alignment in a cell: start, center, or end.
+    protected static final int ALIGN_START = -1;
+    protected static final int ALIGN_CENTER = 0;
+    protected static final int ALIGN_END = 1;
+
+    protected static int align(final int alignment, final int space) {
+        switch (alignment) {
+          case ALIGN_START:
+            return 0;
+          case ALIGN_END:
+            return space;
+          default:
+            return space / 2;
+        }
+    }
+
+    protected static int getHorizontalAlign(
+        final int anchor, final boolean isLeftToRight
+    ) {
+        final int lineStart = isLeftToRight ? ALIGN_START : ALIGN_END;
+        final int lineEnd = isLeftToRight ? ALIGN_END : ALIGN_START;
+
+        switch (anchor) {
+          case GridBagConstraints.WEST:
+          case GridBagConstraints.NORTHWEST:
+          case GridBagConstraints.SOUTHWEST:
+            return ALIGN_START;
+          case GridBagConstraints.EAST:
+          case GridBagConstraints.NORTHEAST:
+          case GridBagConstraints.SOUTHEAST:
+            return ALIGN_END;
+          case GridBagConstraints.LINE_START:
+          case GridBagConstraints.FIRST_LINE_START:
+          case GridBagConstraints.LAST_LINE_START:
+            return lineStart;
+          case GridBagConstraints.LINE_END:
+          case GridBagConstraints.FIRST_LINE_END:
+          case GridBagConstraints.LAST_LINE_END:
+            return lineEnd;
+          default:
+            return ALIGN_CENTER;
+        }
+    }
+
+    protected static int getVerticalAlign(final int anchor) {
+        switch (anchor) {
+          case GridBagConstraints.NORTH:
+          case GridBagConstraints.NORTHWEST:
+          case GridBagConstraints.NORTHEAST:
+          case GridBagConstraints.PAGE_START:
+          case GridBagConstraints.FIRST_LINE_START:
+          case GridBagConstraints.FIRST_LINE_END:
+            return ALIGN_START;
+          case GridBagConstraints.SOUTH:
+          case GridBagConstraints.SOUTHWEST:
+          case GridBagConstraints.SOUTHEAST:
+          case GridBagConstraints.PAGE_END:
+          case GridBagConstraints.LAST_LINE_START:
+          case GridBagConstraints.LAST_LINE_END:
+            return ALIGN_END;
+          default:
+            return ALIGN_CENTER;
+        }
+    }
+}
@@ -19,6 +19,18 @@ public class ItemSource {
         final CommandInfo commandInfo,
         final TextLibrary textLibrary,
         final MessageExchange messageExchange
+    ) {
+        return newItem(
+            commandInfo, textLibrary, messageExchange, false, false
+        );
+    }
+
+    public static Item newItem(
+        final CommandInfo commandInfo,
+        final TextLibrary textLibrary,
+        final MessageExchange messageExchange,
+        final boolean contentDeltas,
+        final boolean selectionRanges
     ) {
         final var itemInfo = commandInfo.getItemInfo();
         final var guiInfo = itemInfo.getGUIInfo();
@@ -49,10 +61,18 @@ public class ItemSource {
             break;
           case SELECTION:
             guiItem =
-                SelectionSource.newItem(commandInfo, textLibrary, messageExchange);
+                SelectionSource.newItem(
+                    commandInfo, textLibrary, messageExchange, selectionRanges
+                );
+            break;
+          case TEXTPANEL:
+            guiItem = new TextPanelItem(commandInfo);
             break;
           case TEXTFIELD:
-            guiItem = new TextFieldItem(commandInfo, messageExchange);
+            guiItem =
+                new TextFieldItem(
+                    commandInfo, messageExchange, contentDeltas
+                );
             break;
           case WINDOW:
             guiItem = new WindowItem(commandInfo, messageExchange);
@@ -3,8 +3,16 @@ package hicp_client.gui;
 import java.awt.Component;
 import java.awt.GridBagConstraints;
 import java.awt.Insets;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.SwingUtilities;
@@ -21,12 +29,32 @@ public abstract class LayoutItem
 
     public final static int POSITION_LIMIT = 255;
 
-    protected final SizeInfo[][] _positionGrid =
-        new SizeInfo
-            [POSITION_LIMIT]
-            [POSITION_LIMIT];
+    // Item at each position, only for positions which have one.
+    protected final NavigableMap<Integer, SizeInfo> _positionMap =
+        new TreeMap<>();
 
-    protected List<SizeInfo> _itemSizeList = new LinkedList<>();
+    // Areas filled by items, and areas whose filling decides their sizes,
+    // kept between size adjustments.
+    protected final OccupiedGrid _fillGrid = new OccupiedGrid();
+    protected final OccupiedGrid _dependGrid = new OccupiedGrid();
+
+    // Limits of item positions and of items with sizes, counted so they
+    // can be taken away again.
+    protected final NavigableMap<Integer, Integer> _horizontalLimCounts =
+        new TreeMap<>();
+    protected final NavigableMap<Integer, Integer> _verticalLimCounts =
+        new TreeMap<>();
+
+    // Number of items added, to keep components in the order added.
+    protected int _addCnt = 0;
+
+    // Limits used for sizes of items with size 0.
+    protected int _maxHorizontalLim = 1;
+    protected int _maxVerticalLim = 1;
+
+    // Items whose sizes need to be worked out, in the order they are.
+    protected final NavigableSet<SizeInfo> _resizeSet =
+        new TreeSet<>(Comparator.comparingInt(sizeInfo -> sizeInfo.order));
 
     protected LayoutItem(final CommandInfo commandInfo) {
         super(commandInfo);
@@ -66,16 +94,30 @@ public abstract class LayoutItem
 
         // Add to item size list.
         final SizeInfo sizeInfo = new SizeInfo(guiItem);
+        sizeInfo.addIdx = _addCnt++;
+
+        // Add to position map.
+        final SizeInfo oldSizeInfo =
+            _positionMap.put(
+                positionKey(
+                    positionInfo.horizontalPosition,
+                    positionInfo.verticalPosition
+                ),
+                sizeInfo
+            );
+        if (null != oldSizeInfo) {
+            // Replaced, its component stays but no longer takes up space.
+            discardSizeInfo(oldSizeInfo);
+            removePositionCounts(oldSizeInfo);
+        }
+        addCount(_horizontalLimCounts, positionInfo.horizontalPosition + 1);
+        addCount(_verticalLimCounts, positionInfo.verticalPosition + 1);
 
-        // Add to position grid.
-        _positionGrid
-            [positionInfo.horizontalPosition]
-            [positionInfo.verticalPosition] = sizeInfo;
-
-        _itemSizeList.add(sizeInfo);
+        _resizeSet.add(sizeInfo);
 
-        // Adjust all sizes. This will perform actual component add.
-        adjustSizes();
+        // Adjust sizes. This will perform actual component add, maybe
+        // after other components in the same batch are added.
+        LayoutTransaction.adjustSizes(this);
     }
 
     protected void removePositionable(final Positionable guiItem) {
@@ -87,331 +129,112 @@ public abstract class LayoutItem
         final int horizontalPosition = positionInfo.horizontalPosition;
         final int verticalPosition = positionInfo.verticalPosition;
 
-        final SizeInfo sizeInfo =
-            _positionGrid[horizontalPosition][verticalPosition];
+        // If it was replaced by another item at its position, it's already
+        // been discarded.
+        final int key = positionKey(horizontalPosition, verticalPosition);
+        final SizeInfo sizeInfo = _positionMap.get(key);
+        if ((null != sizeInfo) && (guiItem == sizeInfo.guiItem)) {
+            _positionMap.remove(key);
+            discardSizeInfo(sizeInfo);
+            removePositionCounts(sizeInfo);
+        }
 
-        _positionGrid[horizontalPosition][verticalPosition] = null;
+        LayoutTransaction.adjustSizes(this);
+    }
 
-        _itemSizeList.remove(sizeInfo);
+    /** Stop counting the position of an item as a limit. */
+    protected void removePositionCounts(final SizeInfo sizeInfo) {
+        final PositionInfo positionInfo = sizeInfo.guiItem.getPositionInfo();
 
-        adjustSizes();
+        removeCount(
+            _horizontalLimCounts, positionInfo.horizontalPosition + 1
+        );
+        removeCount(_verticalLimCounts, positionInfo.verticalPosition + 1);
     }
 
     protected abstract void removeComponent(Component component);
 
+    /**
+        Add component with constraints, or if already added, change its
+        constraints.
+     */
     protected abstract void addComponent(
             Component component, GridBagConstraints gridBagConstraints
         );
 
+    /**
+        Work out sizes of items which were added, or which could be
+        affected by items added, removed, or resized since last time, and
+        re-add components whose size changed.
+
+        Each item is expanded to its full defined size, truncated by items
+        after it, items with both sizes at least 1 first. Then items with a
+        size of 0 expand to the limits of all items, truncated by all items
+        with sizes and by items with size 0 after them. Items with other
+        sizes are 1 by 1.
+
+        Each item keeps the area it fills and the area whose filling
+        decides its size, so only items depending on an area which changed
+        are worked out again, in the same order.
+     */
     protected Item adjustSizes() {
-        final SizeInfo[][] sizeGrid =
-            new SizeInfo[POSITION_LIMIT][POSITION_LIMIT];
-
-        int maxHorizontal = 0;
-        int maxVertical = 0;
+        final List<SizeInfo> resizedList = new ArrayList<>();
 
-        for (final var sizeInfo : _itemSizeList) {
-            sizeInfo.oldHorizontalSize = sizeInfo.horizontalSize;
-            sizeInfo.oldVerticalSize = sizeInfo.verticalSize;
-
-            final Positionable guiItem = sizeInfo.guiItem;
-            final PositionInfo positionInfo = guiItem.getPositionInfo();
-
-            final int horizontalPosition = positionInfo.horizontalPosition;
-            final int verticalPosition = positionInfo.verticalPosition;
+        // Items with both sizes at least 1, and items which are always 1 by
+        // 1.
+        while ( !_resizeSet.isEmpty()
+             && (SizeInfo.SIZED_PHASE == _resizeSet.first().phase) )
+        {
+            resize(_resizeSet.pollFirst(), resizedList);
+        }
 
-            if (horizontalPosition > maxHorizontal) {
-                maxHorizontal = horizontalPosition;
-            }
-            if (verticalPosition > maxVertical) {
-                maxVertical = verticalPosition;
+        // Limits of all items are only known now.
+        final int maxHorizontalLim = getMaxLim(_horizontalLimCounts);
+        final int maxVerticalLim = getMaxLim(_verticalLimCounts);
+        if ( (maxHorizontalLim != _maxHorizontalLim)
+          || (maxVerticalLim != _maxVerticalLim) )
+        {
+            // Size 0 items which reached a limit, or which go past the new
+            // one, need to be worked out again.
+            final int horizontalReachLim =
+                (maxHorizontalLim != _maxHorizontalLim)
+                    ? Math.min(maxHorizontalLim, _maxHorizontalLim)
+                    : Integer.MAX_VALUE;
+            final int verticalReachLim =
+                (maxVerticalLim != _maxVerticalLim)
+                    ? Math.min(maxVerticalLim, _maxVerticalLim)
+                    : Integer.MAX_VALUE;
+
+            for (final SizeInfo sizeInfo : _positionMap.values()) {
+                if ( (SizeInfo.ZERO_PHASE == sizeInfo.phase)
+                  && ( (sizeInfo.horizontalReach >= horizontalReachLim)
+                    || (sizeInfo.verticalReach >= verticalReachLim) ) )
+                {
+                    _resizeSet.add(sizeInfo);
+                }
             }
+            _maxHorizontalLim = maxHorizontalLim;
+            _maxVerticalLim = maxVerticalLim;
         }
 
-        int maxHorizontalLim = maxHorizontal + 1;
-        int maxVerticalLim = maxVertical + 1;
+        // Items with a size of 0.
+        while (!_resizeSet.isEmpty()) {
+            resize(_resizeSet.pollFirst(), resizedList);
+        }
 
-        // Expand each item to its full defined size, in backwards
-        // order, to see which items truncate which.
-        for (int verticalPosition = maxVertical;
-            verticalPosition >= 0;
-            verticalPosition--)
-        {
-            for (int horizontalPosition = maxHorizontal;
-                horizontalPosition >= 0;
-                horizontalPosition--)
-            {
-                final SizeInfo sizeInfo =
-                    _positionGrid[horizontalPosition][verticalPosition];
-
-                if (null != sizeInfo) {
-                    final Positionable guiItem = sizeInfo.guiItem;
-                    final PositionInfo positionInfo = guiItem.getPositionInfo();
-
-                    if ( (1 <= positionInfo.horizontalSize)
-                      && (1 <= positionInfo.verticalSize) )
-                    {
-                        // Calculate initial limits.
-                        int horizontalLim =
-                            horizontalPosition + positionInfo.horizontalSize;
-                        if (horizontalLim == horizontalPosition) {
-                            // Size of 0, treat it as 1.
-                            horizontalLim++;
-                        }
-                        if (horizontalLim > POSITION_LIMIT) {
-                            horizontalLim = POSITION_LIMIT;
-                        }
-
-                        int verticalLim =
-                            verticalPosition + positionInfo.verticalSize;
-                        if (verticalLim == verticalPosition) {
-                            // Size of 0, treat it as 1.
-                            verticalLim++;
-                        }
-                        if (verticalLim > POSITION_LIMIT) {
-                            verticalLim = POSITION_LIMIT;
-                        }
-
-                        // Find out if anything is already in that area,
-                        // truncate limits if so.
-adjustSizeLoop:
-                        for (int checkVertical = verticalPosition;
-                            checkVertical < verticalLim;
-                            checkVertical++)
-                        {
-                            for (int checkHorizontal = horizontalPosition;
-                                checkHorizontal < horizontalLim;
-                                checkHorizontal++)
-                            {
-                                if (null !=
-                                    sizeGrid[checkHorizontal][checkVertical])
-                                {
-                                    if (checkVertical == verticalPosition) {
-                                        // First row - truncate horizontally
-                                        // and continue.
-                                        horizontalLim = checkHorizontal;
-                                    } else {
-                                        // Not first row, truncate
-                                        // vertically and stop.
-                                        verticalLim = checkVertical;
-                                        break adjustSizeLoop;
-                                    }
-                                }
-                            }
-                        } // adjustSizeLoop:
-
-                        sizeInfo.horizontalSize = 
-                                horizontalLim - horizontalPosition;
-
-                        sizeInfo.verticalSize = 
-                                verticalLim - verticalPosition;
-
-                        // Now fill in the area.
-                        fillPositionGridArea(
-                            sizeGrid,
-                            sizeInfo,
-                            horizontalPosition,
-                            horizontalLim,
-                            verticalPosition,
-                            verticalLim
-                        );
-
-                        if (maxHorizontalLim < horizontalLim) {
-                            maxHorizontalLim = horizontalLim;
-                        }
-                        if (maxVerticalLim < verticalLim) {
-                            maxVerticalLim = verticalLim;
-                        }
-                    } else {
-                        sizeInfo.horizontalSize =  1;
-                        sizeInfo.verticalSize =  1;
-                    }
-                } // if (null != sizeInfo)
-
-            } // for (int horizontalPosition = maxHorizontal; ...)
-
-        } // for (int verticalPosition = maxVertical; ...)
-
-        // Do the same (more or less) for size 0.
-        for (int verticalPosition = maxVertical;
-            verticalPosition >= 0;
-            verticalPosition--)
-        {
-            for (int horizontalPosition = maxHorizontal;
-                horizontalPosition >= 0;
-                horizontalPosition--)
-            {
-                final SizeInfo sizeInfo =
-                    _positionGrid[horizontalPosition][verticalPosition];
-
-                if (null != sizeInfo) {
-                    final Positionable guiItem = sizeInfo.guiItem;
-                    final PositionInfo positionInfo = guiItem.getPositionInfo();
-
-                    if ( (0 == positionInfo.horizontalSize)
-                      && (0 != positionInfo.verticalSize) )
-                    {
-                        // Find new horizontal size.
-
-                        // Initial horizontal limit is window limit.
-                        int horizontalLim = maxHorizontalLim;
-
-                        // Vertical limit is from vertical size, not
-                        // changed.
-                        final int verticalLim = sizeInfo.verticalSize + 1;
-
-                        // Find out if anything is already in that area,
-                        // truncate limits if so.
-                        final int horizontalStart = horizontalPosition + 1;
-                        final int verticalStart = verticalPosition;
-adjustZeroHorizSizeLoop:
-                        for (int checkHorizontal = horizontalStart;
-                            checkHorizontal < horizontalLim;
-                            checkHorizontal++)
-                        {
-                            for (int checkVertical = verticalStart;
-                                checkVertical < verticalLim;
-                                checkVertical++)
-                            {
-                                if (null !=
-                                    sizeGrid[checkHorizontal][checkVertical])
-                                {
-                                    horizontalLim = checkHorizontal;
-                                    break adjustZeroHorizSizeLoop;
-                                }
-                            }
-                        } // adjustZeroHorizSizeLoop:
-
-                        sizeInfo.horizontalSize = 
-                                horizontalLim - horizontalPosition;
-
-                        // Now fill in the area.
-                        fillPositionGridArea(
-                            sizeGrid,
-                            sizeInfo,
-                            horizontalStart,
-                            horizontalLim,
-                            verticalStart,
-                            verticalLim
-                        );
-                    } else if ( (0 != positionInfo.horizontalSize)
-                        && (0 == positionInfo.verticalSize) )
-                    {
-                        // Find new vertical size.
-
-                        // Horizontal limit is from horizontal size, not
-                        // changed.
-                        final int horizontalLim = sizeInfo.horizontalSize + 1;
-
-                        // Initial vertical limit is window limit.
-                        int verticalLim = maxVerticalLim;
-
-                        // Find out if anything is already in that area,
-                        // truncate limits if so.
-                        final int horizontalStart = horizontalPosition;
-                        final int verticalStart = verticalPosition + 1;
-adjustZeroVertSizeLoop:
-                        for (int checkVertical = verticalStart;
-                            checkVertical < verticalLim;
-                            checkVertical++)
-                        {
-                            for (int checkHorizontal = horizontalStart;
-                                checkHorizontal < horizontalLim;
-                                checkHorizontal++)
-                            {
-                                if (null !=
-                                    sizeGrid[checkHorizontal][checkVertical])
-                                {
-                                    verticalLim = checkVertical;
-                                    break adjustZeroVertSizeLoop;
-                                }
-                            }
-                        } // adjustZeroVertSizeLoop:
-
-                        sizeInfo.verticalSize = verticalLim - verticalPosition;
-
-                        // Now fill in the area.
-                        fillPositionGridArea(
-                            sizeGrid,
-                            sizeInfo,
-                            horizontalStart,
-                            horizontalLim,
-                            verticalStart,
-                            verticalLim
-                        );
-                    } else if ( (0 == positionInfo.horizontalSize)
-                        && (0 == positionInfo.verticalSize) )
-                    {
-                        // Adjust both sizes.
-
-                        // Initial limits are window limits.
-                        int horizontalLim = maxHorizontalLim;
-                        int verticalLim = maxVerticalLim;
-
-                        // Find out if anything is already in that area,
-                        // truncate limits if so.
-adjustZeroSizeLoop:
-                        for (int checkVertical = verticalPosition;
-                            checkVertical < verticalLim;
-                            checkVertical++)
-                        {
-                            for (int checkHorizontal = horizontalPosition;
-                                checkHorizontal < horizontalLim;
-                                checkHorizontal++)
-                            {
-                                if (null !=
-                                    sizeGrid[checkHorizontal][checkVertical])
-                                {
-                                    if (checkVertical == verticalPosition) {
-                                        // First row - truncate horizontally
-                                        // and continue.
-                                        horizontalLim = checkHorizontal;
-                                    } else {
-                                        // Not first row, truncate
-                                        // vertically and stop.
-                                        verticalLim = checkVertical;
-
-                                        // Don't check rest of this row.
-                                        break adjustZeroSizeLoop;
-                                    }
-                                }
-                            }
-                        } // adjustZeroSizeLoop:
-
-                        sizeInfo.horizontalSize = 
-                                horizontalLim - horizontalPosition;
-
-                        sizeInfo.verticalSize = 
-                                verticalLim - verticalPosition;
-
-                        // Now fill in the area.
-                        fillPositionGridArea(
-                            sizeGrid,
-                            sizeInfo,
-                            horizontalPosition,
-                            horizontalLim,
-                            verticalPosition,
-                            verticalLim
-                        );
-                    }
-
-                } // if (null != sizeInfo)
-
-            } // for (int horizontalPosition = maxHorizontal; ...)
-
-        } // for (int verticalPosition = maxVertical; ...)
-
-        // Iterate through size list, any item that has changed size
-        // must be removed and re-added with the new size.
-        for (final var sizeInfo : _itemSizeList) {
+        // Any item that has changed size must be added, or have its
+        // constraints changed, with the new size, in the order they were
+        // added.
+        resizedList.sort(
+            Comparator.comparingInt(sizeInfo -> sizeInfo.addIdx)
+        );
+        for (final var sizeInfo : resizedList) {
             if ( (sizeInfo.oldHorizontalSize != sizeInfo.horizontalSize)
               || (sizeInfo.oldVerticalSize != sizeInfo.verticalSize) )
             {
                 final var guiItem = sizeInfo.guiItem;
                 final var positionInfo = guiItem.getPositionInfo();
 
-                removeComponent(guiItem.getComponent());
-
                 // Set layout parameters.
                 final GridBagConstraints gridBagConstraints =
                     new GridBagConstraints(
@@ -434,26 +257,310 @@ adjustZeroSizeLoop:
         return this;
     }
 
-    protected Item fillPositionGridArea(
-        final SizeInfo[][] sizeGrid,
-        final SizeInfo sizeInfo,
-        final int horizontalStart,
-        final int horizontalLim,
-        final int verticalStart,
-        final int verticalLim
+    /**
+        Work out the size of one item, from items before it in the order
+        sizes are worked out.
+     */
+    protected void resize(
+        final SizeInfo sizeInfo, final List<SizeInfo> resizedList
     ) {
-        for (int fillVertical = verticalStart;
-            fillVertical < verticalLim;
-            fillVertical++)
+        sizeInfo.oldHorizontalSize = sizeInfo.horizontalSize;
+        sizeInfo.oldVerticalSize = sizeInfo.verticalSize;
+        resizedList.add(sizeInfo);
+
+        final Positionable guiItem = sizeInfo.guiItem;
+        final PositionInfo positionInfo = guiItem.getPositionInfo();
+
+        final int horizontalPosition = positionInfo.horizontalPosition;
+        final int verticalPosition = positionInfo.verticalPosition;
+        final int order = sizeInfo.order;
+
+        if ( (1 <= positionInfo.horizontalSize)
+          && (1 <= positionInfo.verticalSize) )
         {
-            for (int fillHorizontal = horizontalStart;
-                fillHorizontal < horizontalLim;
-                fillHorizontal++)
+            // Calculate initial limits.
+            final int fullHorizontalLim =
+                Math.min(
+                    horizontalPosition + positionInfo.horizontalSize,
+                    POSITION_LIMIT
+                );
+            final int fullVerticalLim =
+                Math.min(
+                    verticalPosition + positionInfo.verticalSize,
+                    POSITION_LIMIT
+                );
+
+            // Find out if anything is already in that area, truncate limits
+            // if so. First row truncates horizontally, any other row
+            // truncates vertically.
+            final int horizontalLim =
+                _fillGrid.findFilled(
+                    verticalPosition,
+                    horizontalPosition,
+                    fullHorizontalLim,
+                    order
+                );
+            int verticalLim = fullVerticalLim;
+            for (int checkVertical = verticalPosition + 1;
+                checkVertical < verticalLim;
+                checkVertical++)
             {
-                sizeGrid[fillHorizontal][fillVertical] = sizeInfo;
+                if (_fillGrid.isFilled(
+                        checkVertical, horizontalPosition, horizontalLim, order
+                    ))
+                {
+                    verticalLim = checkVertical;
+                    break;
+                }
             }
+
+            sizeInfo.horizontalSize = horizontalLim - horizontalPosition;
+            sizeInfo.verticalSize = verticalLim - verticalPosition;
+
+            setAreas(
+                sizeInfo,
+                new GridArea(
+                    horizontalPosition, horizontalLim,
+                    verticalPosition, verticalLim
+                ),
+                // Up to and including the cells which truncated it.
+                new GridArea(
+                    horizontalPosition,
+                    Math.min(horizontalLim + 1, fullHorizontalLim),
+                    verticalPosition,
+                    Math.min(verticalLim + 1, fullVerticalLim)
+                )
+            );
+        } else if ( (0 == positionInfo.horizontalSize)
+            && (0 != positionInfo.verticalSize) )
+        {
+            // Find new horizontal size.
+
+            // Vertical limit is from vertical size, which is 1 for these,
+            // not changed.
+            sizeInfo.verticalSize = 1;
+            final int verticalLim = sizeInfo.verticalSize + 1;
+
+            // Initial horizontal limit is window limit, truncated at the
+            // first column with anything in it.
+            final int horizontalStart = horizontalPosition + 1;
+            final int verticalStart = verticalPosition;
+
+            int horizontalLim = _maxHorizontalLim;
+            for (int checkVertical = verticalStart;
+                checkVertical < verticalLim;
+                checkVertical++)
+            {
+                horizontalLim =
+                    _fillGrid.findFilled(
+                        checkVertical, horizontalStart, horizontalLim, order
+                    );
+            }
+
+            sizeInfo.horizontalSize = horizontalLim - horizontalPosition;
+            sizeInfo.horizontalReach = horizontalLim;
+
+            setAreas(
+                sizeInfo,
+                new GridArea(
+                    horizontalStart, horizontalLim,
+                    verticalStart, verticalLim
+                ),
+                new GridArea(
+                    horizontalStart,
+                    Math.min(horizontalLim + 1, _maxHorizontalLim),
+                    verticalStart, verticalLim
+                )
+            );
+        } else if ( (0 != positionInfo.horizontalSize)
+            && (0 == positionInfo.verticalSize) )
+        {
+            // Find new vertical size.
+
+            // Horizontal limit is from horizontal size, which is 1 for
+            // these, not changed.
+            sizeInfo.horizontalSize = 1;
+            final int horizontalLim = sizeInfo.horizontalSize + 1;
+
+            // Initial vertical limit is window limit, truncated at the
+            // first row with anything in it.
+            final int horizontalStart = horizontalPosition;
+            final int verticalStart = verticalPosition + 1;
+
+            int verticalLim = _maxVerticalLim;
+            for (int checkVertical = verticalStart;
+                checkVertical < verticalLim;
+                checkVertical++)
+            {
+                if (_fillGrid.isFilled(
+                        checkVertical, horizontalStart, horizontalLim, order
+                    ))
+                {
+                    verticalLim = checkVertical;
+                    break;
+                }
+            }
+
+            sizeInfo.verticalSize = verticalLim - verticalPosition;
+            sizeInfo.verticalReach = verticalLim;
+
+            setAreas(
+                sizeInfo,
+                new GridArea(
+                    horizontalStart, horizontalLim,
+                    verticalStart, verticalLim
+                ),
+                new GridArea(
+                    horizontalStart, horizontalLim,
+                    verticalStart,
+                    Math.min(verticalLim + 1, _maxVerticalLim)
+                )
+            );
+        } else if ( (0 == positionInfo.horizontalSize)
+            && (0 == positionInfo.verticalSize) )
+        {
+            // Adjust both sizes.
+
+            // Initial limits are window limits. First row truncates
+            // horizontally, any other row truncates vertically.
+            final int horizontalLim =
+                _fillGrid.findFilled(
+                    verticalPosition, horizontalPosition, _maxHorizontalLim,
+                    order
+                );
+            int verticalLim = _maxVerticalLim;
+            for (int checkVertical = verticalPosition + 1;
+                checkVertical < verticalLim;
+                checkVertical++)
+            {
+                if (_fillGrid.isFilled(
+                        checkVertical, horizontalPosition, horizontalLim, order
+                    ))
+                {
+                    verticalLim = checkVertical;
+                    break;
+                }
+            }
+
+            sizeInfo.horizontalSize = horizontalLim - horizontalPosition;
+            sizeInfo.verticalSize = verticalLim - verticalPosition;
+            sizeInfo.horizontalReach = horizontalLim;
+            sizeInfo.verticalReach = verticalLim;
+
+            setAreas(
+                sizeInfo,
+                new GridArea(
+                    horizontalPosition, horizontalLim,
+                    verticalPosition, verticalLim
+                ),
+                new GridArea(
+                    horizontalPosition,
+                    Math.min(horizontalLim + 1, _maxHorizontalLim),
+                    verticalPosition,
+                    Math.min(verticalLim + 1, _maxVerticalLim)
+                )
+            );
+        } else {
+            sizeInfo.horizontalSize =  1;
+            sizeInfo.verticalSize =  1;
         }
-        return this;
+    }
+
+    /**
+        Replace the areas an item fills and depends on. If the filled area
+        changed, items after it which depend on either the old or new area
+        are worked out again.
+     */
+    protected void setAreas(
+        final SizeInfo sizeInfo,
+        final GridArea fillArea,
+        final GridArea dependArea
+    ) {
+        if (!fillArea.equals(sizeInfo.fillArea)) {
+            _fillGrid.remove(sizeInfo, sizeInfo.fillArea);
+            _fillGrid.add(sizeInfo, fillArea);
+
+            addDependents(sizeInfo, sizeInfo.fillArea);
+            addDependents(sizeInfo, fillArea);
+
+            if (SizeInfo.SIZED_PHASE == sizeInfo.phase) {
+                // Items with sizes can extend the limits.
+                removeCount(
+                    _horizontalLimCounts, sizeInfo.fillArea.horizontalLim
+                );
+                removeCount(_verticalLimCounts, sizeInfo.fillArea.verticalLim);
+                addCount(_horizontalLimCounts, fillArea.horizontalLim);
+                addCount(_verticalLimCounts, fillArea.verticalLim);
+            }
+            sizeInfo.fillArea = fillArea;
+        }
+        if (!dependArea.equals(sizeInfo.dependArea)) {
+            _dependGrid.remove(sizeInfo, sizeInfo.dependArea);
+            _dependGrid.add(sizeInfo, dependArea);
+
+            sizeInfo.dependArea = dependArea;
+        }
+    }
+
+    /**
+        Remove an item from layout, freeing the area it filled.
+     */
+    protected void discardSizeInfo(final SizeInfo sizeInfo) {
+        _resizeSet.remove(sizeInfo);
+        setAreas(sizeInfo, GridArea.EMPTY, GridArea.EMPTY);
+    }
+
+    /**
+        Work out again items after sizeInfo whose size depends on area.
+     */
+    protected void addDependents(
+        final SizeInfo sizeInfo, final GridArea area
+    ) {
+        _dependGrid.forEachOwner(area, dependent -> {
+            if (sizeInfo.order < dependent.order) {
+                _resizeSet.add(dependent);
+            }
+        });
+    }
+
+    // A limit of 0 (no area) is never the largest, so isn't counted.
+    protected static void addCount(
+        final NavigableMap<Integer, Integer> countMap, final int lim
+    ) {
+        if (0 < lim) {
+            countMap.merge(lim, 1, Integer::sum);
+        }
+    }
+
+    protected static void removeCount(
+        final NavigableMap<Integer, Integer> countMap, final int lim
+    ) {
+        countMap.computeIfPresent(lim, (k, cnt) -> (1 < cnt) ? cnt - 1 : null);
+    }
+
+    /**
+        Largest limit counted, at least 1 (no items, or all at position 0).
+     */
+    protected static int getMaxLim(
+        final NavigableMap<Integer, Integer> countMap
+    ) {
+        return countMap.isEmpty() ? 1 : countMap.lastKey();
+    }
+
+    /**
+        Key in _positionMap, ordered by vertical then horizontal position.
+     */
+    protected static int positionKey(
+        final int horizontalPosition, final int verticalPosition
+    ) {
+        return verticalPosition * POSITION_LIMIT + horizontalPosition;
+    }
+
+    public void dispose() {
+        super.dispose();
+
+        // Nothing left to lay out.
+        LayoutTransaction.discard(this);
     }
 
     public Item setParent(ContainerItem parent) {
@@ -478,36 +585,226 @@ adjustZeroSizeLoop:
     protected abstract Item applyTextDirection();
 }
 
+/**
+    Rectangle of grid cells, from start up to but not including limit in
+    each direction.
+ */
+class GridArea {
+    public static final GridArea EMPTY = new GridArea(0, 0, 0, 0);
+
+    public final int horizontalStart;
+    public final int horizontalLim;
+    public final int verticalStart;
+    public final int verticalLim;
+
+    public GridArea(
+        final int newHorizontalStart,
+        final int newHorizontalLim,
+        final int newVerticalStart,
+        final int newVerticalLim
+    ) {
+        horizontalStart = newHorizontalStart;
+        horizontalLim = newHorizontalLim;
+        verticalStart = newVerticalStart;
+        verticalLim = newVerticalLim;
+    }
+
+    public boolean isEmpty() {
+        return (horizontalStart >= horizontalLim)
+            || (verticalStart >= verticalLim);
+    }
+
+    public boolean equals(Object o) {
+        if (!(o instanceof GridArea)) {
+            return false;
+        }
+        final GridArea area = (GridArea)o;
+        return (area.horizontalStart == horizontalStart)
+            && (area.horizontalLim == horizontalLim)
+            && (area.verticalStart == verticalStart)
+            && (area.verticalLim == verticalLim);
+    }
+
+    public int hashCode() {
+        return ((horizontalStart * 31 + horizontalLim) * 31
+            + verticalStart) * 31 + verticalLim;
+    }
+}
+
+/**
+    Areas of a layout grid belonging to items, kept as a list of
+    horizontal intervals for each row that has any. Size depends on the
+    number and height of items, not on the size of the grid.
+ */
+class OccupiedGrid {
+    private static class Interval {
+        final int start;
+        final int lim;
+        final SizeInfo owner;
+
+        Interval(
+            final int newStart, final int newLim, final SizeInfo newOwner
+        ) {
+            start = newStart;
+            lim = newLim;
+            owner = newOwner;
+        }
+    }
+
+    private final Map<Integer, List<Interval>> _rowMap = new HashMap<>();
+
+    void add(final SizeInfo owner, final GridArea area) {
+        if (area.isEmpty()) {
+            return;
+        }
+        for (int vertical = area.verticalStart;
+            vertical < area.verticalLim;
+            vertical++)
+        {
+            _rowMap
+                .computeIfAbsent(vertical, v -> new ArrayList<>())
+                .add(
+                    new Interval(
+                        area.horizontalStart, area.horizontalLim, owner
+                    )
+                );
+        }
+    }
+
+    void remove(final SizeInfo owner, final GridArea area) {
+        if (area.isEmpty()) {
+            return;
+        }
+        for (int vertical = area.verticalStart;
+            vertical < area.verticalLim;
+            vertical++)
+        {
+            final List<Interval> row = _rowMap.get(vertical);
+            if (null == row) {
+                continue;
+            }
+            row.removeIf(interval -> (owner == interval.owner));
+            if (row.isEmpty()) {
+                _rowMap.remove(vertical);
+            }
+        }
+    }
+
+    /**
+        First column in row vertical from horizontalStart up to
+        horizontalLim belonging to an item with order before beforeOrder,
+        or horizontalLim if there is none.
+     */
+    int findFilled(
+        final int vertical,
+        final int horizontalStart,
+        final int horizontalLim,
+        final int beforeOrder
+    ) {
+        final List<Interval> row = _rowMap.get(vertical);
+        if (null == row) {
+            return horizontalLim;
+        }
+        int found = horizontalLim;
+        for (final Interval interval : row) {
+            final int start = Math.max(interval.start, horizontalStart);
+            if ( (start < interval.lim)
+              && (start < found)
+              && (interval.owner.order < beforeOrder) )
+            {
+                found = start;
+            }
+        }
+        return found;
+    }
+
+    boolean isFilled(
+        final int vertical,
+        final int horizontalStart,
+        final int horizontalLim,
+        final int beforeOrder
+    ) {
+        return findFilled(vertical, horizontalStart, horizontalLim, beforeOrder)
+            < horizontalLim;
+    }
+
+    /**
+        Call action for each item with an interval in area (maybe more than
+        once).
+     */
+    void forEachOwner(final GridArea area, final Consumer<SizeInfo> action) {
+        if (area.isEmpty()) {
+            return;
+        }
+        for (int vertical = area.verticalStart;
+            vertical < area.verticalLim;
+            vertical++)
+        {
+            final List<Interval> row = _rowMap.get(vertical);
+            if (null == row) {
+                continue;
+            }
+            for (final Interval interval : row) {
+                if ( (interval.start < area.horizontalLim)
+                  && (area.horizontalStart < interval.lim) )
+                {
+                    action.accept(interval.owner);
+                }
+            }
+        }
+    }
+}
+
 class SizeInfo {
+    // Items with both sizes at least 1 (and items which are always 1 by
+    // 1) are sized before items with size 0.
+    public static final int SIZED_PHASE = 0;
+    public static final int ZERO_PHASE = 1;
+
+    private static final int POSITION_CNT =
+        LayoutItem.POSITION_LIMIT * LayoutItem.POSITION_LIMIT;
+
     public final Positionable guiItem;
 
+    // Position in the order sizes are worked out: by phase, then backwards
+    // by position.
+    public final int phase;
+    public final int order;
+
     public int horizontalSize = 0;
     public int verticalSize = 0;
 
     public int oldHorizontalSize = 0;
     public int oldVerticalSize = 0;
 
-    public SizeInfo(Positionable newItem) {
-        guiItem = newItem;
-    }
+    // Order added to its layout item.
+    public int addIdx = 0;
 
-    public boolean equals(Object o) {
-        if (!(o instanceof SizeInfo)) {
-            return false;
-        }
-        SizeInfo sizeInfo = (SizeInfo)o;
-        if (null == sizeInfo.guiItem) {
-            return (null == guiItem);
-        }
-        final Positionable otherItem = sizeInfo.guiItem;
-        final PositionInfo positionInfo = otherItem.getPositionInfo();
+    // Area filled by this, and area whose filling decides its size.
+    public GridArea fillArea = GridArea.EMPTY;
+    public GridArea dependArea = GridArea.EMPTY;
 
-        return ( (positionInfo.horizontalSize == horizontalSize)
-            && (positionInfo.verticalSize == verticalSize) );
-    }
+    // For size 0, limits this expanded to.
+    public int horizontalReach = 0;
+    public int verticalReach = 0;
 
-    public int hashCode() {
-        return guiItem.hashCode();
+    public SizeInfo(Positionable newItem) {
+        guiItem = newItem;
+
+        final PositionInfo positionInfo = guiItem.getPositionInfo();
+        phase =
+            ( (0 == positionInfo.horizontalSize)
+           || (0 == positionInfo.verticalSize) )
+                ? ZERO_PHASE
+                : SIZED_PHASE;
+
+        order =
+            phase * POSITION_CNT
+            + (POSITION_CNT - 1)
+            - LayoutItem.positionKey(
+                positionInfo.horizontalPosition,
+                positionInfo.verticalPosition
+            );
     }
 }
 
@@ -0,0 +1,107 @@
+package hicp_client.gui;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+    Defers layout while a batch of commands is applied. Layout items ask
+    for their sizes to be adjusted, and windows for packing, through this.
+    Outside a transaction that's done right away, inside one it's done
+    once for each item when the outermost transaction ends, instead of
+    once for every component added or removed.
+
+    Only used from the GUI event thread.
+ */
+class LayoutTransaction {
+    private static final Logger LOGGER =
+        Logger.getLogger( LayoutTransaction.class.getName() );
+
+    private static int _depth = 0;
+
+    // In the order first asked for.
+    private static final Set<LayoutItem> _adjustSet = new LinkedHashSet<>();
+    private static final Set<WindowItem> _packSet = new LinkedHashSet<>();
+
+    private LayoutTransaction() {
+    }
+
+    static void begin() {
+        _depth++;
+    }
+
+    /**
+        End a transaction. If it's the outermost, adjust sizes and pack
+        everything which asked for it.
+     */
+    static void end() {
+        if (0 == _depth) {
+            return;
+        }
+        _depth--;
+        if (0 < _depth) {
+            return;
+        }
+        adjustPending();
+
+        final List<WindowItem> packList = new ArrayList<>(_packSet);
+        _packSet.clear();
+        for (final WindowItem windowItem : packList) {
+            try {
+                windowItem.pack();
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Pack failed", ex);
+            }
+        }
+    }
+
+    static boolean isOpen() {
+        return 0 < _depth;
+    }
+
+    static void adjustSizes(final LayoutItem layoutItem) {
+        if (isOpen()) {
+            _adjustSet.add(layoutItem);
+        } else {
+            layoutItem.adjustSizes();
+        }
+    }
+
+    static void pack(final WindowItem windowItem) {
+        if (isOpen()) {
+            _packSet.add(windowItem);
+        } else {
+            windowItem.pack();
+        }
+    }
+
+    /**
+        Adjust sizes which are waiting now, for something which needs
+        components to be in place before the transaction ends.
+     */
+    static void adjustPending() {
+        // Copy, the set can't change while being iterated.
+        while (!_adjustSet.isEmpty()) {
+            final List<LayoutItem> adjustList = new ArrayList<>(_adjustSet);
+            _adjustSet.clear();
+            for (final LayoutItem layoutItem : adjustList) {
+                try {
+                    layoutItem.adjustSizes();
+                } catch (RuntimeException ex) {
+                    LOGGER.log(Level.WARNING, "Adjust sizes failed", ex);
+                }
+            }
+        }
+    }
+
+    /**
+        Forget anything waiting for a layout item which is being disposed.
+     */
+    static void discard(final LayoutItem layoutItem) {
+        _adjustSet.remove(layoutItem);
+        _packSet.remove(layoutItem);
+    }
+}
@@ -3,7 +3,6 @@ package hicp_client.gui;
 import java.awt.Component;
 import java.awt.ComponentOrientation;
 import java.awt.GridBagConstraints;
-import java.awt.GridBagLayout;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JPanel;
@@ -28,6 +27,7 @@ public class PanelItem
 
     // Should be used only from GUI thread.
     protected JPanel _component;
+    protected HICPGridLayout _layout;
     protected TitledBorder _border;
 
     public PanelItem(final CommandInfo commandInfo) {
@@ -46,7 +46,8 @@ public class PanelItem
         final var guiPanelInfo = guiInfo.getGUIPanelInfo();
 
         _component = new JPanel();
-        _component.setLayout(new GridBagLayout());
+        _layout = new HICPGridLayout();
+        _component.setLayout(_layout);
 
         // Panel string.
         if (null != guiPanelInfo.text) {
@@ -77,7 +78,13 @@ public class PanelItem
     protected void addComponent(
         Component component, GridBagConstraints gridBagConstraints
     ) {
-        _component.add(component, gridBagConstraints);
+        if (_component == component.getParent()) {
+            // Already added, only its size changed.
+            _layout.setConstraints(component, gridBagConstraints);
+            _component.invalidate();
+        } else {
+            _component.add(component, gridBagConstraints);
+        }
     }
 
     public Component getComponent() {
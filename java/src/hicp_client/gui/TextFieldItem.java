@@ -8,6 +8,7 @@ import java.awt.event.FocusListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import javax.swing.JTextField;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -21,6 +22,7 @@ import hicp.message.command.CommandInfo;
 import hicp.message.command.GUITextFieldInfo;
 import hicp.message.event.EventInfo;
 import hicp_client.text.AttributeTrackDocument;
+import hicp_client.text.ContentEditList;
 
 public class TextFieldItem
     extends Item
@@ -40,14 +42,35 @@ public class TextFieldItem
     protected AttributeTrackDocument _document;
     protected AttributeListInfo _attributeListInfo;
 
+    // Document versions when _content and _attributeListInfo were last
+    // checked, so they're only compared if the document may have changed.
+    protected int _contentVersion = 0;
+    protected int _attributesVersion = 0;
+
+    // If not null, content changes are sent as add and delete actions for
+    // the edits since _content, instead of the whole content.
+    protected ContentEditList _contentEditList = null;
+
     public TextFieldItem(
         CommandInfo commandInfo,
         MessageExchange messageExchange
+    ) {
+        this(commandInfo, messageExchange, false);
+    }
+
+    public TextFieldItem(
+        CommandInfo commandInfo,
+        MessageExchange messageExchange,
+        boolean contentDeltas
     ) {
         super(commandInfo);
         _positionInfo = new PositionInfo(commandInfo);
 
         _messageExchange = messageExchange;
+
+        if (contentDeltas) {
+            _contentEditList = new ContentEditList();
+        }
     }
 
     protected Item add(final CommandInfo commandInfo) {
@@ -74,6 +97,11 @@ public class TextFieldItem
             // Save copy nobody else can access for checking if attributes
             // changed later.
             _attributeListInfo = _document.getAttributeListInfo();
+            _attributesVersion = _document.getAttributesVersion();
+        }
+        if (null != _contentEditList) {
+            // Edits are from the content just set.
+            _document.addDocumentListener(_contentEditList);
         }
 
 // Is this needed if there's a focus listener?
@@ -121,39 +149,114 @@ public class TextFieldItem
             // event.
             return;
         }
-        final String content =
-            _component.getText();
-        final boolean hasContentChanged =
-            !content.equals(_content);
-
-        final var attributeListInfo =
-            _document.getAttributeListInfo();
-        final boolean hasAttributesChanged =
-            ( (null != attributeListInfo)
-           && !attributeListInfo.equals(_attributeListInfo) );
+        final int contentVersion = _document.getContentVersion();
+        final int attributesVersion = _document.getAttributesVersion();
+        if ( (contentVersion == _contentVersion)
+          && (attributesVersion == _attributesVersion) )
+        {
+            // Nothing edited since last checked.
+            return;
+        }
+        // Edited, but might have been changed back.
+        final String content;
+        final boolean hasContentChanged;
+        if (contentVersion != _contentVersion) {
+            content = _component.getText();
+            hasContentChanged = !content.equals(_content);
+        } else {
+            content = _content;
+            hasContentChanged = false;
+        }
+        final AttributeListInfo attributeListInfo;
+        final boolean hasAttributesChanged;
+        if (attributesVersion != _attributesVersion) {
+            // Only attributes with changed ranges are made again, others
+            // are the same as last time, so compare quickly.
+            attributeListInfo = _document.getAttributeListInfo();
+            hasAttributesChanged =
+                ( (null != attributeListInfo)
+               && !attributeListInfo.equals(_attributeListInfo) );
+        } else {
+            attributeListInfo = _attributeListInfo;
+            hasAttributesChanged = false;
+        }
+        _contentVersion = contentVersion;
+        _attributesVersion = attributesVersion;
 
         if (hasContentChanged || hasAttributesChanged) {
-            // Content has changed.
-            // Send a changed event with this object's ID
-            // and the new content.
-            final var changedEvent = new Message(EventInfo.Event.CHANGED);
-            final var eventInfo = changedEvent.getEventInfo();
-            final var itemInfo = eventInfo.getItemInfo();
-            final var textFieldInfo = itemInfo.getTextFieldInfo();
-
-            itemInfo.id = idString;
-            if (hasContentChanged) {
-                textFieldInfo.content = content;
-            }
-            if (hasAttributesChanged) {
-                textFieldInfo.setAttributeListInfo(attributeListInfo);
+            if (null != _contentEditList) {
+                sendContentActionsEvent(
+                    hasContentChanged, content,
+                    hasAttributesChanged, attributeListInfo
+                );
+            } else {
+                // Content has changed.
+                // Send a changed event with this object's ID
+                // and the new content.
+                final var changedEvent = newChangedEvent();
+                final var textFieldInfo =
+                    changedEvent.getEventInfo().getItemInfo()
+                        .getTextFieldInfo();
+
+                if (hasContentChanged) {
+                    textFieldInfo.content = content;
+                }
+                if (hasAttributesChanged) {
+                    textFieldInfo.setAttributeListInfo(attributeListInfo);
+                }
+                _messageExchange.send(changedEvent);
             }
-            _messageExchange.send(changedEvent);
-
             // Save for next event.
             _content = content;
             _attributeListInfo = attributeListInfo;
         }
+        if (null != _contentEditList) {
+            // Either sent, or changed back to _content.
+            _contentEditList.clear();
+        }
+    }
+
+    /**
+        Send content changes as actions in one event, so they're applied
+        together. If they're no smaller than the content, send that
+        instead.
+     */
+    protected void sendContentActionsEvent(
+        final boolean hasContentChanged,
+        final String content,
+        final boolean hasAttributesChanged,
+        final AttributeListInfo attributeListInfo
+    ) {
+        final var changedEvent = newChangedEvent();
+        final var textFieldInfo =
+            changedEvent.getEventInfo().getItemInfo().getTextFieldInfo();
+
+        if (hasContentChanged) {
+            final List<ContentInfo> contentInfoList =
+                _contentEditList.newContentInfoList(content);
+
+            if ( (1 == contentInfoList.size())
+              && (ContentInfo.Action.SET == contentInfoList.get(0).action) )
+            {
+                textFieldInfo.content = content;
+            } else {
+                textFieldInfo.contentActions = contentInfoList;
+            }
+        }
+        if (hasAttributesChanged) {
+            textFieldInfo.setAttributeListInfo(attributeListInfo);
+        }
+        _messageExchange.send(changedEvent);
+    }
+
+    /** New changed event with this object's ID. */
+    protected Message newChangedEvent() {
+        final var changedEvent = new Message(EventInfo.Event.CHANGED);
+        final var itemInfo = changedEvent.getEventInfo().getItemInfo();
+
+        itemInfo.id = idString;
+
+        return changedEvent;
     }
 
     protected void sendChangedEvent() {
@@ -207,6 +310,10 @@ public class TextFieldItem
 
         _component.setText(content);
         _content = content;
+        _contentVersion = _document.getContentVersion();
+        if (null != _contentEditList) {
+            _contentEditList.clear();
+        }
     }
 
     protected void addContent(
@@ -228,6 +335,10 @@ public class TextFieldItem
             // Don't care, not inserted.
         }
         _content = _component.getText();
+        _contentVersion = _document.getContentVersion();
+        if (null != _contentEditList) {
+            _contentEditList.clear();
+        }
     }
 
     protected void deleteContent(
@@ -239,6 +350,10 @@ public class TextFieldItem
             // Don't care, not inserted.
         }
         _content = _component.getText();
+        _contentVersion = _document.getContentVersion();
+        if (null != _contentEditList) {
+            _contentEditList.clear();
+        }
     }
 
     public void dispose() {
@@ -314,6 +429,7 @@ public class TextFieldItem
                     // Save copy nobody else can access for checking if
                     // attributes changed later.
                     _attributeListInfo = _document.getAttributeListInfo();
+                    _attributesVersion = _document.getAttributesVersion();
                 }
             }
         } else {
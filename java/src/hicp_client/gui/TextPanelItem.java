@@ -0,0 +1,157 @@
+package hicp_client.gui;
+
+import java.awt.Component;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.swing.JScrollPane;
+import javax.swing.ScrollPaneConstants;
+
+import hicp.message.command.CommandInfo;
+import hicp.message.command.ContentInfo;
+import hicp.message.command.GUITextPanelInfo;
+
+/**
+    Multi-line text which the server sets and adds to, such as logs and
+    reports. Not editable, so sends no events.
+ */
+public class TextPanelItem
+    extends Item
+    implements Positionable
+{
+    private static final Logger LOGGER =
+        Logger.getLogger( TextPanelItem.class.getName() );
+
+    protected final PositionInfo _positionInfo;
+
+    protected JScrollPane _component;
+    protected TextPanelView _textPanelView;
+
+    public TextPanelItem(final CommandInfo commandInfo) {
+        super(commandInfo);
+        _positionInfo = new PositionInfo(commandInfo);
+    }
+
+    protected Item add(final CommandInfo commandInfo) {
+        final var itemInfo = commandInfo.getItemInfo();
+        final var guiInfo = itemInfo.getGUIInfo();
+        final var guiTextPanelInfo = guiInfo.getGUITextPanelInfo();
+
+        _textPanelView = new TextPanelView();
+        _textPanelView.setColumns(guiTextPanelInfo.width);
+        _textPanelView.setRows(guiTextPanelInfo.height);
+
+        _component =
+            new JScrollPane(
+                _textPanelView,
+                ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED,
+                ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER
+            );
+
+        if (guiTextPanelInfo.hasContent()) {
+            setContent(guiTextPanelInfo.getContentInfo());
+        }
+        if (guiTextPanelInfo.hasAttributes()) {
+            _textPanelView.setAttributeListInfo(
+                guiTextPanelInfo.getAttributeListInfo()
+            );
+        }
+        return this;
+    }
+
+    public Component getComponent() {
+        return _component;
+    }
+
+    public PositionInfo getPositionInfo() {
+        return _positionInfo;
+    }
+
+    public int getGridBagAnchor() {
+        return java.awt.GridBagConstraints.CENTER;
+    }
+
+    public int getGridBagFill() {
+        return java.awt.GridBagConstraints.BOTH;
+    }
+
+    final static Pattern nonPrintablePattern = Pattern.compile("\\p{Cntrl}");
+
+    protected static String removeNonPrintable(String text) {
+        if (null == text) {
+            return "";
+        }
+        // Remove all non-printable (control) characters.
+        final Matcher nonPrintableMatcher = nonPrintablePattern.matcher(text);
+        return nonPrintableMatcher.replaceAll("");
+    }
+
+    protected void setContent(final ContentInfo contentInfo) {
+        if ((null == contentInfo) || (null == contentInfo.action)) {
+            return;
+        }
+        switch (contentInfo.action) {
+          case SET:
+            {
+                final var setInfo = contentInfo.getSetInfo();
+                _textPanelView.setText(removeNonPrintable(setInfo.text));
+            }
+            break;
+          case ADD:
+            {
+                final var addInfo = contentInfo.getAddInfo();
+                if (null != addInfo) {
+                    _textPanelView.insert(
+                        addInfo.position, removeNonPrintable(addInfo.text)
+                    );
+                }
+            }
+            break;
+          case DELETE:
+            {
+                final var deleteInfo = contentInfo.getDeleteInfo();
+                if (null != deleteInfo) {
+                    _textPanelView.delete(
+                        deleteInfo.position, deleteInfo.length
+                    );
+                }
+            }
+            break;
+          default:
+            break;
+        }
+    }
+
+    public void dispose() {
+        super.dispose();
+        _component = null;
+        _textPanelView = null;
+    }
+
+    protected Item modify(final CommandInfo commandInfo) {
+        final var itemInfo = commandInfo.getItemInfo();
+        final var guiInfo = itemInfo.getGUIInfo();
+        final var guiTextPanelInfo = guiInfo.getGUITextPanelInfo();
+
+        // See what's changed.
+        if (guiTextPanelInfo.hasContent()) {
+            setContent(guiTextPanelInfo.getContentInfo());
+        }
+        if (guiTextPanelInfo.hasAttributes()) {
+            final var attributeListInfo =
+                guiTextPanelInfo.getAttributeListInfo();
+            if (attributeListInfo.hasAttributes()) {
+                _textPanelView.modifyAttributeListInfo(attributeListInfo);
+            }
+        }
+        if (guiTextPanelInfo.hasWidth()) {
+            _textPanelView.setColumns(guiTextPanelInfo.width);
+        }
+        if (guiTextPanelInfo.hasHeight()) {
+            _textPanelView.setRows(guiTextPanelInfo.height);
+        }
+        // Changed parent ID is handled by Controller.
+        return this;
+    }
+}
@@ -0,0 +1,617 @@
+package hicp_client.gui;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+
+import hicp.message.AttributeListInfo;
+import hicp_client.text.AttributeTrackDocument;
+import hicp_client.text.TextRope;
+
+/**
+    Read only text, wrapped to the view width, for text panels which can
+    be very large and added to often.
+
+    Text is kept in a rope, and the start of each wrapped line is cached.
+    An edit only wraps lines from the one it affects until the line starts
+    match the old ones again, so appending only wraps the last line or
+    two. Only lines in the area being painted are drawn.
+ */
+class TextPanelView
+    extends JComponent
+    implements Scrollable
+{
+    private static final Logger LOGGER =
+        Logger.getLogger( TextPanelView.class.getName() );
+
+    protected static final String BOLD = "bold";
+    protected static final String ITALIC = "italic";
+    protected static final String UNDERLINE = "underline";
+
+    protected static final int BOLD_STYLE = 1;
+    protected static final int ITALIC_STYLE = 2;
+    protected static final int UNDERLINE_STYLE = 4;
+
+    protected final TextRope _rope = new TextRope();
+
+    // Only used to track attribute ranges, not text.
+    protected final AttributeTrackDocument _attributes =
+        new AttributeTrackDocument();
+
+    protected int _columns = 1;
+    protected int _rows = 1;
+
+    // Start of each line when wrapped to _wrapWidth, -1 if not wrapped.
+    protected int[] _lineStarts = new int[16];
+    protected int _lineCnt = 0;
+    protected int _wrapWidth = -1;
+
+    // Last character index looked at by nextLineStart().
+    protected int _lastReadIdx = 0;
+
+    // Fonts, metrics, and character widths by style (bold, italic).
+    protected Font _font = null;
+    protected final Font[] _styleFonts = new Font[4];
+    protected final FontMetrics[] _styleFontMetrics = new FontMetrics[4];
+    protected final int[][] _charWidths = new int[4][256];
+    protected int _lineHeight = 1;
+
+    // Text read from the rope, so lines can be wrapped a character at a
+    // time.
+    protected final char[] _buffer = new char[4096];
+    protected int _bufferStart = 0;
+    protected int _bufferEnd = 0;
+
+    // Scroll to the end after added text is laid out.
+    protected boolean _isScrollToEndPending = false;
+
+    public TextPanelView() {
+        Font font = UIManager.getFont("TextArea.font");
+        if (null == font) {
+            font = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+        }
+        setFont(font);
+        setOpaque(true);
+        setBackground(UIManager.getColor("TextArea.background"));
+        setForeground(UIManager.getColor("TextArea.foreground"));
+        _attributes.setAttributeListInfo((AttributeListInfo)null);
+    }
+
+    public TextPanelView setColumns(final int columns) {
+        _columns = Math.max(1, columns);
+        revalidate();
+        return this;
+    }
+
+    public TextPanelView setRows(final int rows) {
+        _rows = Math.max(1, rows);
+        revalidate();
+        return this;
+    }
+
+    public int length() {
+        return _rope.length();
+    }
+
+    public TextPanelView setText(final String text) {
+        // Replacement text doesn't need old text attributes.
+        _attributes.setAttributeListInfo((AttributeListInfo)null);
+
+        _rope.clear();
+        _rope.insert(0, text);
+
+        _bufferStart = _bufferEnd = 0;
+        _wrapWidth = -1;
+
+        textChanged();
+        return this;
+    }
+
+    public TextPanelView insert(final int position, final String text) {
+        if ((0 > position) || (_rope.length() < position)) {
+            LOGGER.log(Level.FINE, "Insert position out of range");
+            return this;
+        }
+        final boolean isAtEnd = isScrolledToEnd();
+
+        _attributes.insertForAttributes(position, text);
+        _rope.insert(position, text);
+        updateLines(position, position, position + text.length());
+
+        textChanged();
+        if (isAtEnd) {
+            scrollToEnd();
+        }
+        return this;
+    }
+
+    public TextPanelView delete(final int position, final int length) {
+        if ( (0 > position)
+          || (0 > length)
+          || (_rope.length() < position + length) )
+        {
+            LOGGER.log(Level.FINE, "Delete range out of range");
+            return this;
+        }
+        _attributes.removeForAttributes(position, length);
+        _rope.delete(position, length);
+        updateLines(position, position + length, position);
+
+        textChanged();
+        return this;
+    }
+
+    public TextPanelView setAttributeListInfo(
+        final AttributeListInfo attributeListInfo
+    ) {
+        _attributes.setAttributeListInfo(attributeListInfo);
+
+        // Bold and italic text is wider, wrap everything again.
+        _wrapWidth = -1;
+        textChanged();
+        return this;
+    }
+
+    public TextPanelView modifyAttributeListInfo(
+        final AttributeListInfo attributeListInfo
+    ) {
+        if (null == attributeListInfo) {
+            return this;
+        }
+        _attributes.modifyAttributeListInfo(attributeListInfo);
+
+        // Changed ranges can reach past the new ones, wrap everything again.
+        _wrapWidth = -1;
+        textChanged();
+        return this;
+    }
+
+    protected void textChanged() {
+        // Height might have changed.
+        revalidate();
+        repaint();
+    }
+
+    protected boolean isScrolledToEnd() {
+        if (!(getParent() instanceof JViewport)) {
+            return false;
+        }
+        final Rectangle visibleRect = ((JViewport)getParent()).getViewRect();
+
+        return (visibleRect.y + visibleRect.height >= getHeight());
+    }
+
+    protected void scrollToEnd() {
+        if (_isScrollToEndPending) {
+            return;
+        }
+        _isScrollToEndPending = true;
+
+        // After layout has changed the height for the new text.
+        SwingUtilities.invokeLater(
+            new Runnable() {
+                public void run() {
+                    _isScrollToEndPending = false;
+                    scrollRectToVisible(
+                        new Rectangle(0, getHeight() - 1, 1, 1)
+                    );
+                }
+            }
+        );
+    }
+
+    @Override
+    public void setBounds(
+        final int x, final int y, final int width, final int height
+    ) {
+        final boolean isWidthChanged = (width != getWidth());
+
+        super.setBounds(x, y, width, height);
+
+        if (isWidthChanged) {
+            // Wrapped for the old width, height will change.
+            revalidate();
+        }
+    }
+
+    /**
+        Get fonts and character widths if the font has changed.
+     */
+    protected void updateFontMetrics() {
+        final Font font = getFont();
+        if (font == _font) {
+            return;
+        }
+        _font = font;
+        for (int style = 0; style < _styleFonts.length; style++) {
+            int fontStyle = Font.PLAIN;
+            if (0 != (style & BOLD_STYLE)) {
+                fontStyle |= Font.BOLD;
+            }
+            if (0 != (style & ITALIC_STYLE)) {
+                fontStyle |= Font.ITALIC;
+            }
+            _styleFonts[style] = font.deriveFont(fontStyle);
+            _styleFontMetrics[style] = getFontMetrics(_styleFonts[style]);
+        }
+        for (int style = 0; style < _styleFonts.length; style++) {
+            final FontMetrics fontMetrics = _styleFontMetrics[style];
+            final int[] charWidths = _charWidths[style];
+            for (int c = 0; c < charWidths.length; c++) {
+                charWidths[c] = fontMetrics.charWidth((char)c);
+            }
+        }
+        _lineHeight = Math.max(1, _styleFontMetrics[0].getHeight());
+
+        // Wrap again for new character widths.
+        _wrapWidth = -1;
+    }
+
+    protected int charWidth(final char c) {
+        return charWidth(c, 0);
+    }
+
+    /** Width of c in font style (bold and italic only). */
+    protected int charWidth(final char c, final int fontStyle) {
+        final int[] charWidths = _charWidths[fontStyle];
+        if (c < charWidths.length) {
+            return charWidths[c];
+        }
+        return _styleFontMetrics[fontStyle].charWidth(c);
+    }
+
+    protected char charAt(final int idx) {
+        if ((idx < _bufferStart) || (_bufferEnd <= idx)) {
+            _bufferStart = idx;
+            _bufferEnd = Math.min(_rope.length(), idx + _buffer.length);
+            _rope.getChars(_bufferStart, _bufferEnd, _buffer, 0);
+        }
+        return _buffer[idx - _bufferStart];
+    }
+
+    /**
+        Width available for text. Before the view has a size, use the
+        width for the requested number of columns.
+     */
+    protected int getTextWidth() {
+        final Insets insets = getInsets();
+        final int width =
+            (0 < getWidth())
+                ? getWidth()
+                : getPreferredScrollableViewportSize().width;
+
+        return Math.max(1, width - insets.left - insets.right);
+    }
+
+    /**
+        Wrap all lines if not wrapped for the current width and font.
+     */
+    protected void updateLines() {
+        updateFontMetrics();
+
+        final int wrapWidth = getTextWidth();
+        if (wrapWidth == _wrapWidth) {
+            return;
+        }
+        _wrapWidth = wrapWidth;
+
+        _lineCnt = 0;
+        addLineStart(0);
+
+        final int length = _rope.length();
+        int lineStart = 0;
+        for (;;) {
+            lineStart = nextLineStart(lineStart);
+            if (lineStart >= length) {
+                break;
+            }
+            addLineStart(lineStart);
+        }
+    }
+
+    protected void addLineStart(final int lineStart) {
+        if (_lineCnt == _lineStarts.length) {
+            _lineStarts = Arrays.copyOf(_lineStarts, _lineCnt * 2);
+        }
+        _lineStarts[_lineCnt] = lineStart;
+        _lineCnt++;
+    }
+
+    /**
+        Text from editStart to oldEditEnd was replaced by text from
+        editStart to newEditEnd. Wrap lines affected by the edit, until a
+        line starts where an old line after the edit did, since lines after
+        that are the same.
+     */
+    protected void updateLines(
+        final int editStart, final int oldEditEnd, final int newEditEnd
+    ) {
+        _bufferStart = _bufferEnd = 0;
+        updateFontMetrics();
+        if (-1 == _wrapWidth) {
+            // Not wrapped yet, will wrap everything when needed.
+            return;
+        }
+        final int lengthChange = newEditEnd - oldEditEnd;
+        final int length = _rope.length();
+
+        int firstLine = getLineIdx(editStart);
+        if ((0 < firstLine) && (_lineStarts[firstLine] >= length)) {
+            // Everything from line start was deleted.
+            firstLine--;
+        }
+        // Lines before the edit may have looked at edited text when
+        // deciding where to end.
+        while (0 < firstLine) {
+            nextLineStart(_lineStarts[firstLine - 1]);
+            if (_lastReadIdx < editStart) {
+                break;
+            }
+            firstLine--;
+        }
+        // Old lines which start after the edit, one of these might match.
+        int oldLine =
+            Math.max(firstLine + 1, getLineIdx(oldEditEnd - 1) + 1);
+
+        int[] newLineStarts = new int[16];
+        int newLineCnt = 0;
+        int lineStart = _lineStarts[firstLine];
+        for (;;) {
+            lineStart = nextLineStart(lineStart);
+            if (lineStart >= length) {
+                // No more lines, and no old lines left.
+                oldLine = _lineCnt;
+                break;
+            }
+            while ( (oldLine < _lineCnt)
+                 && (_lineStarts[oldLine] + lengthChange < lineStart) )
+            {
+                oldLine++;
+            }
+            if ( (oldLine < _lineCnt)
+              && (_lineStarts[oldLine] + lengthChange == lineStart) )
+            {
+                // Same as old lines from here.
+                break;
+            }
+            if (newLineCnt == newLineStarts.length) {
+                newLineStarts = Arrays.copyOf(newLineStarts, newLineCnt * 2);
+            }
+            newLineStarts[newLineCnt] = lineStart;
+            newLineCnt++;
+        }
+        // Replace changed lines, shift the rest.
+        final int oldLineCnt = _lineCnt - oldLine;
+        final int lineCnt = firstLine + 1 + newLineCnt + oldLineCnt;
+        if (lineCnt > _lineStarts.length) {
+            _lineStarts = Arrays.copyOf(_lineStarts, lineCnt * 2);
+        }
+        System.arraycopy(
+            _lineStarts, oldLine,
+            _lineStarts, firstLine + 1 + newLineCnt,
+            oldLineCnt
+        );
+        System.arraycopy(
+            newLineStarts, 0, _lineStarts, firstLine + 1, newLineCnt
+        );
+        for (int lineIdx = lineCnt - oldLineCnt; lineIdx < lineCnt; lineIdx++)
+        {
+            _lineStarts[lineIdx] += lengthChange;
+        }
+        _lineCnt = lineCnt;
+    }
+
+    /**
+        Index of line containing offset.
+     */
+    protected int getLineIdx(final int offset) {
+        final int foundIdx =
+            Arrays.binarySearch(_lineStarts, 0, _lineCnt, offset);
+        if (0 <= foundIdx) {
+            return foundIdx;
+        }
+        // Line before insertion point.
+        return Math.max(0, -foundIdx - 2);
+    }
+
+    /**
+        Find where the line starting at lineStart should wrap. Break after
+        the last space which fits, or if none, the last character which
+        fits. Spaces never cause a wrap. Characters are measured in the
+        font they're drawn with.
+     */
+    protected int nextLineStart(final int lineStart) {
+        final int length = _rope.length();
+
+        int width = 0;
+        int breakIdx = -1;
+        int fontStyle = 0;
+        int fontStyleEnd = lineStart;
+        int[] charWidths = _charWidths[0];
+        for (int idx = lineStart; idx < length; idx++) {
+            if (idx >= fontStyleEnd) {
+                // Look up style once for each run.
+                fontStyle = getStyle(idx) & (BOLD_STYLE | ITALIC_STYLE);
+                fontStyleEnd =
+                    Math.min(
+                        _attributes.getBooleanRangeEnd(BOLD, idx),
+                        _attributes.getBooleanRangeEnd(ITALIC, idx)
+                    );
+                charWidths = _charWidths[fontStyle];
+            }
+            final char c = charAt(idx);
+            width +=
+                (c < charWidths.length)
+                    ? charWidths[c]
+                    : _styleFontMetrics[fontStyle].charWidth(c);
+            if (' ' == c) {
+                breakIdx = idx + 1;
+            } else if ((width > _wrapWidth) && (idx > lineStart)) {
+                _lastReadIdx = idx;
+                return (-1 != breakIdx) ? breakIdx : idx;
+            }
+        }
+        _lastReadIdx = length;
+        return length;
+    }
+
+    protected int getLineEnd(final int lineIdx) {
+        return (lineIdx + 1 < _lineCnt)
+            ? _lineStarts[lineIdx + 1]
+            : _rope.length();
+    }
+
+    protected int getStyle(final int offset) {
+        int style = 0;
+        if (_attributes.isOn(BOLD, offset)) {
+            style |= BOLD_STYLE;
+        }
+        if (_attributes.isOn(ITALIC, offset)) {
+            style |= ITALIC_STYLE;
+        }
+        if (_attributes.isOn(UNDERLINE, offset)) {
+            style |= UNDERLINE_STYLE;
+        }
+        return style;
+    }
+
+    @Override
+    protected void paintComponent(final Graphics g) {
+        updateLines();
+
+        final Rectangle clip = g.getClipBounds();
+        if (isOpaque()) {
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        }
+        g.setColor(getForeground());
+
+        final Insets insets = getInsets();
+        final int ascent = _styleFontMetrics[0].getAscent();
+
+        final int firstLine =
+            Math.max(0, (clip.y - insets.top) / _lineHeight);
+        final int lastLine =
+            Math.min(
+                _lineCnt - 1,
+                (clip.y + clip.height - insets.top) / _lineHeight
+            );
+        char[] chars = new char[0];
+        for (int lineIdx = firstLine; lineIdx <= lastLine; lineIdx++) {
+            final int lineStart = _lineStarts[lineIdx];
+            final int lineLength = getLineEnd(lineIdx) - lineStart;
+            if (chars.length < lineLength) {
+                chars = new char[lineLength];
+            }
+            _rope.getChars(lineStart, lineStart + lineLength, chars, 0);
+
+            final int baseline = insets.top + lineIdx * _lineHeight + ascent;
+            int x = insets.left;
+            int runStart = 0;
+            int runStyle = getStyle(lineStart);
+            for (int idx = 1; idx <= lineLength; idx++) {
+                final int style =
+                    (idx < lineLength) ? getStyle(lineStart + idx) : -1;
+                if (style == runStyle) {
+                    continue;
+                }
+                x = drawRun(g, chars, runStart, idx, runStyle, x, baseline);
+                runStart = idx;
+                runStyle = style;
+            }
+        }
+    }
+
+    /**
+        Draw characters from start to end with style, return x after them.
+     */
+    protected int drawRun(
+        final Graphics g,
+        final char[] chars,
+        final int start,
+        final int end,
+        final int style,
+        final int x,
+        final int baseline
+    ) {
+        final int fontStyle = style & (BOLD_STYLE | ITALIC_STYLE);
+        final FontMetrics fontMetrics = _styleFontMetrics[fontStyle];
+        final int width = fontMetrics.charsWidth(chars, start, end - start);
+
+        g.setFont(_styleFonts[fontStyle]);
+        g.drawChars(chars, start, end - start, x, baseline);
+        if (0 != (style & UNDERLINE_STYLE)) {
+            g.drawLine(x, baseline + 1, x + width - 1, baseline + 1);
+        }
+        return x + width;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        updateLines();
+
+        final Insets insets = getInsets();
+        final Dimension viewportSize = getPreferredScrollableViewportSize();
+
+        return new Dimension(
+            viewportSize.width,
+            insets.top + _lineCnt * _lineHeight + insets.bottom
+        );
+    }
+
+    // Scrollable:
+    public Dimension getPreferredScrollableViewportSize() {
+        updateFontMetrics();
+
+        final Insets insets = getInsets();
+        return new Dimension(
+            insets.left + _columns * charWidth('m') + insets.right,
+            insets.top + _rows * _lineHeight + insets.bottom
+        );
+    }
+
+    public int getScrollableUnitIncrement(
+        final Rectangle visibleRect, final int orientation, final int direction
+    ) {
+        if (SwingConstants.VERTICAL == orientation) {
+            return _lineHeight;
+        }
+        return charWidth('m');
+    }
+
+    public int getScrollableBlockIncrement(
+        final Rectangle visibleRect, final int orientation, final int direction
+    ) {
+        if (SwingConstants.VERTICAL == orientation) {
+            return Math.max(_lineHeight, visibleRect.height - _lineHeight);
+        }
+        return visibleRect.width;
+    }
+
+    public boolean getScrollableTracksViewportWidth() {
+        // Always wrapped to the visible width.
+        return true;
+    }
+
+    public boolean getScrollableTracksViewportHeight() {
+        if (getParent() instanceof JViewport) {
+            return (getParent().getHeight() > getPreferredSize().height);
+        }
+        return false;
+    }
+}
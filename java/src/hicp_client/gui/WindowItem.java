@@ -5,7 +5,6 @@ import java.awt.Component;
 import java.awt.ComponentOrientation;
 import java.awt.Dimension;
 import java.awt.GridBagConstraints;
-import java.awt.GridBagLayout;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.WindowAdapter;
@@ -39,6 +38,7 @@ public class WindowItem
 
     protected JFrame _component;
     protected JPanel _panel;
+    protected HICPGridLayout _layout;
 
     public WindowItem(
         final CommandInfo commandInfo,
@@ -62,7 +62,8 @@ public class WindowItem
 
         _component.getContentPane().setLayout(new BorderLayout());
 
-        _panel = new JPanel(new GridBagLayout());
+        _layout = new HICPGridLayout();
+        _panel = new JPanel(_layout);
 
         _panel.addComponentListener(
             new ComponentAdapter() {
@@ -136,11 +137,7 @@ public class WindowItem
             // component.
             super.removePositionable((Positionable)guiItem);
 
-            // If visible, resize.
-            if (_component.isVisible()) {
-                _component.pack();
-                _component.setSize(_component.getPreferredSize());
-            }
+            LayoutTransaction.pack(this);
         }
         return this;
     }
@@ -152,7 +149,13 @@ public class WindowItem
     protected void addComponent(
         Component component, GridBagConstraints gridBagConstraints
     ) {
-        _panel.add(component, gridBagConstraints);
+        if (_panel == component.getParent()) {
+            // Already added, only its size changed.
+            _layout.setConstraints(component, gridBagConstraints);
+            _panel.invalidate();
+        } else {
+            _panel.add(component, gridBagConstraints);
+        }
     }
 
     public void setText(String text) {
@@ -189,15 +192,21 @@ public class WindowItem
             // component.
             super.addPositionable((Positionable)guiItem);
 
-            // If visible, resize.
-            if (_component.isVisible()) {
-                _component.pack();
-                _component.setSize(_component.getPreferredSize());
-            }
+            LayoutTransaction.pack(this);
         }
         return this;
     }
 
+    /**
+        If visible, resize to fit components.
+     */
+    protected void pack() {
+        if ((null != _component) && _component.isVisible()) {
+            _component.pack();
+            _component.setSize(_component.getPreferredSize());
+        }
+    }
+
     protected Item modify(final CommandInfo commandInfo) {
         final var itemInfo = commandInfo.getItemInfo();
         final var guiInfo = itemInfo.getGUIInfo();
@@ -213,7 +222,9 @@ public class WindowItem
 
         // Visible?
         if (guiWindowInfo.visible != _component.isVisible()) {
-            // Make sure correct size for children.
+            // Make sure correct size for children, which must all be
+            // added first.
+            LayoutTransaction.adjustPending();
             _component.pack();
             _component.setSize(_component.getPreferredSize());
 
@@ -22,11 +22,9 @@ public class AttributeTrackDocument
     private static final Logger LOGGER =
         Logger.getLogger( AttributeTrackDocument.class.getName() );
 
-    public static abstract class Range {
-        public int length = 0;
-
+    public static abstract class Range extends RangeList.Span {
         public Range(final int newLength) {
-            length = newLength;
+            super(newLength);
         }
 
         public abstract boolean canMerge(Range otherRange);
@@ -159,14 +157,51 @@ public class AttributeTrackDocument
     // they can be merged.
     // Boolean attribute ranges toggle, so cannot be merged, so they have to be
     // treated differently. Use different maps for each.
-    protected Map<String, List<ValueRange>> attributeValuesMap = null;
-    protected Map<String, List<BooleanRange>> attributeBooleanMap = null;
+    // Range lists are trees by offset, so each edit only looks at the ranges
+    // it changes.
+    protected Map<String, RangeList<ValueRange>> attributeValuesMap = null;
+    protected Map<String, RangeList<BooleanRange>> attributeBooleanMap = null;
+
+    // Attribute info last made from each range list, reused until the range
+    // list changes.
+    protected static class CachedAttributeInfo {
+        public final RangeList<? extends Range> rangeList;
+        public final int version;
+        public final AttributeInfo attributeInfo;
+
+        public CachedAttributeInfo(
+            final RangeList<? extends Range> newRangeList,
+            final AttributeInfo newAttributeInfo
+        ) {
+            rangeList = newRangeList;
+            version = newRangeList.getVersion();
+            attributeInfo = newAttributeInfo;
+        }
+    }
+
+    protected Map<String, CachedAttributeInfo> attributeInfoCacheMap =
+        new HashMap<>();
+
+    // Incremented when content or attributes might have changed, so callers
+    // can tell nothing changed without comparing.
+    protected int _contentVersion = 0;
+    protected int _attributesVersion = 0;
+
+    public int getContentVersion() {
+        return _contentVersion;
+    }
+
+    public int getAttributesVersion() {
+        return _attributesVersion;
+    }
 
     public AttributeTrackDocument setAttributeListInfo(
         final AttributeListInfo newAttributeList
     ) {
         attributeValuesMap = new HashMap<>();
         attributeBooleanMap = new HashMap<>();
+        attributeInfoCacheMap.clear();
+        _attributesVersion++;
 
         if (null == newAttributeList) {
             return this;
@@ -186,7 +221,7 @@ public class AttributeTrackDocument
     protected AttributeTrackDocument setValueAttribute(
         final AttributeInfo attribute
     ) {
-        final List<ValueRange> rangeList = new ArrayList<>();
+        final RangeList<ValueRange> rangeList = new RangeList<>();
 
         // Need to insert a default range if position > 0.
         final int position = attribute.position;
@@ -206,7 +241,7 @@ public class AttributeTrackDocument
     protected AttributeTrackDocument setBooleanAttribute(
         final AttributeInfo attribute
     ) {
-        final List<BooleanRange> rangeList = new ArrayList<>();
+        final RangeList<BooleanRange> rangeList = new RangeList<>();
 
         // First boolean range from attribute command is always on, so
         // need to insert an off range for boolean range
@@ -231,6 +266,7 @@ public class AttributeTrackDocument
         if (null == newAttributeList) {
             return this;
         }
+        _attributesVersion++;
         for (final var newAttribute : newAttributeList) {
             if (newAttribute.hasValues()) {
                 final var rangeList =
@@ -262,7 +298,7 @@ public class AttributeTrackDocument
     private <T extends Range> AttributeTrackDocument changeRangeList(
         final AttributeInfo newAttribute,
         final RangeType<T> rangeType,
-        final List<T> rangeList
+        final RangeList<T> rangeList
     ) {
         // Would it be simpler to just copy ranges to new list, rather than
         // modify the existing list?
@@ -274,31 +310,23 @@ public class AttributeTrackDocument
             newRangeListLim += newAttributeRange.length;
         }
         // Replace existing attributes with new ones.
-        int rangeIdx = 0;
-        int rangeStart = 0;
+        int rangeIdx;
+        int rangeStart;
         {
-            Range range = null;
-            int nextRangeStart = rangeStart;
             // Find first range affected by new range (start position).
-            for (;;) {
-                if (rangeIdx >= rangeList.size()) {
-                    // No attribute range found, append new ranges.
-                    break;
-                }
-                range = rangeList.get(rangeIdx);
-                nextRangeStart = rangeStart + range.length;
-                if (nextRangeStart >= position) {
-                    // Found it.
-                    break;
+            rangeIdx = rangeList.indexOfEnd(position);
+            rangeStart = rangeList.getStart(rangeIdx);
+            if (rangeIdx < rangeList.size()) {
+                final Range range = rangeList.get(rangeIdx);
+                final int nextRangeStart = rangeStart + range.length;
+
+                // Truncate range if needed.
+                if (nextRangeStart > position) {
+                    final int overlap = position - rangeStart;
+                    rangeList.setLength(rangeIdx, range.length - overlap);
                 }
-                rangeIdx++;
-                rangeStart = nextRangeStart;
-            }
-            // Truncate range if needed.
-            if (nextRangeStart > position) {
-                final int overlap = position - rangeStart;
-                range.length -= overlap;
             }
+            // Otherwise no attribute range found, append new ranges.
         }
         rangeIdx++;
         // Remove ranges replaced by new ranges.
@@ -316,7 +344,7 @@ public class AttributeTrackDocument
                     // Last range goes past end, truncate instead of remove.
                     final int overlap =
                         newRangeListLim - rangeStart;
-                    range.length -= overlap;
+                    rangeList.setLength(rangeIdx, range.length - overlap);
                     break;
                 }
                 rangeList.remove(rangeIdx);
@@ -338,9 +366,54 @@ public class AttributeTrackDocument
             rangeList.add(rangeIdx, newRange);
             rangeIdx++;
         }
+        // New ranges might be merged with existing ones.
+        rangeList.setMerged(false);
+
         return this;
     }
 
+    /**
+        Whether boolean attribute is on at offset. False if the attribute
+        isn't set, or offset is after its ranges.
+     */
+    public boolean isOn(final String attributeName, final int offset) {
+        if (null == attributeBooleanMap) {
+            return false;
+        }
+        final var rangeList = attributeBooleanMap.get(attributeName);
+        if (null == rangeList) {
+            return false;
+        }
+        // Range which includes offset.
+        final int rangeIdx = rangeList.indexOfEnd(offset + 1);
+        if (rangeIdx >= rangeList.size()) {
+            return false;
+        }
+        return rangeList.get(rangeIdx).isOn;
+    }
+
+    /**
+        End of the range of a boolean attribute which includes offset, so
+        isOn() is the same from offset up to there. Integer.MAX_VALUE if
+        the attribute isn't set, or offset is after its ranges.
+     */
+    public int getBooleanRangeEnd(
+        final String attributeName, final int offset
+    ) {
+        if (null == attributeBooleanMap) {
+            return Integer.MAX_VALUE;
+        }
+        final var rangeList = attributeBooleanMap.get(attributeName);
+        if (null == rangeList) {
+            return Integer.MAX_VALUE;
+        }
+        final int rangeIdx = rangeList.indexOfEnd(offset + 1);
+        if (rangeIdx >= rangeList.size()) {
+            return Integer.MAX_VALUE;
+        }
+        return rangeList.getStart(rangeIdx) + rangeList.get(rangeIdx).length;
+    }
+
     public AttributeListInfo getAttributeListInfo() {
         final var newAttributeListInfo = new AttributeListInfo();
 
@@ -363,8 +436,31 @@ public class AttributeTrackDocument
 
     protected AttributeTrackDocument addAttributeInfo(
         final String attributeName,
-        final List<? extends Range> rangeList,
+        final RangeList<? extends Range> rangeList,
         final AttributeListInfo attributeListInfo
+    ) {
+        final var cachedAttributeInfo =
+            attributeInfoCacheMap.get(attributeName);
+        if ( (null != cachedAttributeInfo)
+          && (rangeList == cachedAttributeInfo.rangeList)
+          && (rangeList.getVersion() == cachedAttributeInfo.version) )
+        {
+            // Range list unchanged, so attribute info is too.
+            attributeListInfo
+                .addAttributeInfo(cachedAttributeInfo.attributeInfo);
+            return this;
+        }
+        final var attribute = newAttributeInfo(attributeName, rangeList);
+        attributeInfoCacheMap.put(
+            attributeName, new CachedAttributeInfo(rangeList, attribute)
+        );
+        attributeListInfo.addAttributeInfo(attribute);
+        return this;
+    }
+
+    protected AttributeInfo newAttributeInfo(
+        final String attributeName,
+        final List<? extends Range> rangeList
     ) {
         // If the first range is a default value, then use that as the
         // attribute start position.
@@ -392,11 +488,7 @@ public class AttributeTrackDocument
             position = 0;
             newRangeList = new ArrayList<>();
         }
-        final var attribute =
-            new AttributeInfo(attributeName, position, newRangeList);
-
-        attributeListInfo.addAttributeInfo(attribute);
-        return this;
+        return new AttributeInfo(attributeName, position, newRangeList);
     }
 
     protected AttributeTrackDocument mergeValues() {
@@ -417,11 +509,30 @@ public class AttributeTrackDocument
         return this;
     }
 
+    /**
+        Merge ranges, unless already merged since the list was last
+        changed.
+     */
     protected AttributeTrackDocument mergeRange(
-        final List<? extends Range> rangeList
+        final RangeList<? extends Range> rangeList
     ) {
-        int rangeLim = rangeList.size();
-        for (int rangeIdx = 1; rangeIdx < rangeLim; /* ... */) {
+        if (!rangeList.isMerged()) {
+            mergeRange(rangeList, 1, rangeList.size() - 1);
+            rangeList.setMerged(true);
+        }
+        return this;
+    }
+
+    /**
+        Merge ranges from fromIdx to toIdx with the range before each.
+     */
+    protected AttributeTrackDocument mergeRange(
+        final RangeList<? extends Range> rangeList,
+        final int fromIdx,
+        final int toIdx
+    ) {
+        int rangeLim = toIdx + 1;
+        for (int rangeIdx = fromIdx; rangeIdx < rangeLim; /* ... */) {
             final var range = rangeList.get(rangeIdx);
 
             final int prevRangeIdx = rangeIdx - 1;
@@ -431,7 +542,9 @@ public class AttributeTrackDocument
             // to previous length and remove current.
             final boolean canMerge = range.canMerge(prevRange);;
             if (canMerge) {
-                prevRange.length += range.length;
+                rangeList.setLength(
+                    prevRangeIdx, prevRange.length + range.length
+                );
                 rangeList.remove(rangeIdx);
                 rangeLim--;
 
@@ -457,6 +570,9 @@ public class AttributeTrackDocument
     {
         insertForAttributes(offset, str);
         super.insertString(offset, str, a);
+        if ((null != str) && (0 < str.length())) {
+            _contentVersion++;
+        }
     }
 
     public AttributeTrackDocument insertForAttributes(
@@ -464,6 +580,9 @@ public class AttributeTrackDocument
         final String str
     ) {
         final int len = str.length();
+        if ((null != attributeValuesMap) || (null != attributeBooleanMap)) {
+            _attributesVersion++;
+        }
         if (null != attributeValuesMap) {
             for (final var rangeList : attributeValuesMap.values()) {
                 insertForRangeList(offset, len, rangeList);
@@ -482,40 +601,38 @@ public class AttributeTrackDocument
     protected AttributeTrackDocument insertForRangeList(
         final int offset,
         final int len,
-        final List<? extends Range> rangeList
+        final RangeList<? extends Range> rangeList
     ) {
-        // Increase the length of whatever range this is inserted to.
-        int rangeStart = 0;
-        for (final var range : rangeList) {
-            final int nextRangeStart = rangeStart + range.length;
-            /*
-                Typically inserting after the end of a range extends it,
-                rather than extending the next range. E.g for underline
-                (first position is 0):
-                  "abc"
-                    -
-                Insert "b" at position 2:
-                  "abbc"
-                    --
-                But insert "b" at position 1:
-                  "abbc"
-                     -
-                Exception for range starting at 0 of course (no previous range).
-             */
-            final boolean isOffsetAfterStart =
-                rangeStart == 0
-                    ? (rangeStart <= offset)
-                    : (rangeStart < offset);
-            final boolean isOffsetBeforeEnd =
-                (nextRangeStart >= offset);
-
-            if (isOffsetAfterStart && isOffsetBeforeEnd) {
-                range.length += len;
-
-                // Doesn't affect any other attribute range.
-                return this;
-            }
-            rangeStart = nextRangeStart;
+        /*
+            Increase the length of whatever range this is inserted to.
+
+            Typically inserting after the end of a range extends it,
+            rather than extending the next range. E.g for underline
+            (first position is 0):
+              "abc"
+                -
+            Insert "b" at position 2:
+              "abbc"
+                --
+            But insert "b" at position 1:
+              "abbc"
+                 -
+            Exception for range starting at 0 of course (no previous range).
+
+            So that's the first range which ends at or after offset. Ranges
+            before it end before offset, so it starts before offset, or at
+            0.
+         */
+        if (0 > offset) {
+            return this;
+        }
+        final int rangeIdx = rangeList.indexOfEnd(offset);
+        if (rangeIdx < rangeList.size()) {
+            // Doesn't affect any other attribute range, and a longer range
+            // can't be merged if it couldn't before.
+            rangeList.setLength(
+                rangeIdx, rangeList.get(rangeIdx).length + len
+            );
         }
         return this;
     }
@@ -526,6 +643,9 @@ public class AttributeTrackDocument
     {
         removeForAttributes(offset, len);
         super.remove(offset, len);
+        if (0 < len) {
+            _contentVersion++;
+        }
     }
 
     public AttributeTrackDocument removeForAttributes(
@@ -538,6 +658,9 @@ public class AttributeTrackDocument
         final int offset,
         final int len
     ) {
+        if ((null != attributeValuesMap) || (null != attributeBooleanMap)) {
+            _attributesVersion++;
+        }
         if (null != attributeValuesMap) {
             for (final var rangeList : attributeValuesMap.values()) {
                 removeForRangeList(offset, len, rangeList);
@@ -556,17 +679,70 @@ public class AttributeTrackDocument
     protected AttributeTrackDocument removeForRangeList(
         final int removeStart,
         final int len,
-        final List<? extends Range> rangeList
+        final RangeList<? extends Range> rangeList
+    ) {
+        if ( !rangeList.isMerged()
+          || (0 > removeStart)
+          || (0 > len) )
+        {
+            // Check every range from the start, and merge them all after.
+            removeForRangeList(removeStart, len, rangeList, 0, 0);
+            rangeList.setMerged(false);
+
+            return this;
+        }
+        // Ranges are merged, so only the first can have no length, and
+        // would be removed.
+        if ( (0 < rangeList.size())
+          && (0 == rangeList.get(0).length) )
+        {
+            rangeList.remove(0);
+        }
+        if (0 == len) {
+            return this;
+        }
+        // Ranges which end at or before removeStart aren't changed.
+        final int firstRangeIdx = rangeList.indexOfEnd(removeStart + 1);
+        final int endRangeIdx =
+            removeForRangeList(
+                removeStart,
+                len,
+                rangeList,
+                firstRangeIdx,
+                rangeList.getStart(firstRangeIdx)
+            );
+
+        // Only ranges either side of removed ranges might be merged now.
+        mergeRange(
+            rangeList,
+            Math.max(1, firstRangeIdx),
+            Math.min(endRangeIdx, rangeList.size() - 1)
+        );
+        return this;
+    }
+
+    /**
+        Remove from ranges starting at firstRangeIdx, which starts at
+        firstRangeStart. Returns index of the range after the last one
+        changed.
+     */
+    protected int removeForRangeList(
+        final int removeStart,
+        final int len,
+        final RangeList<? extends Range> rangeList,
+        final int firstRangeIdx,
+        final int firstRangeStart
     ) {
         final int removeLim = removeStart + len;
 
         // Find all ranges covered by this removal. Shorten ranges which
         // just overlap, delete ranges which are within the removal.
         int deletedLen = 0;
-        int rangeStart = 0;
+        int rangeStart = firstRangeStart;
         int rangeLim = rangeList.size();
+        int rangeIdx = firstRangeIdx;
 rangeLoop:
-        for (int rangeIdx = 0; rangeIdx < rangeLim; /* ... */ ) {
+        while (rangeIdx < rangeLim) {
             final var range = rangeList.get(rangeIdx);
             final int nextRangeStart = rangeStart + range.length;
             /*
@@ -599,23 +775,23 @@ rangeLoop:
                 {
                     // Remove from right of range.
                     final int overlap = nextRangeStart - removeStart;
-                    range.length -= overlap;
+                    rangeList.setLength(rangeIdx, range.length - overlap);
                 } 
                 else if (!willRemoveRangeStart && !willRemoveRangeEnd)
                 {
                     // Remove from middle fo range.
-                    range.length -= len;
+                    rangeList.setLength(rangeIdx, range.length - len);
                 } 
                 else if (willRemoveRangeStart && willRemoveRangeEnd)
                 {
                     // All of range removed.
-                    range.length = 0;
+                    rangeList.setLength(rangeIdx, 0);
                 }
                 else if (willRemoveRangeStart && !willRemoveRangeEnd)
                 {
                     // Remove from left of range.
                     final int overlap = removeLim - rangeStart;
-                    range.length -= overlap;
+                    rangeList.setLength(rangeIdx, range.length - overlap);
                 }
             }
             // Do actual delete,
@@ -642,6 +818,6 @@ rangeLoop:
             }
             rangeStart = nextRangeStart;
         }
-        return this;
+        return rangeIdx;
     }
 }
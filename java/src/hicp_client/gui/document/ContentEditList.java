@@ -0,0 +1,206 @@
+package hicp_client.text;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+
+import hicp.message.command.ContentInfo;
+
+/**
+    Records edits made to a document since it was last cleared, so changes
+    can be sent as add and delete actions instead of the whole content.
+
+    Edits next to or inside the previous edit are combined with it, so
+    typing or deleting a run of characters is one edit.
+ */
+public class ContentEditList
+    implements DocumentListener
+{
+    private static final Logger LOGGER =
+        Logger.getLogger( ContentEditList.class.getName() );
+
+    protected static class Edit {
+        public final boolean isAdd;
+        public int position;
+
+        // Added text for add, otherwise number of characters deleted.
+        public final StringBuilder text;
+        public int length;
+
+        public Edit(final int newPosition, final String newText) {
+            isAdd = true;
+            position = newPosition;
+            text = new StringBuilder(newText);
+            length = 0;
+        }
+
+        public Edit(final int newPosition, final int newLength) {
+            isAdd = false;
+            position = newPosition;
+            text = null;
+            length = newLength;
+        }
+
+        /**
+            Approximate size of this edit in a content-actions header,
+            including the line separator.
+         */
+        public int getSize() {
+            final int positionSize = String.valueOf(position).length();
+            if (isAdd) {
+                // "add:<position>:<text>"
+                return 7 + positionSize + text.length();
+            } else {
+                // "delete:<position>:<length>"
+                return 10 + positionSize + String.valueOf(length).length();
+            }
+        }
+
+        public ContentInfo newContentInfo() {
+            if (isAdd) {
+                final var addInfo = new ContentInfo.AddInfo();
+                addInfo.position = position;
+                addInfo.text = text.toString();
+                return new ContentInfo().setAddInfo(addInfo);
+            } else {
+                final var deleteInfo = new ContentInfo.DeleteInfo();
+                deleteInfo.position = position;
+                deleteInfo.length = length;
+                return new ContentInfo().setDeleteInfo(deleteInfo);
+            }
+        }
+    }
+
+    protected final List<Edit> _editList = new ArrayList<>();
+
+    // Set if an edit could not be recorded, or added a line break (which
+    // would split its action line), so only the whole content can be sent.
+    protected boolean _isIncomplete = false;
+
+    public ContentEditList() {
+    }
+
+    /** Forget edits, content is now what the other end has. */
+    public ContentEditList clear() {
+        _editList.clear();
+        _isIncomplete = false;
+        return this;
+    }
+
+    public void insertUpdate(final DocumentEvent e) {
+        final String text;
+        try {
+            text = e.getDocument().getText(e.getOffset(), e.getLength());
+        } catch (BadLocationException ble) {
+            LOGGER.log(Level.FINE, "Inserted text not found");
+            _isIncomplete = true;
+            return;
+        }
+        add(e.getOffset(), text);
+    }
+
+    public void removeUpdate(final DocumentEvent e) {
+        delete(e.getOffset(), e.getLength());
+    }
+
+    public void changedUpdate(final DocumentEvent e) {
+        // Attribute change, not content.
+    }
+
+    public ContentEditList add(final int position, final String text) {
+        if (0 == text.length()) {
+            return this;
+        }
+        if ( (0 <= text.indexOf('\r')) || (0 <= text.indexOf('\n')) ) {
+            _isIncomplete = true;
+            return this;
+        }
+        final Edit lastEdit = getLastEdit();
+        if ( (null != lastEdit)
+          && lastEdit.isAdd
+          && (position >= lastEdit.position)
+          && (position <= lastEdit.position + lastEdit.text.length()) )
+        {
+            // Inside or right after the last added text.
+            lastEdit.text.insert(position - lastEdit.position, text);
+            return this;
+        }
+        _editList.add(new Edit(position, text));
+        return this;
+    }
+
+    public ContentEditList delete(final int position, final int length) {
+        if (0 >= length) {
+            return this;
+        }
+        final Edit lastEdit = getLastEdit();
+        if (null != lastEdit) {
+            if (lastEdit.isAdd) {
+                final int addedStart = position - lastEdit.position;
+                final int addedEnd = addedStart + length;
+                if ( (0 <= addedStart)
+                  && (addedEnd <= lastEdit.text.length()) )
+                {
+                    // Deleting only text just added.
+                    lastEdit.text.delete(addedStart, addedEnd);
+                    if (0 == lastEdit.text.length()) {
+                        _editList.remove(_editList.size() - 1);
+                    }
+                    return this;
+                }
+            } else {
+                if (position == lastEdit.position) {
+                    // Deleting forward.
+                    lastEdit.length += length;
+                    return this;
+                }
+                if (position + length == lastEdit.position) {
+                    // Deleting backward.
+                    lastEdit.position = position;
+                    lastEdit.length += length;
+                    return this;
+                }
+            }
+        }
+        _editList.add(new Edit(position, length));
+        return this;
+    }
+
+    protected Edit getLastEdit() {
+        if (_editList.isEmpty()) {
+            return null;
+        }
+        return _editList.get(_editList.size() - 1);
+    }
+
+    /**
+        Content actions which change what the other end has to content.
+        If edits are larger than content, or couldn't all be recorded,
+        that's a single set action.
+     */
+    public List<ContentInfo> newContentInfoList(final String content) {
+        final List<ContentInfo> contentInfoList = new ArrayList<>();
+
+        if (!_isIncomplete && !_editList.isEmpty()) {
+            int editSize = 0;
+            for (final var edit : _editList) {
+                editSize += edit.getSize();
+            }
+            if (editSize < content.length()) {
+                for (final var edit : _editList) {
+                    contentInfoList.add(edit.newContentInfo());
+                }
+                return contentInfoList;
+            }
+        }
+        final var setInfo = new ContentInfo.SetInfo();
+        setInfo.text = content;
+        contentInfoList.add(new ContentInfo().setSetInfo(setInfo));
+
+        return contentInfoList;
+    }
+}
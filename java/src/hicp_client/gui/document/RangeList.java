@@ -0,0 +1,314 @@
+package hicp_client.text;
+
+import java.util.AbstractList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+    List of ranges (attribute ranges, text chunks) in a balanced (AVL)
+    tree, where each node keeps the number and total length of the ranges
+    under it. Getting a range by index, finding the range at an offset,
+    adding and removing ranges, and changing a range length are O(log n),
+    instead of scanning from the start.
+
+    Range lengths must be changed with setLength(), so totals are kept up
+    to date.
+ */
+public class RangeList<T extends RangeList.Span>
+    extends AbstractList<T>
+{
+    private static final Logger LOGGER =
+        Logger.getLogger( RangeList.class.getName() );
+
+    /** Anything with a length which can be kept in a range list. */
+    public static abstract class Span {
+        public int length = 0;
+
+        public Span(final int newLength) {
+            length = newLength;
+        }
+    }
+
+    protected static class Node<T extends Span> {
+        public final T range;
+
+        public Node<T> left = null;
+        public Node<T> right = null;
+
+        public int height = 1;
+
+        // Of this node and all nodes under it.
+        public int count = 1;
+        public int length;
+
+        public Node(final T newRange) {
+            range = newRange;
+            length = newRange.length;
+        }
+    }
+
+    protected Node<T> _root = null;
+
+    // True if no range can be merged with the one before it, and no range
+    // other than the first has length 0.
+    protected boolean _isMerged = false;
+
+    // Incremented whenever a range is added, removed, or changes length.
+    protected int _version = 0;
+
+    public RangeList() {
+    }
+
+    public boolean isMerged() {
+        return _isMerged;
+    }
+
+    public RangeList<T> setMerged(final boolean isMerged) {
+        _isMerged = isMerged;
+        return this;
+    }
+
+    public int getVersion() {
+        return _version;
+    }
+
+    @Override
+    public int size() {
+        return count(_root);
+    }
+
+    /** Total length of all ranges. */
+    public int getLength() {
+        return length(_root);
+    }
+
+    @Override
+    public T get(final int idx) {
+        return getNode(idx).range;
+    }
+
+    protected Node<T> getNode(int idx) {
+        checkIndex(idx, size());
+
+        Node<T> node = _root;
+        for (;;) {
+            final int leftCnt = count(node.left);
+            if (idx < leftCnt) {
+                node = node.left;
+            } else if (idx > leftCnt) {
+                idx -= leftCnt + 1;
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+    }
+
+    /**
+        Offset where the range at idx starts (total length of ranges before
+        it).
+     */
+    public int getStart(int idx) {
+        checkIndex(idx, size() + 1);
+
+        int start = 0;
+        Node<T> node = _root;
+        while (null != node) {
+            final int leftCnt = count(node.left);
+            if (idx <= leftCnt) {
+                node = node.left;
+            } else {
+                start += length(node.left) + node.range.length;
+                idx -= leftCnt + 1;
+                node = node.right;
+            }
+        }
+        return start;
+    }
+
+    /**
+        Index of the first range which ends at or after offset, or size()
+        if none do.
+     */
+    public int indexOfEnd(final int offset) {
+        int idx = 0;
+        int start = 0;
+        Node<T> node = _root;
+        while (null != node) {
+            final int leftLength = length(node.left);
+            if ((null != node.left) && (start + leftLength >= offset)) {
+                // Last range on the left ends at or after offset.
+                node = node.left;
+                continue;
+            }
+            final int end = start + leftLength + node.range.length;
+            if (end >= offset) {
+                return idx + count(node.left);
+            }
+            idx += count(node.left) + 1;
+            start = end;
+            node = node.right;
+        }
+        return idx;
+    }
+
+    /**
+        Set length of range at idx.
+     */
+    public RangeList<T> setLength(final int idx, final int length) {
+        checkIndex(idx, size());
+        setLength(_root, idx, length);
+        _version++;
+        return this;
+    }
+
+    protected static <T extends Span> void setLength(
+        final Node<T> node, final int idx, final int length
+    ) {
+        final int leftCnt = count(node.left);
+        if (idx < leftCnt) {
+            setLength(node.left, idx, length);
+        } else if (idx > leftCnt) {
+            setLength(node.right, idx - leftCnt - 1, length);
+        } else {
+            node.range.length = length;
+        }
+        update(node);
+    }
+
+    @Override
+    public void add(final int idx, final T range) {
+        checkIndex(idx, size() + 1);
+        _root = insert(_root, idx, range);
+        modCount++;
+        _version++;
+    }
+
+    @Override
+    public T remove(final int idx) {
+        final T range = get(idx);
+        _root = delete(_root, idx);
+        modCount++;
+        _version++;
+        return range;
+    }
+
+    @Override
+    public void clear() {
+        _root = null;
+        modCount++;
+        _version++;
+    }
+
+    protected static void checkIndex(final int idx, final int lim) {
+        if ((0 > idx) || (lim <= idx)) {
+            throw new IndexOutOfBoundsException(
+                "Index: " + idx + ", Size: " + (lim - 1)
+            );
+        }
+    }
+
+    protected static int count(final Node<?> node) {
+        return (null != node) ? node.count : 0;
+    }
+
+    protected static int length(final Node<?> node) {
+        return (null != node) ? node.length : 0;
+    }
+
+    protected static int height(final Node<?> node) {
+        return (null != node) ? node.height : 0;
+    }
+
+    protected static void update(final Node<?> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        node.count = 1 + count(node.left) + count(node.right);
+        node.length =
+            length(node.left) + node.range.length + length(node.right);
+    }
+
+    protected static <T extends Span> Node<T> insert(
+        final Node<T> node, final int idx, final T range
+    ) {
+        if (null == node) {
+            return new Node<>(range);
+        }
+        final int leftCnt = count(node.left);
+        if (idx <= leftCnt) {
+            node.left = insert(node.left, idx, range);
+        } else {
+            node.right = insert(node.right, idx - leftCnt - 1, range);
+        }
+        return balance(node);
+    }
+
+    protected static <T extends Span> Node<T> delete(
+        final Node<T> node, final int idx
+    ) {
+        final int leftCnt = count(node.left);
+        if (idx < leftCnt) {
+            node.left = delete(node.left, idx);
+        } else if (idx > leftCnt) {
+            node.right = delete(node.right, idx - leftCnt - 1);
+        } else {
+            if (null == node.left) {
+                return node.right;
+            }
+            if (null == node.right) {
+                return node.left;
+            }
+            // Replace with first node on the right.
+            Node<T> nextNode = node.right;
+            while (null != nextNode.left) {
+                nextNode = nextNode.left;
+            }
+            nextNode.right = delete(node.right, 0);
+            nextNode.left = node.left;
+            return balance(nextNode);
+        }
+        return balance(node);
+    }
+
+    protected static <T extends Span> Node<T> balance(
+        final Node<T> node
+    ) {
+        update(node);
+
+        final int heightDiff = height(node.left) - height(node.right);
+        if (1 < heightDiff) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (-1 > heightDiff) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    protected static <T extends Span> Node<T>
+        rotateLeft(final Node<T> node)
+    {
+        final Node<T> newNode = node.right;
+        node.right = newNode.left;
+        newNode.left = node;
+        update(node);
+        update(newNode);
+        return newNode;
+    }
+
+    protected static <T extends Span> Node<T>
+        rotateRight(final Node<T> node)
+    {
+        final Node<T> newNode = node.left;
+        node.left = newNode.right;
+        newNode.right = node;
+        update(node);
+        update(newNode);
+        return newNode;
+    }
+}
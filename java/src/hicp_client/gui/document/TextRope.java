@@ -0,0 +1,225 @@
+package hicp_client.text;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+    Text kept as a list of fixed size chunks in a range list, so inserting,
+    deleting, and finding text at an offset are O(log n) in the number of
+    chunks, and don't copy more than a chunk or two. Appending fills the
+    last chunk, then adds new ones.
+
+    Chunks made short by splitting on insert, or by deleting, are merged
+    with a neighbour when both fit in one chunk, so repeated prepends or
+    deletes don't leave a trail of mostly empty chunks.
+ */
+public class TextRope {
+    private static final Logger LOGGER =
+        Logger.getLogger( TextRope.class.getName() );
+
+    protected static final int CHUNK_SIZE = 2048;
+
+    protected static class Chunk extends RangeList.Span {
+        public final char[] chars = new char[CHUNK_SIZE];
+
+        public Chunk() {
+            super(0);
+        }
+    }
+
+    protected final RangeList<Chunk> _chunkList = new RangeList<>();
+
+    public TextRope() {
+    }
+
+    public int length() {
+        return _chunkList.getLength();
+    }
+
+    public TextRope clear() {
+        _chunkList.clear();
+        return this;
+    }
+
+    public TextRope insert(final int position, final String text) {
+        checkRange(position, 0);
+
+        if (0 == text.length()) {
+            return this;
+        }
+        if (0 == _chunkList.size()) {
+            _chunkList.add(new Chunk());
+        }
+        // Chunk which position is in, or at the end of.
+        final int chunkIdx = _chunkList.indexOfEnd(position);
+        final Chunk chunk = _chunkList.get(chunkIdx);
+        final int chunkOffset = position - _chunkList.getStart(chunkIdx);
+
+        if (chunk.length + text.length() <= CHUNK_SIZE) {
+            // Fits in this chunk.
+            System.arraycopy(
+                chunk.chars, chunkOffset,
+                chunk.chars, chunkOffset + text.length(),
+                chunk.length - chunkOffset
+            );
+            text.getChars(0, text.length(), chunk.chars, chunkOffset);
+            _chunkList.setLength(chunkIdx, chunk.length + text.length());
+
+            return this;
+        }
+        // Split chunk at position, fill it and following chunks with text,
+        // then put the rest of the split chunk after.
+        final String tail =
+            new String(chunk.chars, chunkOffset, chunk.length - chunkOffset);
+        _chunkList.setLength(chunkIdx, chunkOffset);
+
+        final int lastChunkIdx = fill(fill(chunkIdx, text), tail);
+
+        // Chunks between were filled, only the ends might be short.
+        mergeNext(lastChunkIdx);
+        mergeNext(chunkIdx - 1);
+
+        return this;
+    }
+
+    /**
+        Append text to chunk at chunkIdx, adding new chunks after it when
+        full. Returns index of last chunk used.
+     */
+    protected int fill(int chunkIdx, final String text) {
+        int textIdx = 0;
+        Chunk chunk = _chunkList.get(chunkIdx);
+        boolean isNewChunk = false;
+        for (;;) {
+            final int copyLength =
+                Math.min(CHUNK_SIZE - chunk.length, text.length() - textIdx);
+
+            text.getChars(
+                textIdx, textIdx + copyLength, chunk.chars, chunk.length
+            );
+            textIdx += copyLength;
+            if (isNewChunk) {
+                // Length is counted when added.
+                chunk.length += copyLength;
+                _chunkList.add(chunkIdx, chunk);
+            } else {
+                _chunkList.setLength(chunkIdx, chunk.length + copyLength);
+            }
+            if (textIdx >= text.length()) {
+                return chunkIdx;
+            }
+            chunk = new Chunk();
+            isNewChunk = true;
+            chunkIdx++;
+        }
+    }
+
+    public TextRope delete(final int position, int length) {
+        checkRange(position, length);
+
+        while (0 < length) {
+            // Chunk which position is in.
+            final int chunkIdx = _chunkList.indexOfEnd(position + 1);
+            final Chunk chunk = _chunkList.get(chunkIdx);
+            final int chunkOffset = position - _chunkList.getStart(chunkIdx);
+            final int deleteLength =
+                Math.min(length, chunk.length - chunkOffset);
+
+            if (deleteLength == chunk.length) {
+                _chunkList.remove(chunkIdx);
+            } else {
+                System.arraycopy(
+                    chunk.chars, chunkOffset + deleteLength,
+                    chunk.chars, chunkOffset,
+                    chunk.length - chunkOffset - deleteLength
+                );
+                _chunkList.setLength(chunkIdx, chunk.length - deleteLength);
+            }
+            length -= deleteLength;
+        }
+        if (0 < _chunkList.size()) {
+            // Chunk which ends at position, and the one after it, are the
+            // only ones which might have been made short.
+            final int chunkIdx =
+                Math.min(
+                    _chunkList.indexOfEnd(position), _chunkList.size() - 1
+                );
+            mergeNext(chunkIdx);
+            mergeNext(chunkIdx - 1);
+        }
+        return this;
+    }
+
+    /**
+        Move the chunk after chunkIdx into it if there's room, and remove
+        the emptied chunk.
+     */
+    protected void mergeNext(final int chunkIdx) {
+        if ( (0 > chunkIdx) || (_chunkList.size() - 1 <= chunkIdx) ) {
+            return;
+        }
+        final Chunk chunk = _chunkList.get(chunkIdx);
+        final Chunk nextChunk = _chunkList.get(chunkIdx + 1);
+        final int mergedLength = chunk.length + nextChunk.length;
+        if (CHUNK_SIZE < mergedLength) {
+            return;
+        }
+        System.arraycopy(
+            nextChunk.chars, 0, chunk.chars, chunk.length, nextChunk.length
+        );
+        _chunkList.remove(chunkIdx + 1);
+        _chunkList.setLength(chunkIdx, mergedLength);
+    }
+
+    /**
+        Copy characters from start to end into dst at dstBegin.
+     */
+    public TextRope getChars(
+        final int start, final int end, final char[] dst, int dstBegin
+    ) {
+        checkRange(start, end - start);
+
+        int position = start;
+        int chunkIdx = _chunkList.indexOfEnd(position + 1);
+        int chunkStart = _chunkList.getStart(chunkIdx);
+        while (position < end) {
+            final Chunk chunk = _chunkList.get(chunkIdx);
+            final int chunkOffset = position - chunkStart;
+            final int copyLength =
+                Math.min(end - position, chunk.length - chunkOffset);
+
+            System.arraycopy(
+                chunk.chars, chunkOffset, dst, dstBegin, copyLength
+            );
+            position += copyLength;
+            dstBegin += copyLength;
+
+            chunkStart += chunk.length;
+            chunkIdx++;
+        }
+        return this;
+    }
+
+    public String getText(final int start, final int end) {
+        final char[] chars = new char[end - start];
+        getChars(start, end, chars, 0);
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return getText(0, length());
+    }
+
+    protected void checkRange(final int position, final int length) {
+        if ( (0 > position)
+          || (0 > length)
+          || (length() < position + length) )
+        {
+            throw new IndexOutOfBoundsException(
+                "Position: " + position + ", length: " + length
+                    + ", text length: " + length()
+            );
+        }
+    }
+}
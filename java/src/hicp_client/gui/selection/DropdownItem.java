@@ -3,10 +3,9 @@ package hicp_client.gui.selection;
 import java.awt.Component;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.ComboBoxModel;
@@ -18,6 +17,7 @@ import javax.swing.ListCellRenderer;
 
 import hicp.MessageExchange;
 import hicp.message.Message;
+import hicp.message.SelectedRange;
 import hicp.message.command.CommandInfo;
 import hicp.message.command.GUISelectionInfo;
 import hicp.message.event.EventInfo;
@@ -38,6 +38,9 @@ public class DropdownItem
     protected final TextLibrary _textLibrary;
     protected final MessageExchange _messageExchange;
 
+    // Server's selection can be ranges or changes.
+    protected final boolean _selectionRanges;
+
     protected final PositionInfo _positionInfo;
 
     protected DropdownModel _dropdownModel = null;
@@ -79,8 +82,12 @@ public class DropdownItem
     class DropdownModel
         extends DefaultComboBoxModel<ItemText>
     {
-        // Also need to map by item ID.
-        private Map<String, ItemText> _selectionItemMap = new HashMap<>();
+        private List<GUISelectionInfo.Item> _itemInfoList = new ArrayList<>();
+
+        // Finds items by ID. ItemText.idx isn't used, items are only looked
+        // up this way.
+        private final ItemListDiff.IdIndex _idIndex =
+            new ItemListDiff.IdIndex();
 
         public DropdownModel(
             final List<GUISelectionInfo.Item> items
@@ -88,34 +95,126 @@ public class DropdownItem
             updateItems(items);
         }
 
-        public void updateItems(final List<GUISelectionInfo.Item> items) {
-            removeAllElements();
-            _selectionItemMap = new HashMap<>();
+        /** Changes item list and elements to match what it's told. */
+        class ItemChangeListener
+            implements ItemListDiff.Listener
+        {
+            public void removed(final int idx0, final int idx1) {
+                _itemInfoList.subList(idx0, idx1 + 1).clear();
+                for (int idx = idx1; idx >= idx0; idx--) {
+                    final ItemText itemText = getElementAt(idx);
+                    removeElementAt(idx);
+                    itemText.dispose();
+                }
+            }
+
+            public void added(
+                final int idx0, final List<GUISelectionInfo.Item> addedItems
+            ) {
+                _itemInfoList.addAll(idx0, addedItems);
+                int idx = idx0;
+                for (final var itemInfo : addedItems) {
+                    insertElementAt(
+                        new ItemText(null, _textLibrary, -1, itemInfo), idx
+                    );
+                    idx++;
+                }
+            }
 
-            if (null == items) {
-                // No items to add.
-                return;
+            public void changed(
+                final int idx0,
+                final List<GUISelectionInfo.Item> changedItems
+            ) {
+                int idx = idx0;
+                for (final var itemInfo : changedItems) {
+                    _itemInfoList.set(idx, itemInfo);
+
+                    final ItemText itemText = getElementAt(idx);
+                    removeElementAt(idx);
+                    itemText.dispose();
+                    insertElementAt(
+                        new ItemText(null, _textLibrary, -1, itemInfo), idx
+                    );
+                    idx++;
+                }
             }
-            int idx = 0;
-            for (final var itemInfo : items) {
-                final ItemText itemText =
-                    new ItemText(null, _textLibrary, idx, itemInfo);
+        }
+
+        /**
+            Change to new items, adding, removing, and changing only the
+            items which are different.
+         */
+        public void updateItems(
+            final List<GUISelectionInfo.Item> newItems
+        ) {
+            final List<GUISelectionInfo.Item> items =
+                (null != newItems) ? newItems : List.of();
+
+            final ItemText oldSelected = (ItemText)getSelectedItem();
 
-                addElement(itemText);
-                _selectionItemMap.put(itemText.id, itemText);
+            // Diff needs the old list as it was.
+            final List<GUISelectionInfo.Item> oldItemInfoList =
+                _itemInfoList;
+            _itemInfoList = new ArrayList<>(oldItemInfoList);
+
+            ItemListDiff.diff(
+                oldItemInfoList, items, new ItemChangeListener()
+            );
+            _idIndex.clear();
+            itemsChanged(oldSelected);
+        }
+
+        /** Add, remove, or replace single items. */
+        public void applyItemActions(
+            final List<GUISelectionInfo.ItemAction> itemActions
+        ) {
+            final ItemText oldSelected = (ItemText)getSelectedItem();
+
+            ItemListDiff.apply(
+                itemActions, _itemInfoList, _idIndex, new ItemChangeListener()
+            );
+            itemsChanged(oldSelected);
+        }
+
+        /**
+            The selected item stays selected if it's still there, otherwise
+            the first item is selected.
+         */
+        protected void itemsChanged(final ItemText oldSelected) {
+            final int newSelectedIdx =
+                (null != oldSelected) ? indexOfId(oldSelected.id) : -1;
+            if (-1 != newSelectedIdx) {
+                final ItemText newSelected = getElementAt(newSelectedIdx);
+                if (newSelected != getSelectedItem()) {
+                    super.setSelectedItem(newSelected);
+                }
+            } else {
+                // Same as when items are first added.
+                super.setSelectedItem(null);
+                if (0 < getSize()) {
+                    setSelectedItem(getElementAt(0));
+                }
+            }
+        }
 
-                idx++;
+        /** Stop item texts listening for text changes. */
+        public void releaseItemTexts() {
+            for (int idx = 0; idx < getSize(); idx++) {
+                getElementAt(idx).dispose();
             }
         }
 
-        public ItemText getElementForId(final String itemId) {
-            return _selectionItemMap.get(itemId);
+        /** Index of item with this ID, or -1 if there is none. */
+        public int indexOfId(final String itemId) {
+            return _idIndex.indexOfId(_itemInfoList, itemId);
         }
 
         @Override
         public void setSelectedItem(Object anItem) {
             final var itemText = (ItemText)anItem;
-            if (itemText.isEnabled()) {
+            // Null clears selection, for example when the last item is
+            // removed.
+            if ((null == itemText) || itemText.isEnabled()) {
                 super.setSelectedItem(anItem);
             }
         }
@@ -125,12 +224,22 @@ public class DropdownItem
         CommandInfo commandInfo,
         TextLibrary textLibrary,
         MessageExchange messageExchange
+    ) {
+        this(commandInfo, textLibrary, messageExchange, false);
+    }
+
+    public DropdownItem(
+        CommandInfo commandInfo,
+        TextLibrary textLibrary,
+        MessageExchange messageExchange,
+        boolean selectionRanges
     ) {
         super(commandInfo);
         _positionInfo = new PositionInfo(commandInfo);
 
         _textLibrary = textLibrary;
         _messageExchange = messageExchange;
+        _selectionRanges = selectionRanges;
     }
 
     protected Item add(final CommandInfo commandInfo) {
@@ -197,19 +306,33 @@ public class DropdownItem
             // Selection not being updated.
             return this;
         }
+        // Only select the first selected item. There's always a selection,
+        // so removing it isn't possible and is skipped.
+        SelectedRange selectedRange = null;
+        for (final var range
+            : SelectedRange.listFrom(selected, _selectionRanges))
+        {
+            if (SelectedRange.Change.REMOVE != range.change) {
+                selectedRange = range;
+                break;
+            }
+        }
+        if (null == selectedRange) {
+            return this;
+        }
+        final int selectedIdx =
+            _dropdownModel.indexOfId(selectedRange.firstId);
+        if (-1 == selectedIdx) {
+            // App thinks there's an element that's not there, skip.
+            return this;
+        }
         // If there are multiple selections, only one will be chosen, so send
         // an event indicating this change. If only one selection is sent, no
         // event is needed.
-        _shouldSendChangedEvent = (1 < selected.size());
+        _shouldSendChangedEvent =
+            (1 < selected.size()) || selectedRange.isRange();
 
-        // Only select the first.
-        final String selectedId = selected.get(0);
-        final ItemText si = _dropdownModel.getElementForId(selectedId);
-        if (null == si) {
-            // App thinks there's an element that's not there, skip.
-            return this;
-        }
-        _component.setSelectedIndex(si.idx);
+        _component.setSelectedIndex(selectedIdx);
 
         _shouldSendChangedEvent = true;
         return this;
@@ -255,6 +378,9 @@ public class DropdownItem
 
     public void dispose() {
         super.dispose();
+        if (null != _dropdownModel) {
+            _dropdownModel.releaseItemTexts();
+        }
         _component = null;
     }
 
@@ -274,8 +400,32 @@ public class DropdownItem
         final var guiSelectionInfo = guiInfo.getGUISelectionInfo();
 
         // See what's changed.
-        if (null != guiSelectionInfo.items) {
-            _dropdownModel.updateItems(guiSelectionInfo.items);
+        if ( (null != guiSelectionInfo.items)
+          || (null != guiSelectionInfo.itemActions) )
+        {
+            final ItemText oldSelected = (ItemText)_component.getSelectedItem();
+
+            _shouldSendChangedEvent = false;
+            if (null != guiSelectionInfo.items) {
+                _dropdownModel.updateItems(guiSelectionInfo.items);
+            }
+            if (null != guiSelectionInfo.itemActions) {
+                _dropdownModel.applyItemActions(guiSelectionInfo.itemActions);
+            }
+            _shouldSendChangedEvent = true;
+
+            // If the selected item is gone, and no new selection is given,
+            // let the app know.
+            final ItemText newSelected =
+                (ItemText)_component.getSelectedItem();
+            if ( (null == guiSelectionInfo.selected)
+              && !Objects.equals(
+                    (null != oldSelected) ? oldSelected.id : null,
+                    (null != newSelected) ? newSelected.id : null
+                ) )
+            {
+                sendChangedEvent(newSelected);
+            }
         }
         if (null != guiSelectionInfo.selected) {
             updateSelected(guiSelectionInfo.selected);
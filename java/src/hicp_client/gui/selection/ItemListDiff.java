@@ -0,0 +1,358 @@
+package hicp_client.gui.selection;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hicp.message.command.GUISelectionInfo;
+
+/**
+    Finds differences between old and new selection item lists by item ID,
+    so a list can be updated with only the items which changed, instead of
+    being made again. Item actions are passed on the same way.
+ */
+public class ItemListDiff {
+    private static final Logger LOGGER =
+        Logger.getLogger( ItemListDiff.class.getName() );
+
+    /**
+        Told about ranges of items, in the order they should be applied to
+        the old list to make the new list.
+     */
+    public static interface Listener {
+        /**
+            Items from idx0 to idx1 (inclusive) were removed. Called from
+            the end of the list to the start, so indexes are the same as in
+            the old list.
+         */
+        public void removed(int idx0, int idx1);
+
+        /**
+            Items were added, starting at idx0 in the new list. Called from
+            the start of the list to the end, after all removals, so items
+            before idx0 are already where they are in the new list.
+         */
+        public void added(int idx0, List<GUISelectionInfo.Item> addedItems);
+
+        /**
+            Items starting at idx0 in the new list have the same IDs as old
+            items, but different text or events. Called after all
+            additions.
+         */
+        public void changed(
+            int idx0, List<GUISelectionInfo.Item> changedItems
+        );
+    }
+
+    /**
+        Tell listener how to change oldItems to newItems. Returns the index
+        in oldItems of each item in newItems which was kept, or -1 for items
+        which were added.
+
+        Items with the same ID are kept unless they have moved relative to
+        other kept items, then they're removed and added in the new place.
+     */
+    public static int[] diff(
+        final List<GUISelectionInfo.Item> oldItems,
+        final List<GUISelectionInfo.Item> newItems,
+        final Listener listener
+    ) {
+        final int oldSize = oldItems.size();
+        final int newSize = newItems.size();
+
+        // Match by ID. Only the first of any duplicate IDs is matched.
+        final Map<String, Integer> oldIdxMap = new HashMap<>();
+        for (int oldIdx = oldSize - 1; oldIdx >= 0; oldIdx--) {
+            oldIdxMap.put(oldItems.get(oldIdx).id, oldIdx);
+        }
+        final int[] oldIdxList = new int[newSize];
+        for (int newIdx = 0; newIdx < newSize; newIdx++) {
+            final Integer oldIdx = oldIdxMap.remove(newItems.get(newIdx).id);
+            oldIdxList[newIdx] = (null != oldIdx) ? oldIdx : -1;
+        }
+        keepIncreasing(oldIdxList);
+
+        final boolean[] isKeptList = new boolean[oldSize];
+        for (final int oldIdx : oldIdxList) {
+            if (0 <= oldIdx) {
+                isKeptList[oldIdx] = true;
+            }
+        }
+
+        // Removed, from end to start.
+        for (int oldIdx = oldSize - 1; oldIdx >= 0; ) {
+            if (isKeptList[oldIdx]) {
+                oldIdx--;
+                continue;
+            }
+            final int endIdx = oldIdx;
+            while ((0 <= oldIdx) && !isKeptList[oldIdx]) {
+                oldIdx--;
+            }
+            listener.removed(oldIdx + 1, endIdx);
+        }
+
+        // Added, from start to end.
+        for (int newIdx = 0; newIdx < newSize; ) {
+            if (0 <= oldIdxList[newIdx]) {
+                newIdx++;
+                continue;
+            }
+            final int startIdx = newIdx;
+            while ((newIdx < newSize) && (0 > oldIdxList[newIdx])) {
+                newIdx++;
+            }
+            listener.added(startIdx, newItems.subList(startIdx, newIdx));
+        }
+
+        // Changed.
+        for (int newIdx = 0; newIdx < newSize; ) {
+            if (!isChanged(oldItems, newItems, oldIdxList, newIdx)) {
+                newIdx++;
+                continue;
+            }
+            final int startIdx = newIdx;
+            while ( (newIdx < newSize)
+              && isChanged(oldItems, newItems, oldIdxList, newIdx) )
+            {
+                newIdx++;
+            }
+            listener.changed(startIdx, newItems.subList(startIdx, newIdx));
+        }
+
+        return oldIdxList;
+    }
+
+    /**
+        Item indexes by ID for a list, kept up to date as item actions are
+        applied, so an action doesn't have to scan the list.
+
+        Items before the first add or remove since the index was last
+        read are known to be in place. Items after it are indexed again
+        only as far as needed to find an ID. Each ID's count of items
+        means an ID which isn't in the list is found without a scan.
+     */
+    public static class IdIndex {
+        protected static class Entry {
+            public int idx = -1;
+            public int count = 0;
+        }
+
+        // Null until the first lookup after clear().
+        protected Map<String, Entry> _entryMap = null;
+
+        // Entries for items before this index are right.
+        protected int _indexedSize = 0;
+
+        /** List was changed without telling this, index it again. */
+        public IdIndex clear() {
+            _entryMap = null;
+            _indexedSize = 0;
+            return this;
+        }
+
+        /** Item with this ID was added at idx. */
+        public IdIndex added(final int idx, final String id) {
+            if (null == _entryMap) {
+                return this;
+            }
+            _entryMap.computeIfAbsent(id, k -> new Entry()).count++;
+            _indexedSize = Math.min(_indexedSize, idx);
+            return this;
+        }
+
+        /** Item with this ID was removed from idx. */
+        public IdIndex removed(final int idx, final String id) {
+            if (null == _entryMap) {
+                return this;
+            }
+            final Entry entry = _entryMap.get(id);
+            if (null != entry) {
+                entry.count--;
+                if (0 == entry.count) {
+                    _entryMap.remove(id);
+                }
+            }
+            _indexedSize = Math.min(_indexedSize, idx);
+            return this;
+        }
+
+        /** Index of item with this ID, or -1 if there is none. */
+        public int indexOfId(
+            final List<GUISelectionInfo.Item> itemInfoList,
+            final String id
+        ) {
+            if (null == _entryMap) {
+                _entryMap = new HashMap<>();
+                _indexedSize = 0;
+                for (final var itemInfo : itemInfoList) {
+                    _entryMap.computeIfAbsent(itemInfo.id, k -> new Entry())
+                        .count++;
+                }
+            }
+            final Entry entry = _entryMap.get(id);
+            if (null == entry) {
+                return -1;
+            }
+            if (isAt(itemInfoList, entry.idx, _indexedSize, id)) {
+                return entry.idx;
+            }
+            // Index items after the ones known to be in place until this
+            // one is found.
+            while (_indexedSize < itemInfoList.size()) {
+                final int idx = _indexedSize++;
+                final String idxId = itemInfoList.get(idx).id;
+                final Entry idxEntry = _entryMap.get(idxId);
+                if (!isAt(itemInfoList, idxEntry.idx, idx, idxId)) {
+                    // Otherwise an item before this has the same ID.
+                    idxEntry.idx = idx;
+                }
+                if (idxId.equals(id)) {
+                    return idxEntry.idx;
+                }
+            }
+            return -1;
+        }
+
+        /** Item at idx has this ID, and is before endIdx. */
+        private static boolean isAt(
+            final List<GUISelectionInfo.Item> itemInfoList,
+            final int idx,
+            final int endIdx,
+            final String id
+        ) {
+            return (0 <= idx)
+                && (idx < endIdx)
+                && itemInfoList.get(idx).id.equals(id);
+        }
+    }
+
+    /**
+        Tell listener about each item action in turn. Listener must change
+        itemInfoList to match, since later actions look up IDs in it, and
+        idIndex must be for itemInfoList. Actions for IDs which aren't in
+        the list, or adding an ID which is, are skipped.
+     */
+    public static void apply(
+        final List<GUISelectionInfo.ItemAction> itemActions,
+        final List<GUISelectionInfo.Item> itemInfoList,
+        final IdIndex idIndex,
+        final Listener listener
+    ) {
+        for (final var itemAction : itemActions) {
+            final int idx = idIndex.indexOfId(itemInfoList, itemAction.id);
+            switch (itemAction.action) {
+              case ADD:
+                if (0 <= idx) {
+                    LOGGER.log(
+                        Level.FINE, "Item already added: " + itemAction.id
+                    );
+                    break;
+                }
+                {
+                    final int position =
+                        Math.max(
+                            0,
+                            Math.min(itemAction.position, itemInfoList.size())
+                        );
+                    listener.added(position, List.of(itemAction.item));
+                    idIndex.added(position, itemAction.id);
+                }
+                break;
+              case REMOVE:
+                if (0 > idx) {
+                    LOGGER.log(
+                        Level.FINE, "No item to remove: " + itemAction.id
+                    );
+                    break;
+                }
+                listener.removed(idx, idx);
+                idIndex.removed(idx, itemAction.id);
+                break;
+              case REPLACE:
+                if (0 > idx) {
+                    LOGGER.log(
+                        Level.FINE, "No item to replace: " + itemAction.id
+                    );
+                    break;
+                }
+                if (isChanged(itemInfoList.get(idx), itemAction.item)) {
+                    listener.changed(idx, List.of(itemAction.item));
+                }
+                break;
+            }
+        }
+    }
+
+    /** Item is displayed differently, though it has the same ID. */
+    public static boolean isChanged(
+        final GUISelectionInfo.Item oldItem,
+        final GUISelectionInfo.Item newItem
+    ) {
+        return !Objects.equals(oldItem.textId, newItem.textId)
+            || (oldItem.events != newItem.events);
+    }
+
+    private static boolean isChanged(
+        final List<GUISelectionInfo.Item> oldItems,
+        final List<GUISelectionInfo.Item> newItems,
+        final int[] oldIdxList,
+        final int newIdx
+    ) {
+        final int oldIdx = oldIdxList[newIdx];
+        return (0 <= oldIdx)
+            && isChanged(oldItems.get(oldIdx), newItems.get(newIdx));
+    }
+
+    /**
+        Keep the longest run of old indexes which are in increasing order,
+        set the rest to -1.
+     */
+    protected static void keepIncreasing(final int[] oldIdxList) {
+        // For each run length, index in oldIdxList of the smallest last old
+        // index of a run that long, and for each entry the entry before it
+        // in its run.
+        final int[] runEndList = new int[oldIdxList.length];
+        final int[] prevList = new int[oldIdxList.length];
+        int runLength = 0;
+
+        for (int idx = 0; idx < oldIdxList.length; idx++) {
+            final int oldIdx = oldIdxList[idx];
+            if (0 > oldIdx) {
+                continue;
+            }
+            // Longest run this can go at the end of.
+            int low = 0;
+            int high = runLength;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (oldIdxList[runEndList[mid]] < oldIdx) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            prevList[idx] = (0 < low) ? runEndList[low - 1] : -1;
+            runEndList[low] = idx;
+            if (low == runLength) {
+                runLength++;
+            }
+        }
+
+        final boolean[] isInRunList = new boolean[oldIdxList.length];
+        for (int idx = (0 < runLength) ? runEndList[runLength - 1] : -1;
+            0 <= idx;
+            idx = prevList[idx])
+        {
+            isInRunList[idx] = true;
+        }
+        for (int idx = 0; idx < oldIdxList.length; idx++) {
+            if (!isInRunList[idx]) {
+                oldIdxList[idx] = -1;
+            }
+        }
+    }
+}
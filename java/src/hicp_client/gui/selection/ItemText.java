@@ -14,11 +14,13 @@ public class ItemText
         public void itemChanged(ItemText itemText);
     }
 
-    // Model and index in model are needed for fireContentsChanged().
-    public final int idx;
+    // Model and index in model are needed for fireContentsChanged(). Index
+    // changes when items before this are added or removed.
+    public int idx;
     public final String id;
 
     private final TextLibrary textLibrary;
+    private final TextItem textItem;
     private String text = "";
 
     private final ChangeListener changeListener;
@@ -35,16 +37,36 @@ public class ItemText
         idx = newIdx;
 
         id = itemInfo.id;
-        {
-            final TextItem textItem = textLibrary.get(itemInfo.textId);
-            text = textItem.getText();
+        textItem = textLibrary.get(itemInfo.textId);
+        text = textItem.getText();
+
+        // Adds this as a listener to the text item.
+        textItem.addTextListener(this);
 
-            // Adds this as a listener to the text item.
-            textItem.addTextListener(this);
-        }
         enabled = (itemInfo.events != GUISelectionInfo.EventsEnum.DISABLED);
     }
 
+    /**
+        Item which isn't in a list, only used to measure how much space an
+        item with this text needs.
+     */
+    public ItemText(final String newText) {
+        changeListener = null;
+        textLibrary = null;
+        textItem = null;
+        idx = -1;
+        id = null;
+        text = newText;
+        enabled = true;
+    }
+
+    /** Stop listening for text changes. */
+    public void dispose() {
+        if (null != textItem) {
+            textItem.removeTextListener(this);
+        }
+    }
+
     public String getText() {
         return text;
     }
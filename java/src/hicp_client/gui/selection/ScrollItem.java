@@ -2,10 +2,13 @@ package hicp_client.gui.selection;
 
 import java.awt.Component;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.AbstractListModel;
@@ -15,18 +18,24 @@ import javax.swing.JList;
 import javax.swing.JScrollPane;
 import javax.swing.ListCellRenderer;
 import javax.swing.ListSelectionModel;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
 import hicp.MessageExchange;
 import hicp.message.Message;
+import hicp.message.SelectedRange;
 import hicp.message.command.CommandInfo;
 import hicp.message.command.GUISelectionInfo;
 import hicp.message.event.EventInfo;
 import hicp_client.gui.Item;
 import hicp_client.gui.Positionable;
 import hicp_client.gui.PositionInfo;
+import hicp_client.text.TextEvent;
+import hicp_client.text.TextItem;
 import hicp_client.text.TextLibrary;
+import hicp_client.text.TextListener;
 
 public class ScrollItem
     extends Item
@@ -41,20 +50,62 @@ public class ScrollItem
     protected final TextLibrary _textLibrary;
     protected final MessageExchange _messageExchange;
 
+    // Send selection as ranges, or changes to _sentSelectedBits.
+    protected final boolean _selectionRanges;
+
+    // Selection in the last changed event, or null if the server has
+    // changed items or selection since then.
+    protected BitSet _sentSelectedBits = null;
+
     private SelectionListModel _listModel = null;
     private SelectionItemSelection _listSelectionModel = null;
 
+    protected JList<ItemText> _list;
     protected Component _component;
 
+    // Lists with at least this many items have fixed size cells, so JList
+    // doesn't need to measure every item.
+    protected static final int FIXED_CELL_ITEM_COUNT = 1000;
+
+    /**
+        Makes an ItemText only when JList asks for an item, which is usually
+        to render it. Items scrolled out of view are released so they stop
+        listening to their text items.
+     */
     class SelectionListModel
         extends AbstractListModel<ItemText>
         implements ItemText.ChangeListener
     {
         // Empty list by default.
-        private List<ItemText> _selectionItemList = new ArrayList<>();
+        private List<GUISelectionInfo.Item> _itemInfoList = new ArrayList<>();
+
+        // Item IDs to index, made when first needed.
+        private final ItemListDiff.IdIndex _idIndex =
+            new ItemListDiff.IdIndex();
+
+        // Only items which JList has asked for since they were last
+        // released.
+        private final Map<Integer, ItemText> _itemTextMap = new HashMap<>();
+
+        // Item used to set fixed cell size, or null if JList should measure
+        // all items.
+        private ItemText _prototypeItemText = null;
+
+        // Text items of all items, and how many items use each, so each
+        // text item has one listener however many items show it.
+        private final Map<TextItem, Integer> _textUseMap = new HashMap<>();
+        private final TextListener _textListener =
+            new TextListener() {
+                // GUI thread.
+                public void textChanged(TextEvent e) {
+                    textUseChanged((TextItem)e.getSource());
+                }
+            };
 
-        // Also need to map by item ID.
-        private Map<String, ItemText> _selectionItemMap = new HashMap<>();
+        // Text item with the longest text and its length, or null if not
+        // known.
+        private TextItem _longestTextItem = null;
+        private int _longestTextLength = 0;
 
         public SelectionListModel(
             final List<GUISelectionInfo.Item> items
@@ -62,44 +113,301 @@ public class ScrollItem
             updateItems(items);
         }
 
-        public void updateItems(final List<GUISelectionInfo.Item> items) {
-            // When items change, selection no longer applies so must be
-            // cleared.
-            // Might not have been set yet, check for null first.
-            if (null != _listSelectionModel) {
-                _listSelectionModel.clearSelection();
+        /**
+            Changes item list and item texts to match what it's told, and
+            tells JList.
+         */
+        class ItemChangeListener
+            implements ItemListDiff.Listener
+        {
+            // Items which were selected when removed stay selected if
+            // they're added again (moved).
+            private final Set<String> _removedSelectedIdSet = new HashSet<>();
+
+            public void removed(final int idx0, final int idx1) {
+                if (null != _listSelectionModel) {
+                    for (int idx = idx0; idx <= idx1; idx++) {
+                        if (_listSelectionModel.isSelectedIndex(idx)) {
+                            _removedSelectedIdSet
+                                .add(_itemInfoList.get(idx).id);
+                        }
+                    }
+                }
+                final var removedItems = _itemInfoList.subList(idx0, idx1 + 1);
+                removeTextUses(removedItems);
+                removedItems.clear();
+                updateItemTexts(idx0, idx1, idx0 - (idx1 + 1));
+
+                fireIntervalRemoved(SelectionListModel.this, idx0, idx1);
             }
 
-            final int oldSize = _selectionItemList.size();
-            _selectionItemList = new ArrayList<>(items.size());
-            _selectionItemMap = new HashMap<>();
+            public void added(
+                final int idx0, final List<GUISelectionInfo.Item> addedItems
+            ) {
+                _itemInfoList.addAll(idx0, addedItems);
+                addTextUses(addedItems);
+                updateItemTexts(idx0, idx0 - 1, addedItems.size());
+
+                fireIntervalAdded(
+                    SelectionListModel.this,
+                    idx0,
+                    idx0 + addedItems.size() - 1
+                );
+                reselect(idx0, addedItems);
+            }
 
-            for (final var itemInfo : items) {
-                // Index from 0 to size - 1, next index will be size.
-                final int newIdx = _selectionItemList.size();
+            public void changed(
+                final int idx0,
+                final List<GUISelectionInfo.Item> changedItems
+            ) {
+                final int idx1 = idx0 + changedItems.size() - 1;
+                addTextUses(changedItems);
+                removeTextUses(_itemInfoList.subList(idx0, idx1 + 1));
+                for (int idx = idx0; idx <= idx1; idx++) {
+                    _itemInfoList.set(idx, changedItems.get(idx - idx0));
+                }
+                updateItemTexts(idx0, idx1, 0);
 
-                final ItemText itemText =
-                    new ItemText(this, _textLibrary, newIdx, itemInfo);
+                fireContentsChanged(SelectionListModel.this, idx0, idx1);
+                // Might have been disabled when added.
+                reselect(idx0, changedItems);
+            }
 
-                _selectionItemList.add(itemText);
-                _selectionItemMap.put(itemText.id, itemText);
+            /** Select items which were selected when they were removed. */
+            protected void reselect(
+                final int idx0, final List<GUISelectionInfo.Item> itemInfoList
+            ) {
+                if (_removedSelectedIdSet.isEmpty()) {
+                    return;
+                }
+                int idx = idx0;
+                for (final var itemInfo : itemInfoList) {
+                    if (_removedSelectedIdSet.contains(itemInfo.id)) {
+                        _listSelectionModel.addSelectionInterval(idx, idx);
+                    }
+                    idx++;
+                }
             }
-            final int newSize = _selectionItemList.size();
-            final int size = Math.max(oldSize, newSize);
+        }
 
-            fireContentsChanged(this, 0, size-1);
+        /**
+            Change to new items, adding, removing, and changing only the
+            items which are different.
+         */
+        public void updateItems(
+            final List<GUISelectionInfo.Item> newItems
+        ) {
+            final List<GUISelectionInfo.Item> items =
+                (null != newItems) ? newItems : List.of();
+
+            // Diff needs the old list as it was.
+            final List<GUISelectionInfo.Item> oldItemInfoList =
+                _itemInfoList;
+            _itemInfoList = new ArrayList<>(oldItemInfoList);
+
+            ItemListDiff.diff(
+                oldItemInfoList, items, new ItemChangeListener()
+            );
+            _idIndex.clear();
+            updatePrototype();
+        }
+
+        /** Add, remove, or replace single items. */
+        public void applyItemActions(
+            final List<GUISelectionInfo.ItemAction> itemActions
+        ) {
+            ItemListDiff.apply(
+                itemActions, _itemInfoList, _idIndex, new ItemChangeListener()
+            );
+            updatePrototype();
+        }
+
+        /**
+            Release item texts from idx0 to idx1, and move item texts after
+            that by offset.
+         */
+        protected void updateItemTexts(
+            final int idx0, final int idx1, final int offset
+        ) {
+            final Map<Integer, ItemText> movedItemTextMap = new HashMap<>();
+
+            final var it = _itemTextMap.entrySet().iterator();
+            while (it.hasNext()) {
+                final var entry = it.next();
+                final int idx = entry.getKey();
+                if (idx < idx0) {
+                    continue;
+                }
+                it.remove();
+
+                final ItemText itemText = entry.getValue();
+                if (idx <= idx1) {
+                    itemText.dispose();
+                } else {
+                    itemText.idx = idx + offset;
+                    movedItemTextMap.put(itemText.idx, itemText);
+                }
+            }
+            _itemTextMap.putAll(movedItemTextMap);
+        }
+
+        /** Count these items' text items, listening to new ones. */
+        protected void addTextUses(
+            final List<GUISelectionInfo.Item> itemInfoList
+        ) {
+            for (final var itemInfo : itemInfoList) {
+                final TextItem textItem = _textLibrary.get(itemInfo.textId);
+                if (null == textItem) {
+                    continue;
+                }
+                final Integer useCount = _textUseMap.get(textItem);
+                if (null != useCount) {
+                    _textUseMap.put(textItem, useCount + 1);
+                    continue;
+                }
+                textItem.addTextListener(_textListener);
+                _textUseMap.put(textItem, 1);
+                if (null != _longestTextItem) {
+                    setIfLonger(textItem);
+                }
+            }
+        }
+
+        /** Stop counting these items' text items. */
+        protected void removeTextUses(
+            final List<GUISelectionInfo.Item> itemInfoList
+        ) {
+            for (final var itemInfo : itemInfoList) {
+                final TextItem textItem = _textLibrary.get(itemInfo.textId);
+                final Integer useCount = _textUseMap.get(textItem);
+                if (null == useCount) {
+                    continue;
+                }
+                if (1 < useCount) {
+                    _textUseMap.put(textItem, useCount - 1);
+                    continue;
+                }
+                textItem.removeTextListener(_textListener);
+                _textUseMap.remove(textItem);
+                if (_longestTextItem == textItem) {
+                    // Find the next longest when it's needed.
+                    _longestTextItem = null;
+                }
+            }
+        }
+
+        /** Text of an item changed, fixed cell size might too. */
+        protected void textUseChanged(final TextItem textItem) {
+            if (_longestTextItem == textItem) {
+                if (_longestTextLength <= textItem.getText().length()) {
+                    _longestTextLength = textItem.getText().length();
+                } else {
+                    // Some other text might be longest now.
+                    _longestTextItem = null;
+                }
+            } else if (null != _longestTextItem) {
+                setIfLonger(textItem);
+            }
+            final ItemText oldPrototypeItemText = _prototypeItemText;
+            updatePrototype();
+            if ( (oldPrototypeItemText != _prototypeItemText)
+              && (null != _list) )
+            {
+                updateCellSize();
+            }
+        }
+
+        protected void setIfLonger(final TextItem textItem) {
+            if (_longestTextLength < textItem.getText().length()) {
+                _longestTextItem = textItem;
+                _longestTextLength = textItem.getText().length();
+            }
+        }
+
+        /**
+            Long lists use an item with the longest text, which should be
+            about the widest, for fixed cell size.
+         */
+        protected void updatePrototype() {
+            if (FIXED_CELL_ITEM_COUNT > _itemInfoList.size()) {
+                _prototypeItemText = null;
+                return;
+            }
+            if (null == _longestTextItem) {
+                // Only looks at each different text once.
+                _longestTextLength = -1;
+                for (final TextItem textItem : _textUseMap.keySet()) {
+                    setIfLonger(textItem);
+                }
+            }
+            final String longestText =
+                (null != _longestTextItem) ? _longestTextItem.getText() : "";
+            if ( (null == _prototypeItemText)
+              || !longestText.equals(_prototypeItemText.getText()) )
+            {
+                _prototypeItemText = new ItemText(longestText);
+            }
+        }
+
+        /** Stop listening for text changes. */
+        public void releaseTextUses() {
+            for (final TextItem textItem : _textUseMap.keySet()) {
+                textItem.removeTextListener(_textListener);
+            }
+            _textUseMap.clear();
+            _longestTextItem = null;
+        }
+
+        public ItemText getPrototype() {
+            return _prototypeItemText;
         }
 
         public ItemText getElementAt(final int index) {
-            return _selectionItemList.get(index);
+            ItemText itemText = _itemTextMap.get(index);
+            if (null == itemText) {
+                itemText =
+                    new ItemText(
+                        this, _textLibrary, index, _itemInfoList.get(index)
+                    );
+                _itemTextMap.put(index, itemText);
+            }
+            return itemText;
         }
 
         public int getSize() {
-            return _selectionItemList.size();
+            return _itemInfoList.size();
+        }
+
+        public String getId(final int idx) {
+            return _itemInfoList.get(idx).id;
+        }
+
+        public boolean isEnabled(final int idx) {
+            return
+                (GUISelectionInfo.EventsEnum.DISABLED
+                    != _itemInfoList.get(idx).events);
         }
 
-        public ItemText getElementForId(final String itemId) {
-            return _selectionItemMap.get(itemId);
+        /** Index of item with this ID, or -1 if there is none. */
+        public int indexOfId(final String itemId) {
+            return _idIndex.indexOfId(_itemInfoList, itemId);
+        }
+
+        /**
+            Release item texts outside of firstIdx to lastIdx, they'll be
+            made again if JList asks for them. If lastIdx is less than
+            firstIdx, release all of them.
+         */
+        public void releaseItemTexts(final int firstIdx, final int lastIdx) {
+            final var it = _itemTextMap.entrySet().iterator();
+            while (it.hasNext()) {
+                final var entry = it.next();
+                final int idx = entry.getKey();
+                if ((idx < firstIdx) || (lastIdx < idx)) {
+                    entry.getValue().dispose();
+                    it.remove();
+                }
+            }
         }
 
         // Inform JList that this item changed.
@@ -110,7 +418,7 @@ public class ScrollItem
         }
 
         public void fireContentsChanged() {
-            fireContentsChanged(this, 0, _selectionItemList.size()-1);
+            fireContentsChanged(this, 0, _itemInfoList.size()-1);
         }
     }
 
@@ -191,6 +499,11 @@ public class ScrollItem
             return events;
         }
 
+        /**
+            Set selection, or change it if selected is a list of changes.
+            Each entry is applied as an interval, with entries next to each
+            other in the list joined.
+         */
         public SelectionItemSelection updateSelected(
             final List<String> selected
         ) {
@@ -199,56 +512,81 @@ public class ScrollItem
                 return this;
             }
             _shouldSendChangedEvent = false;
-            clearSelection();
 
-            final int selectedLen = selected.size();
-            if (0 == selectedLen) {
-                // Empty selection, nothing to add.
-                return this;
+            final List<SelectedRange> rangeList =
+                SelectedRange.listFrom(selected, _selectionRanges);
+            if (!SelectedRange.isChangeList(rangeList)) {
+                clearSelection();
             }
-            // selected[0] must exist, no check needed below.
-
-            // Find idx for each selected id.
-            final int[] selectedIdxList = new int[selectedLen];
-            for (int scanIdx = 0;
-                scanIdx < selectedLen;
-                scanIdx++)
-            {
-                final var selection = selected.get(scanIdx);
-                final ItemText si = _listModel.getElementForId(selection);
-                // Possible for si to be null here - log that?
-
-                selectedIdxList[scanIdx] = si.idx;
-            }
-
-            // Go through array, add selection interval when indexes are
-            // discontinuous or end of array.
-            int prevIdx = selectedIdxList[0];
-            int startIdx = prevIdx;
-            for (int scanIdx = 1;
-                scanIdx < selectedIdxList.length;
-                scanIdx++)
-            {
-                final int expectedIdx = prevIdx + 1;
-                final int selectedIdx = selectedIdxList[scanIdx];
+            // Interval not applied yet, extended while entries follow on
+            // from it.
+            SelectedRange.Change change = null;
+            int startIdx = 0;
+            int endIdx = 0;
+            for (final var range : rangeList) {
+                // Skip any ranges with IDs which aren't there.
+                final int firstIdx = _listModel.indexOfId(range.firstId);
+                final int lastIdx =
+                    range.isRange()
+                        ? _listModel.indexOfId(range.lastId)
+                        : firstIdx;
+                if ((0 > firstIdx) || (0 > lastIdx)) {
+                    continue;
+                }
+                final int idx0 = Math.min(firstIdx, lastIdx);
+                final int idx1 = Math.max(firstIdx, lastIdx);
 
-                if (selectedIdx != expectedIdx) {
-                    addSelectionInterval(startIdx, prevIdx);
-                    startIdx = selectedIdx;
+                if ((range.change == change) && (idx0 == endIdx + 1)) {
+                    endIdx = idx1;
+                    continue;
                 }
-                prevIdx = selectedIdx;
+                updateSelectionInterval(change, startIdx, endIdx);
+                change = range.change;
+                startIdx = idx0;
+                endIdx = idx1;
             }
-            // Final interval (even if intervals were added in the loop, there
-            // will always be an interval at the end).
-            final int selectedIdxLast = selectedIdxList.length - 1;
-            final int endIdx = selectedIdxList[selectedIdxLast];
-
-            addSelectionInterval(startIdx, endIdx);
+            updateSelectionInterval(change, startIdx, endIdx);
 
             _shouldSendChangedEvent = true;
             return this;
         }
 
+        protected void updateSelectionInterval(
+            final SelectedRange.Change change,
+            final int index0,
+            final int index1
+        ) {
+            if (null == change) {
+                return;
+            }
+            switch (change) {
+              case SET:
+              case ADD:
+                addSelectionInterval(index0, index1);
+                break;
+              case REMOVE:
+                // Server can unselect disabled items, so not limited to
+                // enabled ranges.
+                super.removeSelectionInterval(index0, index1);
+                break;
+            }
+        }
+
+        /** Each bit is set if the item at that index is selected. */
+        public BitSet getSelectedBits() {
+            final BitSet selectedBits = new BitSet();
+            if (isSelectionEmpty()) {
+                return selectedBits;
+            }
+            final int maxIdx = getMaxSelectionIndex();
+            for (int idx = getMinSelectionIndex(); idx <= maxIdx; idx++) {
+                if (isSelectedIndex(idx)) {
+                    selectedBits.set(idx);
+                }
+            }
+            return selectedBits;
+        }
+
         /**
             Take a range for elements in a list model, and return a list of
             ranges where all elements are enabled. Works for ascending or
@@ -267,8 +605,7 @@ public class ScrollItem
             for (int scanIdx = index0; scanIdx != stopIdx;scanIdx += step) {
                 // Find range start or end - that is, current and previous item
                 // enabled value changes.
-                final ItemText si = _listModel.getElementAt(scanIdx);
-                final boolean isEnabled = si.isEnabled();
+                final boolean isEnabled = _listModel.isEnabled(scanIdx);
 
                 if (prevIsEnabled && !isEnabled) {
                     // Change from enabled to disbled means end of a range, add
@@ -328,10 +665,20 @@ public class ScrollItem
         }
         // Leaving these here in case they need to be overridden in other
         // versions or implementations.
-//        @Override
-//        public void insertIndexInterval(int index, int length, boolean before) {
-//            super.insertIndexInterval(index, length, before);
-//        }
+        /**
+            Called by JList when items are added. Added items take the
+            selection of the item next to them, but they're new so
+            shouldn't be selected.
+         */
+        @Override
+        public void insertIndexInterval(
+            int index, int length, boolean before
+        ) {
+            super.insertIndexInterval(index, length, before);
+
+            final int insertIdx = before ? index : (index + 1);
+            super.removeSelectionInterval(insertIdx, insertIdx + length - 1);
+        }
 //        @Override
 //        public void removeIndexInterval(int index0, int index1) {
 //            super.removeIndexInterval(index0, index1);
@@ -356,6 +703,13 @@ public class ScrollItem
         public boolean shouldSendChangedEvent() {
             return _shouldSendChangedEvent;
         }
+
+        public SelectionItemSelection setShouldSendChangedEvent(
+            final boolean shouldSendChangedEvent
+        ) {
+            _shouldSendChangedEvent = shouldSendChangedEvent;
+            return this;
+        }
     }
 
 
@@ -363,12 +717,22 @@ public class ScrollItem
         CommandInfo commandInfo,
         TextLibrary textLibrary,
         MessageExchange messageExchange
+    ) {
+        this(commandInfo, textLibrary, messageExchange, false);
+    }
+
+    public ScrollItem(
+        CommandInfo commandInfo,
+        TextLibrary textLibrary,
+        MessageExchange messageExchange,
+        boolean selectionRanges
     ) {
         super(commandInfo);
         _positionInfo = new PositionInfo(commandInfo);
 
         _textLibrary = textLibrary;
         _messageExchange = messageExchange;
+        _selectionRanges = selectionRanges;
     }
 
     protected Item add(final CommandInfo commandInfo) {
@@ -389,6 +753,9 @@ public class ScrollItem
             );
         newList.setSelectionModel(_listSelectionModel);
 
+        _list = newList;
+        updateCellSize();
+
         switch (guiSelectionInfo.mode) {
           case SINGLE:
             newList
@@ -422,32 +789,7 @@ public class ScrollItem
                             return;
                         }
 
-                        final int[] selectedIndices =
-                            source.getSelectedIndices();
-
-                        // Convert indexes to IDs.
-                        final List<String> selected = new LinkedList<>();
-
-                        for (int idx = 0;
-                            idx < selectedIndices.length;
-                            idx++
-                        ) {
-                            final int selectedIdx = selectedIndices[idx];
-                            final ItemText si =
-                                _listModel.getElementAt(selectedIdx);
-                            selected.add(si.id);
-                        }
-
-                        final var changedEvent =
-                            new Message(EventInfo.Event.CHANGED);
-                        final var eventInfo = changedEvent.getEventInfo();
-                        final var itemInfo = eventInfo.getItemInfo();
-                        final var selectionInfo = itemInfo.getSelectionInfo();
-
-                        itemInfo.id = idString;
-                        selectionInfo.selected = selected;
-
-                        _messageExchange.send(changedEvent);
+                        sendChangedEvent();
                     }
                 }
             );
@@ -461,8 +803,90 @@ public class ScrollItem
             newList.setVisibleRowCount(useHeight);
         }
 
-        _component = new JScrollPane(newList);
+        final JScrollPane scrollPane = new JScrollPane(newList);
+        scrollPane.getViewport().addChangeListener(
+            new ChangeListener() {
+                public void stateChanged(final ChangeEvent e) {
+                    releaseHiddenItemTexts();
+                }
+            }
+        );
+        _component = scrollPane;
+
+        return this;
+    }
+
+    protected List<String> getSelectedIds() {
+        final int[] selectedIndices = _listSelectionModel.getSelectedIndices();
+
+        // Convert indexes to IDs.
+        final List<String> selected = new ArrayList<>(selectedIndices.length);
+        for (final int selectedIdx : selectedIndices) {
+            selected.add(_listModel.getId(selectedIdx));
+        }
+        return selected;
+    }
+
+    /**
+        Selection as ranges of items, or as changes to the selection last
+        sent if there are fewer of them.
+     */
+    protected List<String> getSelectedRanges() {
+        final BitSet selectedBits = _listSelectionModel.getSelectedBits();
+
+        List<String> selected =
+            rangesOf(selectedBits, SelectedRange.Change.SET);
+        if (null != _sentSelectedBits) {
+            final BitSet addedBits = (BitSet)selectedBits.clone();
+            addedBits.andNot(_sentSelectedBits);
+            final BitSet removedBits = (BitSet)_sentSelectedBits.clone();
+            removedBits.andNot(selectedBits);
+
+            final List<String> changed =
+                rangesOf(removedBits, SelectedRange.Change.REMOVE);
+            changed.addAll(rangesOf(addedBits, SelectedRange.Change.ADD));
+
+            // No changes would look like nothing selected.
+            if (!changed.isEmpty() && (changed.size() < selected.size())) {
+                selected = changed;
+            }
+        }
+        _sentSelectedBits = selectedBits;
+
+        return selected;
+    }
+
+    /** Each run of set bits as a range of item IDs. */
+    protected List<String> rangesOf(
+        final BitSet bits, final SelectedRange.Change change
+    ) {
+        final List<String> rangeList = new ArrayList<>();
+        for (int idx0 = bits.nextSetBit(0);
+            0 <= idx0;
+            idx0 = bits.nextSetBit(idx0))
+        {
+            final int idx1 = bits.nextClearBit(idx0) - 1;
+            rangeList.add(
+                new SelectedRange(
+                    change, _listModel.getId(idx0), _listModel.getId(idx1)
+                ).toString()
+            );
+            idx0 = idx1 + 1;
+        }
+        return rangeList;
+    }
+
+    protected Item sendChangedEvent() {
+        final var changedEvent = new Message(EventInfo.Event.CHANGED);
+        final var eventInfo = changedEvent.getEventInfo();
+        final var itemInfo = eventInfo.getItemInfo();
+        final var selectionInfo = itemInfo.getSelectionInfo();
+
+        itemInfo.id = idString;
+        selectionInfo.selected =
+            _selectionRanges ? getSelectedRanges() : getSelectedIds();
 
+        _messageExchange.send(changedEvent);
         return this;
     }
 
@@ -486,9 +910,41 @@ public class ScrollItem
         return java.awt.GridBagConstraints.NONE;
     }
 
+    /**
+        Long lists use the size of the longest item for all cells, so JList
+        doesn't have to make and measure an item for every row.
+     */
+    protected void updateCellSize() {
+        final ItemText prototype = _listModel.getPrototype();
+        if (null != prototype) {
+            _list.setPrototypeCellValue(prototype);
+        } else {
+            _list.setPrototypeCellValue(null);
+            _list.setFixedCellWidth(-1);
+            _list.setFixedCellHeight(-1);
+        }
+    }
+
+    /** Keep item texts for visible rows, and a page before and after. */
+    protected void releaseHiddenItemTexts() {
+        final int firstIdx = _list.getFirstVisibleIndex();
+        final int lastIdx = _list.getLastVisibleIndex();
+        if (-1 == firstIdx) {
+            _listModel.releaseItemTexts(0, -1);
+            return;
+        }
+        final int pageSize = lastIdx - firstIdx + 1;
+        _listModel.releaseItemTexts(firstIdx - pageSize, lastIdx + pageSize);
+    }
+
     public void dispose() {
         super.dispose();
+        if (null != _listModel) {
+            _listModel.releaseItemTexts(0, -1);
+            _listModel.releaseTextUses();
+        }
         _component = null;
+        _list = null;
     }
 
     protected Item setEvents(final GUISelectionInfo.EventsEnum events) {
@@ -506,8 +962,41 @@ public class ScrollItem
         final var guiSelectionInfo = guiInfo.getGUISelectionInfo();
 
         // See what's changed.
-        if (null != guiSelectionInfo.items) {
-            _listModel.updateItems(guiSelectionInfo.items);
+        if ( (null != guiSelectionInfo.items)
+          || (null != guiSelectionInfo.itemActions)
+          || (null != guiSelectionInfo.selected) )
+        {
+            // Server's idea of the selection might not match the last event
+            // now, so next event sends the whole selection.
+            _sentSelectedBits = null;
+        }
+        if ( (null != guiSelectionInfo.items)
+          || (null != guiSelectionInfo.itemActions) )
+        {
+            final int oldSelectedCnt =
+                _listSelectionModel.getSelectedItemsCount();
+
+            // JList adjusts selection when items are added or removed,
+            // that's not a user selection.
+            _listSelectionModel.setShouldSendChangedEvent(false);
+            if (null != guiSelectionInfo.items) {
+                _listModel.updateItems(guiSelectionInfo.items);
+            }
+            if (null != guiSelectionInfo.itemActions) {
+                _listModel.applyItemActions(guiSelectionInfo.itemActions);
+            }
+            _listSelectionModel.setShouldSendChangedEvent(true);
+            updateCellSize();
+
+            // If items which were selected are gone, and no new selection
+            // is given, let the app know. Selection can only lose items
+            // here, so comparing counts is enough.
+            if ( (null == guiSelectionInfo.selected)
+              && ( oldSelectedCnt
+                != _listSelectionModel.getSelectedItemsCount() ) )
+            {
+                sendChangedEvent();
+            }
         }
         if (null != guiSelectionInfo.selected) {
             _listSelectionModel.updateSelected(guiSelectionInfo.selected);
@@ -19,6 +19,20 @@ public class SelectionSource {
         final CommandInfo commandInfo,
         final TextLibrary textLibrary,
         final MessageExchange messageExchange
+    ) {
+        return newItem(commandInfo, textLibrary, messageExchange, false);
+    }
+
+    /**
+        If selectionRanges is true, "selected" lists from the server can
+        have ranges or changes, and selection lists which can be long send
+        their selection as ranges or changes.
+     */
+    public static Item newItem(
+        final CommandInfo commandInfo,
+        final TextLibrary textLibrary,
+        final MessageExchange messageExchange,
+        final boolean selectionRanges
     ) {
         final var itemInfo = commandInfo.getItemInfo();
         final var guiInfo = itemInfo.getGUIInfo();
@@ -26,11 +40,17 @@ public class SelectionSource {
 
         switch (guiSelectionInfo.presentation) {
           case SCROLL:
-            return new ScrollItem(commandInfo, textLibrary, messageExchange);
+            return new ScrollItem(
+                commandInfo, textLibrary, messageExchange, selectionRanges
+            );
           case TOGGLE:
-            return new ToggleItem(commandInfo, textLibrary, messageExchange);
+            return new ToggleItem(
+                commandInfo, textLibrary, messageExchange, selectionRanges
+            );
           case DROPDOWN:
-            return new DropdownItem(commandInfo, textLibrary, messageExchange);
+            return new DropdownItem(
+                commandInfo, textLibrary, messageExchange, selectionRanges
+            );
         }
         return null;  // Should never get here, but you know...
     }
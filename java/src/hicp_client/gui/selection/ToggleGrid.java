@@ -0,0 +1,570 @@
+package hicp_client.gui.selection;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.accessibility.Accessible;
+import javax.accessibility.AccessibleAction;
+import javax.accessibility.AccessibleContext;
+import javax.accessibility.AccessibleRole;
+import javax.accessibility.AccessibleState;
+import javax.accessibility.AccessibleStateSet;
+import javax.swing.AbstractAction;
+import javax.swing.CellRendererPane;
+import javax.swing.InputMap;
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import javax.swing.JRadioButton;
+import javax.swing.JToggleButton;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+
+/**
+    Paints a group of toggles in one component, so large groups don't need
+    a Swing button for each item. Toggles are painted with one renderer
+    button, and a real button is put over the focused toggle for keyboard
+    input and accessibility. Arrow keys move the focus between toggles.
+
+    Items are laid out top to bottom in columns of rowCount items, like
+    ToggleItem lays out its buttons.
+ */
+public class ToggleGrid
+    extends JPanel
+{
+    private static final Logger LOGGER =
+        Logger.getLogger( ToggleGrid.class.getName() );
+//LOGGER.log(Level.FINE, "");  // debug
+
+    /** Items shown by the grid, by index. */
+    public static interface Model {
+        public int getSize();
+        public String getText(int idx);
+        public boolean isSelected(int idx);
+        public boolean isEnabled(int idx);
+
+        /** User clicked on the item. */
+        public void toggle(int idx);
+    }
+
+    protected final Model _model;
+    protected final boolean _isRadio;
+
+    // Paints each toggle which doesn't have focus.
+    protected final JToggleButton _renderer;
+    protected final CellRendererPane _rendererPane = new CellRendererPane();
+
+    // Real button over the toggle with focus.
+    protected final JToggleButton _focusButton;
+    protected int _focusIdx = 0;
+
+    // 0 for one column.
+    protected int _rowCount = 0;
+
+    // Start x of each column, then the total width. Made when first needed
+    // after items or text change.
+    protected int[] _columnXList = null;
+    protected int _rowHeight = 0;
+
+    public ToggleGrid(final Model model, final boolean isRadio) {
+        super(null);
+
+        _model = model;
+        _isRadio = isRadio;
+        _renderer = newButton();
+        _renderer.setOpaque(false);
+        _focusButton = newButton();
+        _focusButton.setOpaque(false);
+
+        add(_rendererPane);
+        add(_focusButton);
+
+        _focusButton.addActionListener(
+            new ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    toggle(_focusIdx);
+                }
+            }
+        );
+        {
+            final InputMap inputMap =
+                _focusButton.getInputMap(JComponent.WHEN_FOCUSED);
+            inputMap.put(KeyStroke.getKeyStroke("UP"), "previousToggle");
+            inputMap.put(KeyStroke.getKeyStroke("DOWN"), "nextToggle");
+            inputMap.put(KeyStroke.getKeyStroke("LEFT"), "leftToggle");
+            inputMap.put(KeyStroke.getKeyStroke("RIGHT"), "rightToggle");
+            inputMap.put(KeyStroke.getKeyStroke("HOME"), "firstToggle");
+            inputMap.put(KeyStroke.getKeyStroke("END"), "lastToggle");
+
+            final var actionMap = _focusButton.getActionMap();
+            actionMap.put("previousToggle", new MoveFocusAction(-1, false));
+            actionMap.put("nextToggle", new MoveFocusAction(1, false));
+            actionMap.put("leftToggle", new MoveFocusAction(-1, true));
+            actionMap.put("rightToggle", new MoveFocusAction(1, true));
+            actionMap.put(
+                "firstToggle", new MoveFocusAction(Integer.MIN_VALUE, false)
+            );
+            actionMap.put(
+                "lastToggle", new MoveFocusAction(Integer.MAX_VALUE, false)
+            );
+        }
+        addMouseListener(
+            new MouseAdapter() {
+                private int _pressedIdx = -1;
+
+                public void mousePressed(final MouseEvent e) {
+                    if (!SwingUtilities.isLeftMouseButton(e)) {
+                        return;
+                    }
+                    _pressedIdx = indexAt(e.getPoint());
+                    if ( (0 <= _pressedIdx)
+                      && _model.isEnabled(_pressedIdx) )
+                    {
+                        setFocusIdx(_pressedIdx);
+                        _focusButton.requestFocusInWindow();
+                    }
+                }
+
+                public void mouseReleased(final MouseEvent e) {
+                    // Same as a button, only a click if released over the
+                    // item which was pressed.
+                    if ( (0 <= _pressedIdx)
+                      && (_pressedIdx == indexAt(e.getPoint())) )
+                    {
+                        toggle(_pressedIdx);
+                    }
+                    _pressedIdx = -1;
+                }
+            }
+        );
+    }
+
+    protected JToggleButton newButton() {
+        return _isRadio ? new JRadioButton() : new JCheckBox();
+    }
+
+    @Override
+    public void updateUI() {
+        super.updateUI();
+
+        // Renderer isn't part of the component tree, so isn't updated with
+        // it. Null when called from the JPanel constructor.
+        if (null != _renderer) {
+            _renderer.updateUI();
+            _columnXList = null;
+        }
+    }
+
+    /**
+        Move focus by step items, or by step columns if isColumnStep is
+        true. Disabled items are skipped, like disabled buttons when
+        tabbing.
+     */
+    protected class MoveFocusAction
+        extends AbstractAction
+    {
+        private final int _step;
+        private final boolean _isColumnStep;
+
+        public MoveFocusAction(final int step, final boolean isColumnStep) {
+            _step = step;
+            _isColumnStep = isColumnStep;
+        }
+
+        public void actionPerformed(final ActionEvent e) {
+            final int size = _model.getSize();
+            if (0 == size) {
+                return;
+            }
+            if (Integer.MIN_VALUE == _step) {
+                setFocusIdx(findEnabled(0, 1));
+            } else if (Integer.MAX_VALUE == _step) {
+                setFocusIdx(findEnabled(size - 1, -1));
+            } else if (_isColumnStep) {
+                // Columns are mirrored for right to left.
+                final int columnStep =
+                    getComponentOrientation().isLeftToRight()
+                        ? _step
+                        : -_step;
+                final int rowCount = getRows();
+                int idx = _focusIdx + columnStep * rowCount;
+                while ((0 <= idx) && (idx < size) && !_model.isEnabled(idx)) {
+                    idx += columnStep * rowCount;
+                }
+                if ((0 <= idx) && (idx < size)) {
+                    setFocusIdx(idx);
+                }
+            } else {
+                final int idx = findEnabled(_focusIdx + _step, _step);
+                if (0 <= idx) {
+                    setFocusIdx(idx);
+                }
+            }
+        }
+    }
+
+    /**
+        First enabled item from idx going in direction step, or -1 if there
+        are none.
+     */
+    protected int findEnabled(int idx, final int step) {
+        final int size = _model.getSize();
+        while ((0 <= idx) && (idx < size)) {
+            if (_model.isEnabled(idx)) {
+                return idx;
+            }
+            idx += step;
+        }
+        return -1;
+    }
+
+    protected ToggleGrid toggle(final int idx) {
+        if (_model.isEnabled(idx)) {
+            _model.toggle(idx);
+        }
+        // Focus button might have toggled itself, make sure it matches.
+        selectionChanged();
+        return this;
+    }
+
+    /** Rows in each column. */
+    public ToggleGrid setRowCount(final int rowCount) {
+        if (rowCount != _rowCount) {
+            _rowCount = rowCount;
+            itemsChanged();
+        }
+        return this;
+    }
+
+    protected int getRows() {
+        return (0 < _rowCount) ? _rowCount : Math.max(1, _model.getSize());
+    }
+
+    /** Items or their text changed, so cell sizes might have too. */
+    public ToggleGrid itemsChanged() {
+        _columnXList = null;
+        selectionChanged();
+        revalidate();
+        return this;
+    }
+
+    /** Items were selected, unselected, enabled, or disabled. */
+    public ToggleGrid selectionChanged() {
+        final int size = _model.getSize();
+        if (0 == size) {
+            _focusIdx = 0;
+            _focusButton.setVisible(false);
+        } else {
+            _focusIdx = Math.min(_focusIdx, size - 1);
+            if (!_model.isEnabled(_focusIdx)) {
+                // Move focus to nearest enabled item, if there is one.
+                int idx = findEnabled(_focusIdx, 1);
+                if (0 > idx) {
+                    idx = findEnabled(_focusIdx, -1);
+                }
+                if (0 <= idx) {
+                    _focusIdx = idx;
+                }
+            }
+            _focusButton.setText(_model.getText(_focusIdx));
+            _focusButton.setSelected(_model.isSelected(_focusIdx));
+            _focusButton.setEnabled(_model.isEnabled(_focusIdx));
+            _focusButton.setVisible(true);
+            // Position only, cells don't change size.
+            if (null != _columnXList) {
+                _focusButton.setBounds(getCellBounds(_focusIdx));
+            }
+        }
+        repaint();
+        return this;
+    }
+
+    protected ToggleGrid setFocusIdx(final int idx) {
+        if ((0 > idx) || (idx >= _model.getSize())) {
+            return this;
+        }
+        final boolean hadFocus = _focusButton.isFocusOwner();
+        _focusIdx = idx;
+        selectionChanged();
+        scrollRectToVisible(getCellBounds(idx));
+        if (hadFocus) {
+            _focusButton.requestFocusInWindow();
+        }
+        return this;
+    }
+
+    /** Measure each item to find column widths and row height. */
+    protected ToggleGrid updateCellSizes() {
+        if (null != _columnXList) {
+            return this;
+        }
+        final int size = _model.getSize();
+        final int rowCount = getRows();
+        final int columnCount = (size + rowCount - 1) / rowCount;
+
+        _columnXList = new int[columnCount + 1];
+        _rowHeight = 0;
+        int x = 0;
+        for (int column = 0; column < columnCount; column++) {
+            _columnXList[column] = x;
+
+            int columnWidth = 0;
+            final int endIdx = Math.min(size, (column + 1) * rowCount);
+            for (int idx = column * rowCount; idx < endIdx; idx++) {
+                _renderer.setText(_model.getText(idx));
+                final Dimension d = _renderer.getPreferredSize();
+                columnWidth = Math.max(columnWidth, d.width);
+                _rowHeight = Math.max(_rowHeight, d.height);
+            }
+            x += columnWidth;
+        }
+        _columnXList[columnCount] = x;
+
+        return this;
+    }
+
+    protected Rectangle getCellBounds(final int idx) {
+        updateCellSizes();
+
+        final int rowCount = getRows();
+        final int column = idx / rowCount;
+        final int row = idx % rowCount;
+        final int width = _columnXList[column + 1] - _columnXList[column];
+        final int x =
+            getComponentOrientation().isLeftToRight()
+                ? _columnXList[column]
+                : (getWidth() - _columnXList[column + 1]);
+
+        return new Rectangle(x, row * _rowHeight, width, _rowHeight);
+    }
+
+    /** Index of item at point, or -1 if there's none there. */
+    protected int indexAt(final Point p) {
+        updateCellSizes();
+
+        if ((0 > p.y) || (0 >= _rowHeight)) {
+            return -1;
+        }
+        final int x =
+            getComponentOrientation().isLeftToRight()
+                ? p.x
+                : (getWidth() - 1 - p.x);
+        final int columnCount = _columnXList.length - 1;
+        if ((0 > x) || (_columnXList[columnCount] <= x)) {
+            return -1;
+        }
+        // Column which starts at or before x.
+        int column = Arrays.binarySearch(_columnXList, 0, columnCount, x);
+        if (0 > column) {
+            column = -column - 2;
+        }
+        // Columns with no width have the same start, use the last.
+        while ( (column + 1 < columnCount)
+          && (_columnXList[column + 1] <= x) )
+        {
+            column++;
+        }
+        final int rowCount = getRows();
+        final int row = p.y / _rowHeight;
+        final int idx = column * rowCount + row;
+        if ((rowCount <= row) || (_model.getSize() <= idx)) {
+            return -1;
+        }
+        return idx;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        updateCellSizes();
+
+        final int rows = Math.min(getRows(), _model.getSize());
+        return new Dimension(
+            _columnXList[_columnXList.length - 1], rows * _rowHeight
+        );
+    }
+
+    @Override
+    public Dimension getMinimumSize() {
+        if (isMinimumSizeSet()) {
+            return super.getMinimumSize();
+        }
+        return getPreferredSize();
+    }
+
+    @Override
+    public void doLayout() {
+        _rendererPane.setBounds(0, 0, 0, 0);
+        if (0 < _model.getSize()) {
+            _focusButton.setBounds(getCellBounds(_focusIdx));
+        }
+    }
+
+    @Override
+    protected void paintComponent(final Graphics g) {
+        super.paintComponent(g);
+        updateCellSizes();
+
+        final int size = _model.getSize();
+        if ((0 == size) || (0 >= _rowHeight)) {
+            return;
+        }
+        final Rectangle clip = g.getClipBounds();
+        final int rowCount = getRows();
+        final int firstRow = Math.max(0, clip.y / _rowHeight);
+        final int lastRow =
+            Math.min(rowCount - 1, (clip.y + clip.height) / _rowHeight);
+
+        _renderer.setComponentOrientation(getComponentOrientation());
+
+        final int columnCount = _columnXList.length - 1;
+        for (int column = 0; column < columnCount; column++) {
+            final Rectangle columnBounds = getCellBounds(column * rowCount);
+            if ( (columnBounds.x + columnBounds.width <= clip.x)
+              || (clip.x + clip.width <= columnBounds.x) )
+            {
+                continue;
+            }
+            for (int row = firstRow; row <= lastRow; row++) {
+                final int idx = column * rowCount + row;
+                if (size <= idx) {
+                    break;
+                }
+                if (idx == _focusIdx) {
+                    // Focus button paints itself.
+                    continue;
+                }
+                _renderer.setText(_model.getText(idx));
+                _renderer.setSelected(_model.isSelected(idx));
+                _renderer.setEnabled(_model.isEnabled(idx));
+                _rendererPane.paintComponent(
+                    g, _renderer, this,
+                    columnBounds.x, row * _rowHeight,
+                    columnBounds.width, _rowHeight,
+                    true
+                );
+            }
+        }
+    }
+
+    @Override
+    public AccessibleContext getAccessibleContext() {
+        if (null == accessibleContext) {
+            accessibleContext = new AccessibleToggleGrid();
+        }
+        return accessibleContext;
+    }
+
+    /** Each item is an accessible child, the focused one is its button. */
+    protected class AccessibleToggleGrid
+        extends AccessibleJPanel
+    {
+        @Override
+        public int getAccessibleChildrenCount() {
+            return _model.getSize();
+        }
+
+        @Override
+        public Accessible getAccessibleChild(final int idx) {
+            if ((0 > idx) || (idx >= _model.getSize())) {
+                return null;
+            }
+            if (idx == _focusIdx) {
+                return _focusButton;
+            }
+            return new AccessibleToggle(idx);
+        }
+    }
+
+    /** Item painted by the renderer, made when asked for. */
+    protected class AccessibleToggle
+        extends AccessibleContext
+        implements Accessible, AccessibleAction
+    {
+        protected final int _idx;
+
+        public AccessibleToggle(final int idx) {
+            _idx = idx;
+            setAccessibleParent(ToggleGrid.this);
+        }
+
+        public AccessibleContext getAccessibleContext() {
+            return this;
+        }
+
+        @Override
+        public String getAccessibleName() {
+            return _model.getText(_idx);
+        }
+
+        public AccessibleRole getAccessibleRole() {
+            return _isRadio
+                ? AccessibleRole.RADIO_BUTTON
+                : AccessibleRole.CHECK_BOX;
+        }
+
+        public AccessibleStateSet getAccessibleStateSet() {
+            final AccessibleStateSet stateSet = new AccessibleStateSet();
+            stateSet.add(AccessibleState.VISIBLE);
+            if (isShowing()) {
+                stateSet.add(AccessibleState.SHOWING);
+            }
+            if (_model.isEnabled(_idx)) {
+                stateSet.add(AccessibleState.ENABLED);
+                stateSet.add(AccessibleState.FOCUSABLE);
+            }
+            if (_model.isSelected(_idx)) {
+                stateSet.add(AccessibleState.CHECKED);
+            }
+            return stateSet;
+        }
+
+        public int getAccessibleIndexInParent() {
+            return _idx;
+        }
+
+        public int getAccessibleChildrenCount() {
+            return 0;
+        }
+
+        public Accessible getAccessibleChild(final int i) {
+            return null;
+        }
+
+        public Locale getLocale() {
+            return ToggleGrid.this.getLocale();
+        }
+
+        @Override
+        public AccessibleAction getAccessibleAction() {
+            return this;
+        }
+
+        public int getAccessibleActionCount() {
+            return 1;
+        }
+
+        public String getAccessibleActionDescription(final int i) {
+            return (0 == i) ? AccessibleAction.CLICK : null;
+        }
+
+        public boolean doAccessibleAction(final int i) {
+            if ((0 != i) || (_idx >= _model.getSize())) {
+                return false;
+            }
+            toggle(_idx);
+            return true;
+        }
+    }
+}
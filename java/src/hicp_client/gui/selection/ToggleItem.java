@@ -6,9 +6,11 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -21,6 +23,7 @@ import javax.swing.JToggleButton;
 import hicp.MessageExchange;
 import hicp.TextDirection;
 import hicp.message.Message;
+import hicp.message.SelectedRange;
 import hicp.message.command.CommandInfo;
 import hicp.message.command.GUISelectionInfo;
 import hicp.message.event.EventInfo;
@@ -42,17 +45,40 @@ public class ToggleItem
 //LOGGER.log(Level.FINE, "");  // debug
 //LOGGER.log(Level.FINE, " " + );  // debug
 
+    // Groups with at least this many items are painted by one component,
+    // instead of having a Swing button for each item.
+    protected static final int GRID_ITEM_COUNT = 200;
+
     protected final PositionInfo _positionInfo;
 
     protected final TextLibrary _textLibrary;
     protected final MessageExchange _messageExchange;
 
+    // Server's selection can be ranges or changes.
+    protected final boolean _selectionRanges;
+
     protected JPanel _component;
 
     protected ButtonGroup _buttonGroup = null;
     protected JRadioButton _noneButton = null;
 
-    protected List<SelectionItem> _selectionItemList = null;
+    // Only for a large group, null otherwise.
+    protected ToggleGrid _toggleGrid = null;
+
+    // Grid text items, and how many items use each, so each text item has
+    // one listener however many items show it.
+    protected final Map<TextItem, Integer> _gridTextUseMap = new HashMap<>();
+    protected final TextListener _gridTextListener =
+        new TextListener() {
+            // GUI thread.
+            public void textChanged(TextEvent e) {
+                _toggleGrid.itemsChanged();
+            }
+        };
+
+    protected List<GUISelectionInfo.Item> _itemInfoList = new ArrayList<>();
+    protected final ItemListDiff.IdIndex _idIndex = new ItemListDiff.IdIndex();
+    protected List<SelectionItem> _selectionItemList = new ArrayList<>();
 
     private boolean _hasHeight = false;
     private int _height = 0;
@@ -71,9 +97,12 @@ public class ToggleItem
     {
         public final String id;
 
+        // Null if painted by the toggle grid.
         public final JToggleButton component;
+        private boolean _isSelected = false;
 
         private final GUISelectionInfo.EventsEnum events;
+        private final TextItem textItem;
 
         public SelectionItem(
             final GUISelectionInfo.Item itemInfo,
@@ -85,6 +114,18 @@ public class ToggleItem
                     ? itemInfo.events
                     : GUISelectionInfo.EventsEnum.ENABLED;
 
+            textItem = _textLibrary.get(itemInfo.textId);
+            if (null != _toggleGrid) {
+                component = null;
+                addGridText(textItem);
+
+                final boolean checkIsEnabled = isEnabled();
+                if (checkIsEnabled && isSelected) {
+                    setSelected(true);
+                }
+                return;
+            }
+
             // Component type based on selection mode.
             switch (_mode) {
               case SINGLE:
@@ -113,24 +154,7 @@ public class ToggleItem
             component.addActionListener(
                 new ActionListener() {
                     public void actionPerformed(ActionEvent e) {
-                        // Create and send a selection changed event.
-                        final var changedEvent =
-                            new Message(EventInfo.Event.CHANGED);
-                        final var eventInfo = changedEvent.getEventInfo();
-                        final var itemInfo = eventInfo.getItemInfo();
-                        final var selectionInfo = itemInfo.getSelectionInfo();
-
-                        itemInfo.id = idString;
-
-                        final List<String> selected = new LinkedList<>();
-                        for (final SelectionItem si : _selectionItemList) {
-                            if (si.isSelected()) {
-                                selected.add(si.id);
-                            }
-                        }
-                        selectionInfo.selected = selected;
-
-                        _messageExchange.send(changedEvent);
+                        sendChangedEvent();
 
                         // Update component enabled status because deselecting
                         // might change it.
@@ -138,11 +162,9 @@ public class ToggleItem
                     }
                 }
             );
-            {
-                final TextItem textItem = _textLibrary.get(itemInfo.textId);
-                component.setText(textItem.getText());
-                textItem.addTextListener(this);
-            }
+            component.setText(textItem.getText());
+            textItem.addTextListener(this);
+
             {
                 final boolean checkIsEnabled = isEnabled();
                 component.setEnabled(checkIsEnabled);
@@ -158,12 +180,43 @@ public class ToggleItem
             component.setText(ti.getText());
         }
 
+        /** Remove from container and stop listening for text changes. */
+        public void dispose() {
+            if (null == component) {
+                removeGridText(textItem);
+                return;
+            }
+            textItem.removeTextListener(this);
+            if (null != _buttonGroup) {
+                _buttonGroup.remove(component);
+            }
+            _component.remove(component);
+        }
+
         public boolean isSelected() {
-            return component.isSelected();
+            return (null != component) ? component.isSelected() : _isSelected;
+        }
+
+        public SelectionItem setSelected(final boolean isSelected) {
+            if (null != component) {
+                component.setSelected(isSelected);
+                return this;
+            }
+            if (isSelected && (GUISelectionInfo.Mode.SINGLE == _mode)) {
+                // Only one selected, same as a button group.
+                for (final SelectionItem si : _selectionItemList) {
+                    si._isSelected = false;
+                }
+            }
+            _isSelected = isSelected;
+            return this;
         }
 
         public SelectionItem updateEnabled() {
-            component.setEnabled(isEnabled());
+            // Grid checks when painting.
+            if (null != component) {
+                component.setEnabled(isEnabled());
+            }
             return this;
         }
 
@@ -192,81 +245,230 @@ public class ToggleItem
         CommandInfo commandInfo,
         TextLibrary textLibrary,
         MessageExchange messageExchange
+    ) {
+        this(commandInfo, textLibrary, messageExchange, false);
+    }
+
+    public ToggleItem(
+        CommandInfo commandInfo,
+        TextLibrary textLibrary,
+        MessageExchange messageExchange,
+        boolean selectionRanges
     ) {
         super(commandInfo);
         _positionInfo = new PositionInfo(commandInfo);
 
         _textLibrary = textLibrary;
         _messageExchange = messageExchange;
+        _selectionRanges = selectionRanges;
     }
 
-    public ToggleItem updateItems(
-        final GUISelectionInfo guiSelectionInfo
-    ) {
-        // If any items exist and are selected, they will be deselected, so
-        // send empty selection event in that case.
-        if (null != _selectionItemList) {
-            boolean foundSelected = false;
-            for (final var si : _selectionItemList) {
+    protected ToggleItem addGridText(final TextItem textItem) {
+        final Integer useCount = _gridTextUseMap.get(textItem);
+        if (null == useCount) {
+            textItem.addTextListener(_gridTextListener);
+            _gridTextUseMap.put(textItem, 1);
+        } else {
+            _gridTextUseMap.put(textItem, useCount + 1);
+        }
+        return this;
+    }
+
+    protected ToggleItem removeGridText(final TextItem textItem) {
+        final Integer useCount = _gridTextUseMap.get(textItem);
+        if (null == useCount) {
+            return this;
+        }
+        if (1 >= useCount) {
+            textItem.removeTextListener(_gridTextListener);
+            _gridTextUseMap.remove(textItem);
+        } else {
+            _gridTextUseMap.put(textItem, useCount - 1);
+        }
+        return this;
+    }
+
+    /** Selection items shown by the toggle grid. */
+    class GridModel
+        implements ToggleGrid.Model
+    {
+        public int getSize() {
+            return _selectionItemList.size();
+        }
+
+        public String getText(final int idx) {
+            return _selectionItemList.get(idx).textItem.getText();
+        }
+
+        public boolean isSelected(final int idx) {
+            return _selectionItemList.get(idx).isSelected();
+        }
+
+        public boolean isEnabled(final int idx) {
+            return _selectionItemList.get(idx).isEnabled();
+        }
+
+        public void toggle(final int idx) {
+            final SelectionItem si = _selectionItemList.get(idx);
+            if (GUISelectionInfo.Mode.SINGLE == _mode) {
                 if (si.isSelected()) {
-                    foundSelected = true;
-                    break;
+                    // Same as a radio button, clicking again does nothing.
+                    return;
                 }
+                si.setSelected(true);
+            } else {
+                si.setSelected(!si.isSelected());
             }
-            if (foundSelected) {
-                // Create and send a selection changed event.
-                final var changedEvent = new Message(EventInfo.Event.CHANGED);
-                final var eventInfo = changedEvent.getEventInfo();
-                final var itemInfo = eventInfo.getItemInfo();
-                final var selectionInfo = itemInfo.getSelectionInfo();
+            sendChangedEvent();
+        }
+    }
 
-                itemInfo.id = idString;
+    /**
+        Changes item info list and selection items to match what it's told.
+        Added and changed items are selected if they're in the selection set.
+     */
+    class ItemChangeListener
+        implements ItemListDiff.Listener
+    {
+        private final Set<String> _selectionSet;
 
-                // Empty selection list - won't send anything if it's null.
-                selectionInfo.selected = new LinkedList<>();
+        public ItemChangeListener(final Set<String> selectionSet) {
+            _selectionSet = selectionSet;
+        }
 
-                _messageExchange.send(changedEvent);
+        public void removed(final int idx0, final int idx1) {
+            _itemInfoList.subList(idx0, idx1 + 1).clear();
+            for (int idx = idx1; idx >= idx0; idx--) {
+                _selectionItemList.remove(idx).dispose();
             }
         }
-        _selectionItemList = new LinkedList<>();
 
-        final GridBagConstraints c = new GridBagConstraints();
-        c.anchor = GridBagConstraints.LINE_START;
-        c.gridx = 0;
-        c.gridy = 0;
+        public void added(
+            final int idx0, final List<GUISelectionInfo.Item> addedItems
+        ) {
+            _itemInfoList.addAll(idx0, addedItems);
+            int idx = idx0;
+            for (final var item : addedItems) {
+                final boolean isSelected = _selectionSet.contains(item.id);
+
+                _selectionItemList
+                    .add(idx, new SelectionItem(item, isSelected));
+                idx++;
+            }
+        }
 
-        // For single selection there should only be one selection, but
-        // in case multiple are sent in error, this will use the last
-        // one as the selection.
-        final Set<String> selectionSet =
-            (null != guiSelectionInfo.selected)
-                ? new HashSet<>(guiSelectionInfo.selected)
-                : Set.of();  // Nothing selected, empty (unused) set.
+        public void changed(
+            final int idx0, final List<GUISelectionInfo.Item> changedItems
+        ) {
+            int idx = idx0;
+            for (final var item : changedItems) {
+                _itemInfoList.set(idx, item);
+
+                // Selection from before any changes, in case an earlier
+                // action disabled this item.
+                final boolean isSelected = _selectionSet.contains(item.id);
+                _selectionItemList.get(idx).dispose();
+
+                final SelectionItem si = new SelectionItem(item, isSelected);
+                _selectionItemList.set(idx, si);
+                idx++;
+            }
+        }
+    }
 
+    /**
+        Change to new items, adding, removing, and changing only the items
+        which are different, then apply any item actions. Items which are
+        kept stay selected unless a new selection is given.
+     */
+    public ToggleItem updateItems(
+        final GUISelectionInfo guiSelectionInfo
+    ) {
+        final List<String> oldSelected = getSelectedIds();
+
+        // Items which moved stay selected. Any new selection is applied
+        // after, since it might be changes to this one.
+        final Set<String> selectionSet = new HashSet<>(oldSelected);
+        final var itemChangeListener = new ItemChangeListener(selectionSet);
+
+        if ( (null != guiSelectionInfo.items)
+          || (null == guiSelectionInfo.itemActions) )
+        {
+            final List<GUISelectionInfo.Item> items =
+                (null != guiSelectionInfo.items)
+                    ? guiSelectionInfo.items
+                    : List.of();
+
+            // Diff needs the old list as it was.
+            final List<GUISelectionInfo.Item> oldItemInfoList =
+                _itemInfoList;
+            _itemInfoList = new ArrayList<>(oldItemInfoList);
+
+            ItemListDiff.diff(oldItemInfoList, items, itemChangeListener);
+            _idIndex.clear();
+        }
+        if (null != guiSelectionInfo.itemActions) {
+            ItemListDiff.apply(
+                guiSelectionInfo.itemActions,
+                _itemInfoList,
+                _idIndex,
+                itemChangeListener
+            );
+        }
+
+        if (null != guiSelectionInfo.selected) {
+            updateSelected(guiSelectionInfo.selected);
+        } else if (oldSelected.size() != getSelectedIds().size()) {
+            // Items which were selected are gone, let the app know.
+            // Added items are never selected without a new selection, so
+            // comparing sizes is enough.
+            sendChangedEvent();
+        }
+
+        layoutItems();
+
+        return this;
+    }
+
+    /**
+        Set grid position of each item, adding those which are new to the
+        container component.
+     */
+    protected ToggleItem layoutItems() {
         // If width or height are specified, give priority to width.
         // E.g for 9 items, if height=4 and width=2, make 2 columns (5 and 4).
         // If height = 4 and no width, make 3 columns (4, 4, and 1).
+        final int numItems = _selectionItemList.size();
         final int yLimit;
         if (_hasWidth) {
             // Calculate limit from width and num items.
-            final int numItems = guiSelectionInfo.items.size();
-
             yLimit = (numItems + (_width - 1)) / _width;
         } else if (_hasHeight) {
             // Use height as the limit.
             yLimit = _height;
         } else {
             // No limit.
-            yLimit = guiSelectionInfo.items.size();
+            yLimit = numItems;
         }
 
-        for (final var item : guiSelectionInfo.items) {
-            final boolean isSelected = selectionSet.contains(item.id);
+        if (null != _toggleGrid) {
+            _toggleGrid.setRowCount(yLimit);
+            _toggleGrid.itemsChanged();
+            return this;
+        }
 
-            final SelectionItem si = new SelectionItem(item, isSelected);
+        final GridBagLayout layout = (GridBagLayout)_component.getLayout();
+        final GridBagConstraints c = new GridBagConstraints();
+        c.anchor = GridBagConstraints.LINE_START;
+        c.gridx = 0;
+        c.gridy = 0;
 
-            _selectionItemList.add(si);
-            _component.add(si.component, c);
+        for (final SelectionItem si : _selectionItemList) {
+            if (_component == si.component.getParent()) {
+                layout.setConstraints(si.component, c);
+            } else {
+                _component.add(si.component, c);
+            }
 
             c.gridy++;
             if (yLimit <= c.gridy) {
@@ -280,18 +482,66 @@ public class ToggleItem
         return this;
     }
 
+    protected List<String> getSelectedIds() {
+        final List<String> selected = new ArrayList<>();
+        for (final SelectionItem si : _selectionItemList) {
+            if (si.isSelected()) {
+                selected.add(si.id);
+            }
+        }
+        return selected;
+    }
+
+    protected ToggleItem sendChangedEvent() {
+        // Create and send a selection changed event.
+        final var changedEvent = new Message(EventInfo.Event.CHANGED);
+        final var eventInfo = changedEvent.getEventInfo();
+        final var itemInfo = eventInfo.getItemInfo();
+        final var selectionInfo = itemInfo.getSelectionInfo();
+
+        itemInfo.id = idString;
+        selectionInfo.selected = getSelectedIds();
+
+        _messageExchange.send(changedEvent);
+        return this;
+    }
+
+    /** Set selection, or change it if selected is a list of changes. */
     public ToggleItem updateSelected(
         final List<String> selected
     ) {
-        final Set<String> selectionSet =
+        final List<SelectedRange> rangeList =
             (null != selected)
-                ? new HashSet<>(selected)
-                : Set.of();  // Nothing selected, empty (unused) set.
+                ? SelectedRange.listFrom(selected, _selectionRanges)
+                : List.of();  // Nothing selected.
 
-        for (final SelectionItem si : _selectionItemList) {
-            final boolean isSelected = selectionSet.contains(si.id);
-
-            si.component.setSelected(isSelected);
+        if (!SelectedRange.isChangeList(rangeList)) {
+            for (final SelectionItem si : _selectionItemList) {
+                si.setSelected(false);
+            }
+        }
+        for (final var range : rangeList) {
+            // Skip any ranges with IDs which aren't there.
+            final int firstIdx =
+                _idIndex.indexOfId(_itemInfoList, range.firstId);
+            final int lastIdx =
+                range.isRange()
+                    ? _idIndex.indexOfId(_itemInfoList, range.lastId)
+                    : firstIdx;
+            if ((0 > firstIdx) || (0 > lastIdx)) {
+                continue;
+            }
+            final boolean isSelected =
+                (SelectedRange.Change.REMOVE != range.change);
+            for (int idx = Math.min(firstIdx, lastIdx);
+                idx <= Math.max(firstIdx, lastIdx);
+                idx++)
+            {
+                _selectionItemList.get(idx).setSelected(isSelected);
+            }
+        }
+        if (null != _toggleGrid) {
+            _toggleGrid.selectionChanged();
         }
         return this;
     }
@@ -302,6 +552,9 @@ public class ToggleItem
         for (final SelectionItem si : _selectionItemList) {
             si.updateEnabled();
         }
+        if (null != _toggleGrid) {
+            _toggleGrid.selectionChanged();
+        }
         return this;
     }
 
@@ -310,21 +563,37 @@ public class ToggleItem
         final var guiInfo = itemInfo.getGUIInfo();
         final var guiSelectionInfo = guiInfo.getGUISelectionInfo();
 
-        switch (guiSelectionInfo.mode) {
-          case SINGLE:
-            // Single selection needs a button group and undisplayed "none"
-            // button.
-            _buttonGroup = new ButtonGroup();
-            _noneButton = new JRadioButton();
-            _noneButton.setSelected(true);  // By default, only one selected.
-            _buttonGroup.add(_noneButton);
+        final int itemCount =
+            (null != guiSelectionInfo.items)
+                ? guiSelectionInfo.items.size()
+                : 0;
+        if (GRID_ITEM_COUNT <= itemCount) {
+            // Too many for a button each. Chosen when added, like width and
+            // height, since the whole component is different.
+            _toggleGrid =
+                new ToggleGrid(
+                    new GridModel(),
+                    GUISelectionInfo.Mode.SINGLE == guiSelectionInfo.mode
+                );
+            _component = _toggleGrid;
+        } else {
+            switch (guiSelectionInfo.mode) {
+              case SINGLE:
+                // Single selection needs a button group and undisplayed
+                // "none" button.
+                _buttonGroup = new ButtonGroup();
+                _noneButton = new JRadioButton();
+                // By default, only one selected.
+                _noneButton.setSelected(true);
+                _buttonGroup.add(_noneButton);
 
-            _component = new JPanel(new GridBagLayout());
+                _component = new JPanel(new GridBagLayout());
 
-            break;
-          case MULTIPLE:
-            _component = new JPanel(new GridBagLayout());
-            break;
+                break;
+              case MULTIPLE:
+                _component = new JPanel(new GridBagLayout());
+                break;
+            }
         }
         applyTextDirectionInvoked();
 
@@ -368,7 +637,12 @@ public class ToggleItem
 
     public void dispose() {
         super.dispose();
+        for (final SelectionItem si : _selectionItemList) {
+            si.dispose();
+        }
+        _selectionItemList.clear();
         _component = null;
+        _toggleGrid = null;
     }
 
     protected Item modify(final CommandInfo commandInfo) {
@@ -378,13 +652,9 @@ public class ToggleItem
         final var guiSelectionInfo = guiInfo.getGUISelectionInfo();
 
         // See what's changed.
-        if (null != guiSelectionInfo.items) {
-            // Remove all old items in _selectionItemList, add these new items.
-            // Any selection is implicitly cleared (is there an event?
-            // probably, check that).
-            for (final SelectionItem si : _selectionItemList) {
-                _component.remove(si.component);
-            }
+        if ( (null != guiSelectionInfo.items)
+          || (null != guiSelectionInfo.itemActions) )
+        {
             updateItems(guiSelectionInfo);
         // Update items sets selected status, don't do that again,
         // so "else if" here.
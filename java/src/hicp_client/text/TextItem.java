@@ -3,6 +3,7 @@ package hicp_client.text;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -29,6 +30,10 @@ public class TextItem {
     }
 
     public void setText(String text) {
+        if (Objects.equals(_text, text)) {
+            // Nothing changed, listeners don't need to know.
+            return;
+        }
         _text = text;
         fireTextChanged();
     }
@@ -117,7 +117,8 @@ public class HV {
                     cp.address = "localhost";
                 }
                 _socket = new Socket(cp.address, cp.port);
-                
+                _socket.setTcpNoDelay(hp.tcpNoDelay);
+
                 // Construct HICP session.
                 final Session hicpSession =
                     new Session(